@@ -0,0 +1,65 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the generator benchmarks with the gc profiler,
+ * to report time and allocation per template.
+ * Usage:	java -jar benchmarks.jar [jmh options]
+ * 	e.g.	java -jar benchmarks.jar TemplateBenchmark -p size=10,100 -rf json -rff result.json
+ * All benchmarks are run if none is specified.
+ */
+public class BenchmarkMain {
+	//===================================================================================
+	//===================================================================================
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(commandLine);
+		if (commandLine.getProfilers().isEmpty())
+			builder.addProfiler(GCProfiler.class);
+		Options options = builder.build();
+		new Runner(options).run();
+	}
+	//===================================================================================
+	//===================================================================================
+}
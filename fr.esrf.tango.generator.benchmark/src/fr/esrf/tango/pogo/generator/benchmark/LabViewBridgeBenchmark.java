@@ -0,0 +1,312 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+
+package fr.esrf.tango.pogo.generator.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure the attribute queries per second of the devices talking to one
+ * LabVIEW server (LabViewStandIn on loopback), as the generated device does it:
+ * Tango serializes the requests of a device, so each device has one caller
+ * (one benchmark thread), and a health thread polling "SYSTem:ERRor?"
+ * on the same connection (LabViewHealthPeriod class property).
+ * The default is one device, use -t n for n devices on the endpoint.
+ * Connections:
+ *	direct		one connection per device, the health thread and the caller
+ *				keep it from a query until its reply is read (default code).
+ *	bridge		one connection per device, through a pipelined bridge
+ *				(LabViewBridge class property).
+ *	shared		all devices share one bridge connection
+ *				(LabViewSharedConnections class property set to 1).
+ * The clients are Java models of the generated LabViewBridge.h (same tags,
+ * writer and reader threads): they measure the protocol on the connection,
+ * not the C++ code. The stand-in could be started alone (see its main())
+ * to measure a device server generated with these settings.
+ * e.g.	java -jar benchmarks.jar LabViewBridgeBenchmark -t 8 -p latencyMicros=1000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(1)
+@Fork(1)
+public class LabViewBridgeBenchmark {
+
+	private static final Charset CHARSET = Charset.forName("US-ASCII");
+
+	@Param({ "direct", "bridge", "shared" })
+	public String connection;
+
+	@Param({ "100", "1000" })
+	public long latencyMicros;
+
+	@Param({ "100" })
+	public long healthPeriodMillis;
+
+	private LabViewStandIn standIn;
+	private Client sharedClient = null;
+	//===================================================================================
+	//===================================================================================
+	@Setup
+	public void setup() throws IOException {
+		standIn = new LabViewStandIn(0, latencyMicros);
+		if (connection.equals("shared"))
+			sharedClient = new PipelinedClient(connect());
+	}
+	//===================================================================================
+	//===================================================================================
+	@TearDown
+	public void tearDown() throws IOException {
+		if (sharedClient!=null)
+			sharedClient.close();
+		standIn.close();
+	}
+	//===================================================================================
+	//===================================================================================
+	private Socket connect() throws IOException {
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), standIn.getPort());
+		socket.setTcpNoDelay(true);
+		return socket;
+	}
+	//===================================================================================
+	/**
+	 * A device: its connection (or the shared one) and its health thread
+	 */
+	//===================================================================================
+	@State(Scope.Thread)
+	public static class Device {
+		private Client client;
+		private boolean ownClient;
+		private ScheduledExecutorService health;
+		//===========================================================
+		@Setup
+		public void setup(LabViewBridgeBenchmark endpoint) throws IOException {
+			ownClient = endpoint.sharedClient==null;
+			if (ownClient) {
+				Socket socket = endpoint.connect();
+				client = endpoint.connection.equals("bridge")?
+						new PipelinedClient(socket) : new DirectClient(socket);
+			}
+			else
+				client = endpoint.sharedClient;
+			health = Executors.newSingleThreadScheduledExecutor();
+			health.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					try {
+						client.query("SYSTem:ERRor?");
+					}
+					catch (Exception e) {
+						//	Closed, try again at next period
+					}
+				}
+			}, endpoint.healthPeriodMillis, endpoint.healthPeriodMillis, TimeUnit.MILLISECONDS);
+		}
+		//===========================================================
+		@TearDown
+		public void tearDown() throws IOException {
+			health.shutdownNow();
+			if (ownClient)
+				client.close();
+		}
+	}
+	//===================================================================================
+	/**
+	 * One attribute query and its reply
+	 */
+	//===================================================================================
+	@Benchmark
+	public String query(Device device) throws Exception {
+		return device.client.query("MEASure:VOLTage?");
+	}
+	//===================================================================================
+	//===================================================================================
+
+
+
+	//===================================================================================
+	//===================================================================================
+	private static abstract class Client {
+		protected final Socket socket;
+		protected final BufferedReader in;
+		protected final OutputStream out;
+		//===========================================================
+		Client(Socket socket) throws IOException {
+			this.socket = socket;
+			in  = new BufferedReader(new InputStreamReader(socket.getInputStream(), CHARSET));
+			out = socket.getOutputStream();
+		}
+		//===========================================================
+		abstract String query(String query) throws Exception;
+		//===========================================================
+		void close() throws IOException {
+			socket.close();
+		}
+	}
+	//===================================================================================
+	/**
+	 * Default generated code: the caller and the health thread
+	 * keep the connection from a query until its reply is read (lv_mutex)
+	 */
+	//===================================================================================
+	private static class DirectClient extends Client {
+		//===========================================================
+		DirectClient(Socket socket) throws IOException {
+			super(socket);
+		}
+		//===========================================================
+		synchronized String query(String query) throws IOException {
+			out.write((query + "\r\n").getBytes(CHARSET));
+			out.flush();
+			return in.readLine();
+		}
+	}
+	//===================================================================================
+	/**
+	 * LabViewBridge: a writer thread sends the tagged queries,
+	 * a reader thread gives each reply to the caller waiting for its tag.
+	 */
+	//===================================================================================
+	private static class PipelinedClient extends Client {
+		private final AtomicLong nextId = new AtomicLong(1);
+		private final BlockingQueue<String> writeQueue = new LinkedBlockingQueue<String>();
+		private final ConcurrentMap<Long, BlockingQueue<String>> pending =
+				new ConcurrentHashMap<Long, BlockingQueue<String>>();
+		private final Thread writer;
+		private final Thread reader;
+		//===========================================================
+		PipelinedClient(Socket socket) throws IOException {
+			super(socket);
+			writer = new Thread(new Runnable() {
+				public void run() {
+					writerLoop();
+				}
+			}, "LabVIEW bridge writer");
+			reader = new Thread(new Runnable() {
+				public void run() {
+					readerLoop();
+				}
+			}, "LabVIEW bridge reader");
+			writer.setDaemon(true);
+			reader.setDaemon(true);
+			writer.start();
+			reader.start();
+		}
+		//===========================================================
+		String query(String query) throws InterruptedException {
+			long id = nextId.getAndIncrement();
+			BlockingQueue<String> reply = new ArrayBlockingQueue<String>(1);
+			pending.put(id, reply);
+			writeQueue.put("#" + id + " " + query + "\r\n");
+			return reply.take();
+		}
+		//===========================================================
+		private void writerLoop() {
+			StringBuilder sb = new StringBuilder();
+			try {
+				while (true) {
+					//	Send all queued lines at once
+					sb.setLength(0);
+					sb.append(writeQueue.take());
+					String line;
+					while ((line=writeQueue.poll())!=null)
+						sb.append(line);
+					out.write(sb.toString().getBytes(CHARSET));
+					out.flush();
+				}
+			}
+			catch (InterruptedException | IOException e) {
+				//	Closed
+			}
+		}
+		//===========================================================
+		private void readerLoop() {
+			try {
+				String line;
+				while ((line=in.readLine())!=null) {
+					int space = line.indexOf(' ');
+					if (!line.startsWith("#") || space<0)
+						continue;
+					BlockingQueue<String> reply =
+							pending.remove(Long.parseLong(line.substring(1, space)));
+					if (reply!=null)
+						reply.offer(line.substring(space+1));
+				}
+			}
+			catch (IOException e) {
+				//	Closed
+			}
+		}
+		//===========================================================
+		@Override
+		void close() throws IOException {
+			writer.interrupt();
+			super.close();
+		}
+	}
+	//===================================================================================
+	//===================================================================================
+}
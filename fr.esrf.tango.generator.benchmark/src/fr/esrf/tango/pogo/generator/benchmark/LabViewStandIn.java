@@ -0,0 +1,177 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+
+package fr.esrf.tango.pogo.generator.benchmark;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A loopback stand-in for a LabVIEW server, to measure the generated
+ * LabVIEW exchanges without the instrument:
+ * each line ending with '?' is answered after a fixed latency
+ * (the instrument processing time).
+ * A tagged query ("#id QUERY?") is answered with the same tag,
+ * an untagged one with the value only, in received order.
+ * Other lines (settings) are not answered.
+ * Usage:	java LabViewStandIn [port [latency in micro seconds]]
+ */
+public class LabViewStandIn implements Closeable {
+
+	private static final Charset CHARSET = Charset.forName("US-ASCII");
+	private final ServerSocket server;
+	private final long latencyMicros;
+	//	One thread: replies with the same latency are sent in received order
+	private final ScheduledExecutorService replier = Executors.newSingleThreadScheduledExecutor();
+	//===================================================================================
+	/**
+	 * Start the server.
+	 * @param port			the port to listen (0 for any free port)
+	 * @param latencyMicros	the delay before answering a query
+	 * @throws IOException	if the port cannot be opened
+	 */
+	//===================================================================================
+	public LabViewStandIn(int port, long latencyMicros) throws IOException {
+		this.latencyMicros = latencyMicros;
+		server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		Thread acceptor = new Thread(new Runnable() {
+			public void run() {
+				accept();
+			}
+		}, "LabVIEW stand-in");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+	//===================================================================================
+	//===================================================================================
+	public int getPort() {
+		return server.getLocalPort();
+	}
+	//===================================================================================
+	//===================================================================================
+	private void accept() {
+		while (!server.isClosed()) {
+			try {
+				final Socket socket = server.accept();
+				socket.setTcpNoDelay(true);
+				Thread connection = new Thread(new Runnable() {
+					public void run() {
+						serve(socket);
+					}
+				}, "LabVIEW stand-in connection");
+				connection.setDaemon(true);
+				connection.start();
+			}
+			catch (IOException e) {
+				//	Server closed
+			}
+		}
+	}
+	//===================================================================================
+	//===================================================================================
+	private void serve(Socket socket) {
+		try (Socket s = socket) {
+			BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), CHARSET));
+			final OutputStream out = s.getOutputStream();
+			String line;
+			while ((line=in.readLine())!=null) {
+				if (!line.endsWith("?"))
+					continue;
+				String tag = "";
+				String query = line;
+				if (line.startsWith("#")) {
+					int space = line.indexOf(' ');
+					if (space>0) {
+						tag   = line.substring(0, space+1);
+						query = line.substring(space+1);
+					}
+				}
+				final byte[] reply = (tag + answer(query) + "\r\n").getBytes(CHARSET);
+				replier.schedule(new Runnable() {
+					public void run() {
+						synchronized (out) {
+							try {
+								out.write(reply);
+								out.flush();
+							}
+							catch (IOException e) {
+								//	Connection closed by client
+							}
+						}
+					}
+				}, latencyMicros, TimeUnit.MICROSECONDS);
+			}
+		}
+		catch (IOException e) {
+			//	Connection closed by client
+		}
+	}
+	//===================================================================================
+	//===================================================================================
+	private static String answer(String query) {
+		if (query.equals("SYSTem:ERRor?"))
+			return "0";
+		return Integer.toString(query.length());
+	}
+	//===================================================================================
+	//===================================================================================
+	public void close() throws IOException {
+		server.close();
+		replier.shutdownNow();
+	}
+	//===================================================================================
+	//===================================================================================
+	public static void main(String[] args) throws Exception {
+		int port = (args.length>0)? Integer.parseInt(args[0]) : 4321;
+		long latency = (args.length>1)? Long.parseLong(args[1]) : 1000;
+		LabViewStandIn standIn = new LabViewStandIn(port, latency);
+		System.out.println("LabVIEW stand-in listening on port " + standIn.getPort() +
+				" (latency " + latency + " us)");
+		Thread.sleep(Long.MAX_VALUE);
+	}
+	//===================================================================================
+	//===================================================================================
+}
@@ -0,0 +1,130 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+
+package fr.esrf.tango.pogo.generator.benchmark;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.esrf.tango.pogo.generator.GenerationContext;
+import fr.esrf.tango.pogo.generator.PogoPathFilter;
+
+/**
+ * Measure the cost of one PogoPathFilter.accept() call
+ * when the number of files in the target directory grows
+ * (a Java class with many dynamic attribute and command classes),
+ * and when the number of generated files declared in the filter grows.
+ * Both should stay flat.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathFilterBenchmark {
+
+	private static final String TARGET_DIR = "/segfs/tango/servers/MyDevice";
+
+	@Param({ "10", "100", "1000", "10000" })
+	public int files;
+
+	private PogoPathFilter javaFilter;
+	private PogoPathFilter largeFilter;
+	private URI[] uris;
+	private int index = 0;
+	//===================================================================================
+	//===================================================================================
+	@Setup
+	public void setup() {
+		javaFilter = new PogoPathFilter(new GenerationContext(TARGET_DIR, "MyDevice", "Java", false));
+
+		//	Half generated java classes, half other files found in target directory
+		List<String> generated = new ArrayList<String>();
+		uris = new URI[files];
+		for (int i=0 ; i<files ; i++) {
+			String path = (i%2==0)?
+					TARGET_DIR + "/org/tango/mydevice/DynAttr" + i + ".java" :
+					TARGET_DIR + "/src/utils/Util" + i + ".cpp";
+			uris[i] = new File(path).toURI();
+			generated.add(path);
+		}
+		generated.add(TARGET_DIR + "/org/tango/mydevice/*.java");
+		largeFilter = new PogoPathFilter(generated);
+	}
+	//===================================================================================
+	//===================================================================================
+	private URI nextUri() {
+		URI uri = uris[index];
+		index = (index+1) % uris.length;
+		return uri;
+	}
+	//===================================================================================
+	/**
+	 * Filter of a Java class, target directory with more and more files
+	 */
+	//===================================================================================
+	@Benchmark
+	public boolean acceptJavaClass() {
+		return javaFilter.accept(nextUri());
+	}
+	//===================================================================================
+	/**
+	 * Filter declaring as many files as found in target directory
+	 */
+	//===================================================================================
+	@Benchmark
+	public boolean acceptManyGeneratedFiles() {
+		return largeFilter.accept(nextUri());
+	}
+	//===================================================================================
+	//===================================================================================
+}
@@ -0,0 +1,149 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator.benchmark;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import net.danieldietrich.protectedregions.core.IDocument;
+import net.danieldietrich.protectedregions.core.IDocument.IRegion;
+import net.danieldietrich.protectedregions.core.IRegionParser;
+import net.danieldietrich.protectedregions.core.RegionParserFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.esrf.tango.pogo.generator.pr.PogoPR;
+import fr.esrf.tango.pogo.generator.pr.PogoRegionParser;
+import fr.esrf.tango.pogo.generator.pr.ProtectedRegionScanner;
+
+/**
+ * Compare ProtectedRegionScanner with the RegionParserFactory java parser
+ * on synthetic C++ device sources with more and more attributes.
+ * The regions found by both parsers are checked to be identical at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtectedRegionBenchmark {
+
+	@Param({ "100", "500", "1000", "2000" })
+	public int attributes;
+
+	private String code;
+	private IRegionParser parser;
+	private IRegionParser scanner;
+	//===================================================================================
+	//===================================================================================
+	@Setup
+	public void setup() {
+		code = buildDeviceSource(attributes);
+		parser = RegionParserFactory.createJavaParser(new PogoPR(), false);
+		scanner = new PogoRegionParser("java",
+				ProtectedRegionScanner.JAVA_COMMENTS, ProtectedRegionScanner.JAVA_CDATA);
+		checkSameRegions(parser.parse(code), scanner.parse(code));
+	}
+	//===================================================================================
+	//===================================================================================
+	@Benchmark
+	public IDocument regionParser() {
+		return parser.parse(code);
+	}
+	//===================================================================================
+	//===================================================================================
+	@Benchmark
+	public IDocument regionScanner() {
+		return scanner.parse(code);
+	}
+	//===================================================================================
+	//===================================================================================
+	private static void checkSameRegions(IDocument expected, IDocument document) {
+		Iterator<IRegion> it = document.getRegions().iterator();
+		for (IRegion region : expected.getRegions()) {
+			if (!it.hasNext())
+				throw new IllegalStateException("Missing region after " + region.getId());
+			IRegion other = it.next();
+			if (region.isMarkedRegion()!=other.isMarkedRegion() ||
+					region.isEnabled()!=other.isEnabled() ||
+					(region.isMarkedRegion() && !region.getId().equals(other.getId())) ||
+					!region.getText().equals(other.getText()))
+				throw new IllegalStateException("Region differs: " + region.getId() + " / " + other.getId());
+		}
+		if (it.hasNext())
+			throw new IllegalStateException("Unexpected region " + it.next().getId());
+	}
+	//===================================================================================
+	/**
+	 * Build a file looking like a generated device source.
+	 */
+	//===================================================================================
+	private static String buildDeviceSource(int nbAttributes) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("/*----- PROTECTED REGION ID(Bench.cpp) ENABLED START -----*/\n")
+			.append("//	Header comment with 'quotes' and \"strings\"\n")
+			.append("/*----- PROTECTED REGION END -----*/	//	Bench.cpp\n\n");
+		for (int i=0 ; i<nbAttributes ; i++) {
+			String method = "Bench::read_attr" + i;
+			sb.append("//--------------------------------------------------------\n")
+				.append("/**\n *	Read attribute attr").append(i).append(" related method\n")
+				.append(" *	Data type:	Tango::DevDouble\n */\n")
+				.append("//--------------------------------------------------------\n")
+				.append("void Bench::read_attr").append(i).append("(Tango::Attribute &attr)\n{\n")
+				.append("	DEBUG_STREAM << \"Bench::read_attr").append(i).append("(Tango::Attribute &attr) entering... \" << endl;\n")
+				.append("	/*----- PROTECTED REGION ID(").append(method).append(") ENABLED START -----*/\n")
+				.append("	//	Set the attribute value\n")
+				.append("	attr.set_value(attr_attr").append(i).append("_read);\n")
+				.append("	char c = '\\'';\n")
+				.append("	/*----- PROTECTED REGION END -----*/	//	").append(method).append("\n")
+				.append("}\n");
+		}
+		return sb.toString();
+	}
+	//===================================================================================
+	//===================================================================================
+}
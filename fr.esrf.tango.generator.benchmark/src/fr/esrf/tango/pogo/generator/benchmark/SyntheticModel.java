@@ -0,0 +1,123 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import fr.esrf.tango.pogo.generator.PogoGeneratorSession;
+import fr.esrf.tango.pogo.generator.common.StringUtils;
+import fr.esrf.tango.pogo.pogoDsl.Attribute;
+import fr.esrf.tango.pogo.pogoDsl.Command;
+import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass;
+import fr.esrf.tango.pogo.pogoDsl.PogoSystem;
+
+/**
+ * Build a model with a specified number of attributes and commands.
+ * The PowerSupply template is loaded and its own (not inherited)
+ * attributes and commands are copied until the size is reached.
+ */
+public class SyntheticModel {
+
+	private static final String SEED = "PowerSupply.xmi";
+	//===================================================================================
+	//===================================================================================
+	private SyntheticModel() {
+	}
+	//===================================================================================
+	/**
+	 * @param size	the number of attributes and the number of commands
+	 * @return a resource containing the synthetic class
+	 */
+	//===================================================================================
+	public static Resource create(int size) throws IOException {
+		//	EMF registration done by the session
+		PogoGeneratorSession.getInstance();
+
+		Resource resource = new ResourceSetImpl().createResource(URI.createURI(SEED));
+		InputStream stream = SyntheticModel.class.getResourceAsStream(SEED);
+		if (stream==null)
+			throw new IOException(SEED + " not found in class path");
+		try {
+			resource.load(stream, null);
+		}
+		finally {
+			stream.close();
+		}
+
+		PogoDeviceClass cls = getDeviceClass(resource);
+		List<Attribute> attributes = new ArrayList<Attribute>(cls.getAttributes());
+		List<Command> commands = new ArrayList<Command>();
+		for (Command command : cls.getCommands())
+			if (StringUtils.isFalse(command.getStatus().getInherited()))
+				commands.add(command);
+
+		//	Replace seed attributes and commands by numbered copies
+		cls.getAttributes().clear();
+		for (int i=0 ; i<size ; i++) {
+			Attribute attribute = EcoreUtil.copy(attributes.get(i%attributes.size()));
+			attribute.setName(attribute.getName() + i);
+			cls.getAttributes().add(attribute);
+		}
+		cls.getCommands().removeAll(commands);
+		int inherited = cls.getCommands().size();
+		for (int i=inherited ; i<size ; i++) {
+			Command command = EcoreUtil.copy(commands.get(i%commands.size()));
+			command.setName(command.getName() + i);
+			command.setExecMethod(command.getExecMethod() + "_" + i);
+			cls.getCommands().add(command);
+		}
+		return resource;
+	}
+	//===================================================================================
+	/**
+	 * @return the first class found in resource
+	 */
+	//===================================================================================
+	public static PogoDeviceClass getDeviceClass(Resource resource) {
+		PogoSystem system = (PogoSystem) resource.getContents().get(0);
+		return system.getClasses().get(0);
+	}
+	//===================================================================================
+	//===================================================================================
+}
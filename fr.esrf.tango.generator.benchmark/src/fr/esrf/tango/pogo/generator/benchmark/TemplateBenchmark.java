@@ -0,0 +1,165 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.xtext.generator.IFileSystemAccess;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.inject.Injector;
+
+import fr.esrf.tango.pogo.generator.PogoGeneratorSession;
+import fr.esrf.tango.pogo.generator.cpp.DeviceClassSource;
+import fr.esrf.tango.pogo.generator.cpp.DeviceSource;
+import fr.esrf.tango.pogo.generator.html.HtmlGenerator;
+import fr.esrf.tango.pogo.generator.java.JavaDevice;
+import fr.esrf.tango.pogo.generator.python.PythonDeviceHL;
+import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass;
+
+/**
+ * Measure the main templates on a class with size attributes and size commands.
+ * Templates are built by the generator injector, as during a real generation.
+ * Files are not written, the HTML generator writes in a file system access
+ * which only converts the contents to string.
+ *
+ * Allocation per operation is reported by the gc profiler
+ * (added by BenchmarkMain, or -prof gc with org.openjdk.jmh.Main).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+
+	@Param({ "10", "100", "1000", "10000" })
+	public int size;
+
+	private Resource resource;
+	private PogoDeviceClass cls;
+	private DeviceSource deviceSource;
+	private DeviceClassSource deviceClassSource;
+	private JavaDevice javaDevice;
+	private PythonDeviceHL pythonDeviceHL;
+	private HtmlGenerator htmlGenerator;
+	//===================================================================================
+	//===================================================================================
+	@Setup
+	public void setup() throws Exception {
+		resource = SyntheticModel.create(size);
+		cls = SyntheticModel.getDeviceClass(resource);
+
+		Injector injector = PogoGeneratorSession.getInstance().getInjector();
+		deviceSource      = injector.getInstance(DeviceSource.class);
+		deviceClassSource = injector.getInstance(DeviceClassSource.class);
+		javaDevice        = injector.getInstance(JavaDevice.class);
+		pythonDeviceHL    = injector.getInstance(PythonDeviceHL.class);
+		htmlGenerator     = injector.getInstance(HtmlGenerator.class);
+	}
+	//===================================================================================
+	//===================================================================================
+	@Benchmark
+	public String cppDeviceSource() {
+		return deviceSource.generateDeviceSourceFile(cls).toString();
+	}
+	//===================================================================================
+	//===================================================================================
+	@Benchmark
+	public String cppDeviceClassSource() {
+		return deviceClassSource.generateDeviceClassSourceFile(cls).toString();
+	}
+	//===================================================================================
+	//===================================================================================
+	@Benchmark
+	public String javaDevice() {
+		return javaDevice.generateJavaDeviceFile(cls).toString();
+	}
+	//===================================================================================
+	//===================================================================================
+	@Benchmark
+	public String pythonDeviceHL() {
+		return pythonDeviceHL.generate_pythonFile(cls).toString();
+	}
+	//===================================================================================
+	//===================================================================================
+	@Benchmark
+	public void html(Blackhole blackhole) {
+		htmlGenerator.doGenerate(resource, new BlackholeFileSystemAccess(blackhole));
+	}
+	//===================================================================================
+	//===================================================================================
+
+
+
+	//===================================================================================
+	/**
+	 * A file system access which consumes the contents without writing them.
+	 */
+	//===================================================================================
+	private static class BlackholeFileSystemAccess implements IFileSystemAccess {
+		private final Blackhole blackhole;
+		//===========================================================
+		private BlackholeFileSystemAccess(Blackhole blackhole) {
+			this.blackhole = blackhole;
+		}
+		//===========================================================
+		public void generateFile(String fileName, CharSequence contents) {
+			blackhole.consume(contents.toString());
+		}
+		//===========================================================
+		public void generateFile(String fileName, String outputConfigurationName, CharSequence contents) {
+			blackhole.consume(contents.toString());
+		}
+		//===========================================================
+		public void deleteFile(String fileName) {
+		}
+		//===========================================================
+	}
+}
@@ -0,0 +1,157 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.esrf.tango.pogo.generator.PogoXmiResourceFactory;
+
+/**
+ * Measure the xmi load of a class with size attributes and size commands
+ * (about 1, 10 and 50 MB), with the old keys written by previous Pogo releases.
+ *	- plainLoad:		parse an up to date file, as reference.
+ *	- checkThenLoad:	previous way, read and split the file to check
+ *						the old keys (rewritten if found), then parse it.
+ *	- streamingLoad:	parse the old file, keys fixed by PogoXmiResourceFactory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmiLoadBenchmark {
+
+	@Param({ "700", "7000", "35000" })
+	public int size;
+
+	private static final Charset charset = Charset.forName("ISO-8859-1");
+	private File upToDateFile;
+	private File oldFile;
+	//===================================================================================
+	//===================================================================================
+	@Setup
+	public void setup() throws IOException {
+		Resource resource = SyntheticModel.create(size);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		resource.save(outputStream, null);
+		String code = new String(outputStream.toByteArray(), charset);
+
+		upToDateFile = File.createTempFile("UpToDate", ".xmi");
+		Files.write(upToDateFile.toPath(), code.getBytes(charset));
+
+		//	Same model with old keys
+		code = code.replace("<inheritances ", "<inheritance ")
+				.replace("<classes ", "<classes htmlInheritance=\"false\" ");
+		oldFile = File.createTempFile("Old", ".xmi");
+		Files.write(oldFile.toPath(), code.getBytes(charset));
+		System.out.println("\n" + oldFile.length()/1024 + " KB xmi file");
+	}
+	//===================================================================================
+	//===================================================================================
+	@TearDown
+	public void tearDown() {
+		//noinspection ResultOfMethodCallIgnored
+		upToDateFile.delete();
+		//noinspection ResultOfMethodCallIgnored
+		oldFile.delete();
+	}
+	//===================================================================================
+	//===================================================================================
+	@Benchmark
+	public Resource plainLoad() throws IOException {
+		Resource resource = new XMIResourceImpl(URI.createFileURI(upToDateFile.getAbsolutePath()));
+		resource.load(null);
+		return resource;
+	}
+	//===================================================================================
+	//===================================================================================
+	@Benchmark
+	public Resource checkThenLoad() throws IOException {
+		//	Both keys were checked on each load (file already rewritten here)
+		checkKey(upToDateFile, " htmlInheritance=\"");
+		checkKey(upToDateFile, "<inheritance ");
+		return plainLoad();
+	}
+	//===================================================================================
+	//===================================================================================
+	@Benchmark
+	public Resource streamingLoad() throws IOException {
+		Resource resource = new PogoXmiResourceFactory().createResource(
+				URI.createFileURI(oldFile.getAbsolutePath()));
+		resource.load(null);
+		return resource;
+	}
+	//===================================================================================
+	//===================================================================================
+	private static void checkKey(File file, String key) throws IOException {
+		String code = new String(Files.readAllBytes(file.toPath()), charset);
+		StringTokenizer stk = new StringTokenizer(code, "\n");
+		List<String> lines = new ArrayList<String>();
+		while (stk.hasMoreTokens()) {
+			String line = stk.nextToken();
+			if (line.indexOf(key)>=0)
+				throw new IllegalStateException(key + " found in " + file);
+			lines.add(line);
+		}
+	}
+	//===================================================================================
+	//===================================================================================
+}
@@ -0,0 +1,109 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator;
+
+/**
+ * The parameters of one generation (target directory, class name, language,...).
+ * It is given to the generator session for each run, then many generations
+ * could run concurrently in the same JVM.
+ * They were passed through system properties, this is still supported
+ * for specific MWE2 workflows only: PogoDslGeneratorComponent reads them
+ * (see fromSystemProperties()).
+ */
+public class GenerationContext {
+
+	private final String targetDir;
+	private final String className;
+	private final String targetLanguage;
+	private final boolean pythonPackage;
+	//===================================================================================
+	/**
+	 * @param targetDir			the directory where files will be generated
+	 * @param className			the class (or multi classes project) name
+	 * @param targetLanguage	the language (Cpp, Java, Python, PythonHL, MultiCpp)
+	 * 							or empty if code files are not generated
+	 * @param pythonPackage		true if a python package is generated
+	 */
+	//===================================================================================
+	public GenerationContext(String targetDir, String className, String targetLanguage, boolean pythonPackage) {
+		this.targetDir = targetDir;
+		this.className = className;
+		this.targetLanguage = (targetLanguage==null)? "" : targetLanguage;
+		this.pythonPackage = pythonPackage;
+	}
+	//===================================================================================
+	/**
+	 * @return the context set in system properties (targetDir, className,
+	 * 		targetLanguage and "python package"), or null if not set.
+	 */
+	//===================================================================================
+	public static GenerationContext fromSystemProperties() {
+		String targetDir = System.getProperty("targetDir");
+		if (targetDir==null)
+			return null;
+		return new GenerationContext(targetDir,
+				System.getProperty("className"),
+				System.getProperty("targetLanguage"),
+				"true".equals(System.getProperty("python package")));
+	}
+	//===================================================================================
+	//===================================================================================
+	public String getTargetDir() {
+		return targetDir;
+	}
+	//===================================================================================
+	//===================================================================================
+	public String getClassName() {
+		return className;
+	}
+	//===================================================================================
+	//===================================================================================
+	public String getTargetLanguage() {
+		return targetLanguage;
+	}
+	//===================================================================================
+	//===================================================================================
+	public boolean isPythonPackage() {
+		return pythonPackage;
+	}
+	//===================================================================================
+	//===================================================================================
+	public String toString() {
+		return targetDir + "/" + className + " : " + targetLanguage;
+	}
+	//===================================================================================
+	//===================================================================================
+}
@@ -0,0 +1,346 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.eclipse.xtext.generator.IFileSystemAccess;
+
+import fr.esrf.tango.pogo.generator.common.StringUtils;
+import fr.esrf.tango.pogo.generator.pr.ProtectedRegionScanner;
+
+/**
+ * Timing and size of a generation, per generator and per generated file:
+ * template evaluation time, protected regions in the written file, bytes produced,
+ * merge time and check/write time.
+ * The protected regions are counted on the merged code: the region support does not
+ * tell which of them have been merged from the previous file.
+ * Templates are evaluated before IFileSystemAccess.generateFile() is called,
+ * so the template time of a file is the time spent by its generator
+ * since its previous file (or since its start).
+ * The report is written in JSON by ManifestFileSystemAccess.finish().
+ *
+ * Options (environment or system property):
+ *	POGO_METRICS_REPORT=file	write the JSON report in file
+ *								(relative to the output directory if not absolute)
+ *	POGO_METRICS_STDOUT=true	print the JSON report on stdout
+ * A thread could also collect the reports of the generations it runs
+ * (see startCollecting()), e.g. to send them to a client.
+ */
+public class GenerationMetrics {
+
+	public static final String REPORT_OPTION = "POGO_METRICS_REPORT";
+	public static final String STDOUT_OPTION = "POGO_METRICS_STDOUT";
+
+	private final long startTime = System.nanoTime();
+	private final Map<String, FileMetrics> files = new LinkedHashMap<String, FileMetrics>();
+	private final Map<String, Long> generators = new LinkedHashMap<String, Long>();
+	private List<String> collectedReports = null;
+	//	Reports collected by current thread, if requested
+	private static final ThreadLocal<List<String>> collector = new ThreadLocal<List<String>>();
+	//===================================================================================
+	//===================================================================================
+	private GenerationMetrics() {
+	}
+	//===================================================================================
+	/**
+	 * @return a new metrics object if a report is requested, null otherwise
+	 */
+	//===================================================================================
+	public static GenerationMetrics create() {
+		List<String> reports = collector.get();
+		if (reports==null && StringUtils.getOption(REPORT_OPTION)==null &&
+				!StringUtils.isTrue(StringUtils.getOption(STDOUT_OPTION)))
+			return null;
+		GenerationMetrics metrics = new GenerationMetrics();
+		metrics.collectedReports = reports;
+		return metrics;
+	}
+	//===================================================================================
+	/**
+	 * Collect the JSON reports of the generations started by current thread
+	 * (the file system access is created by the thread calling the generator).
+	 */
+	//===================================================================================
+	public static void startCollecting() {
+		collector.set(new ArrayList<String>());
+	}
+	//===================================================================================
+	/**
+	 * @return the JSON reports collected since startCollecting(), or an empty list
+	 */
+	//===================================================================================
+	public static List<String> stopCollecting() {
+		List<String> reports = collector.get();
+		collector.remove();
+		if (reports==null)
+			return new ArrayList<String>();
+		synchronized (reports) {
+			return new ArrayList<String>(reports);
+		}
+	}
+	//===================================================================================
+	/**
+	 * @param fsa	the file system access used for a generation
+	 * @return the metrics of this generation, or null if not recorded
+	 */
+	//===================================================================================
+	public static GenerationMetrics of(IFileSystemAccess fsa) {
+		if (fsa instanceof ManifestFileSystemAccess)
+			return ((ManifestFileSystemAccess) fsa).getMetrics();
+		return null;
+	}
+	//===================================================================================
+	/**
+	 * @param fsa		the file system access used by a generator
+	 * @param generator	the generator name
+	 * @return a file system access recording the template time of each file
+	 */
+	//===================================================================================
+	public IFileSystemAccess instrument(IFileSystemAccess fsa, String generator) {
+		return new TimedFileSystemAccess(fsa, generator);
+	}
+	//===================================================================================
+	//===================================================================================
+	public synchronized void addGenerator(String generator, long nanos) {
+		generators.put(generator, nanos);
+	}
+	//===================================================================================
+	//===================================================================================
+	private synchronized void addTemplate(String fileName, String generator, long nanos) {
+		FileMetrics metrics = get(fileName);
+		metrics.generator = generator;
+		metrics.templateTime += nanos;
+	}
+	//===================================================================================
+	/**
+	 * Record the merge and write of a file.
+	 * @param fileName	the file name relative to output directory
+	 * @param code		the merged code (its protected regions are counted)
+	 * @param bytes		the number of bytes produced
+	 * @param mergeTime	the protected regions merge time (ns)
+	 * @param writeTime	the compare and write time (ns)
+	 * @param status	written, unchanged or skipped
+	 */
+	//===================================================================================
+	public void addFile(String fileName, String code, int bytes, long mergeTime, long writeTime, String status) {
+		int regions;
+		try {
+			regions = ProtectedRegionScanner.forFile(fileName).scan(code).getMarkedRegionCount();
+		}
+		catch (IllegalStateException e) {
+			regions = -1;	//	Not balanced (merge has already reported it)
+		}
+		synchronized (this) {
+			FileMetrics metrics = get(fileName);
+			metrics.regions   = regions;
+			metrics.bytes     = bytes;
+			metrics.mergeTime += mergeTime;
+			metrics.writeTime += writeTime;
+			metrics.status    = status;
+		}
+	}
+	//===================================================================================
+	//===================================================================================
+	private FileMetrics get(String fileName) {
+		FileMetrics metrics = files.get(fileName);
+		if (metrics==null) {
+			metrics = new FileMetrics();
+			files.put(fileName, metrics);
+		}
+		return metrics;
+	}
+	//===================================================================================
+	/**
+	 * Write the report as specified by options.
+	 * @param outputDir	the generation output directory
+	 */
+	//===================================================================================
+	public void report(String outputDir) {
+		String json = toJson(outputDir);
+		if (collectedReports!=null) {
+			synchronized (collectedReports) {
+				collectedReports.add(json);
+			}
+		}
+		if (StringUtils.isTrue(StringUtils.getOption(STDOUT_OPTION)))
+			System.out.println(json);
+
+		String reportName = StringUtils.getOption(REPORT_OPTION);
+		if (reportName!=null) {
+			File report = new File(reportName);
+			if (!report.isAbsolute() && outputDir!=null)
+				report = new File(outputDir, reportName);
+			try {
+				Files.write(report.toPath(), json.getBytes(Charset.forName("UTF-8")));
+			}
+			catch (IOException e) {
+				System.err.println("Cannot write " + report + ": " + e.getMessage());
+			}
+		}
+	}
+	//===================================================================================
+	//===================================================================================
+	public synchronized String toJson(String outputDir) {
+		long total = System.nanoTime() - startTime;
+		StringBuilder sb = new StringBuilder("{\n");
+		sb.append("  \"outputDirectory\": ").append(quote(outputDir)).append(",\n");
+		sb.append("  \"date\": ").append(quote(
+				new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ").format(new Date()))).append(",\n");
+		sb.append("  \"totalMs\": ").append(millis(total)).append(",\n");
+
+		sb.append("  \"generators\": [");
+		List<String> items = new ArrayList<String>();
+		for (Map.Entry<String, Long> entry : generators.entrySet())
+			items.add("\n    { \"name\": " + quote(entry.getKey()) +
+					", \"ms\": " + millis(entry.getValue()) + " }");
+		sb.append(join(items)).append("\n  ],\n");
+
+		sb.append("  \"files\": [");
+		items.clear();
+		for (Map.Entry<String, FileMetrics> entry : files.entrySet()) {
+			FileMetrics metrics = entry.getValue();
+			items.add("\n    { \"file\": " + quote(entry.getKey()) +
+					", \"generator\": " + quote(metrics.generator) +
+					", \"templateMs\": " + millis(metrics.templateTime) +
+					", \"mergeMs\": " + millis(metrics.mergeTime) +
+					", \"protectedRegionsInFile\": " + metrics.regions +
+					", \"bytes\": " + metrics.bytes +
+					", \"writeMs\": " + millis(metrics.writeTime) +
+					", \"status\": " + quote(metrics.status) + " }");
+		}
+		sb.append(join(items)).append("\n  ]\n}");
+		return sb.toString();
+	}
+	//===================================================================================
+	//===================================================================================
+	private static String join(List<String> items) {
+		StringBuilder sb = new StringBuilder();
+		for (String item : items) {
+			if (sb.length()>0)
+				sb.append(',');
+			sb.append(item);
+		}
+		return sb.toString();
+	}
+	//===================================================================================
+	//===================================================================================
+	private static String millis(long nanos) {
+		return String.format(Locale.US, "%.3f", nanos/1.0e6);
+	}
+	//===================================================================================
+	//===================================================================================
+	private static String quote(String str) {
+		if (str==null)
+			return "null";
+		StringBuilder sb = new StringBuilder("\"");
+		for (char c : str.toCharArray()) {
+			switch (c) {
+				case '"':	sb.append("\\\"");	break;
+				case '\\':	sb.append("\\\\");	break;
+				case '\n':	sb.append("\\n");	break;
+				case '\r':	sb.append("\\r");	break;
+				case '\t':	sb.append("\\t");	break;
+				default:
+					if (c<0x20)
+						sb.append(String.format("\\u%04x", (int) c));
+					else
+						sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+	//===================================================================================
+	//===================================================================================
+
+
+
+	//===================================================================================
+	//===================================================================================
+	private static class FileMetrics {
+		private String generator;
+		private long templateTime = 0;
+		private long mergeTime = 0;
+		private long writeTime = 0;
+		private int regions = 0;
+		private int bytes = 0;
+		private String status;
+	}
+	//===================================================================================
+	/**
+	 * A file system access used by one generator (one thread),
+	 * recording the time spent since previous call as template time.
+	 */
+	//===================================================================================
+	private class TimedFileSystemAccess implements IFileSystemAccess {
+		private final IFileSystemAccess fsa;
+		private final String generator;
+		private long last = System.nanoTime();
+		//===========================================================
+		private TimedFileSystemAccess(IFileSystemAccess fsa, String generator) {
+			this.fsa = fsa;
+			this.generator = generator;
+		}
+		//===========================================================
+		public void generateFile(String fileName, CharSequence contents) {
+			addTemplate(fileName, generator, System.nanoTime()-last);
+			fsa.generateFile(fileName, contents);
+			last = System.nanoTime();
+		}
+		//===========================================================
+		public void generateFile(String fileName, String outputConfigurationName, CharSequence contents) {
+			addTemplate(fileName, generator, System.nanoTime()-last);
+			fsa.generateFile(fileName, outputConfigurationName, contents);
+			last = System.nanoTime();
+		}
+		//===========================================================
+		public void deleteFile(String fileName) {
+			fsa.deleteFile(fileName);
+			last = System.nanoTime();
+		}
+		//===========================================================
+	}
+}
@@ -0,0 +1,59 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator;
+
+/**
+ * Follow a generation file by file, and cancel it.
+ * Set by ManifestFileSystemAccess.setMonitor() on the thread starting the generation.
+ * Methods are called by generator threads.
+ */
+public interface GenerationMonitor {
+	//===================================================================================
+	/**
+	 * Called when a file has been generated
+	 * @param fileName	the file name relative to output directory
+	 * @param status	written, unchanged or skipped
+	 */
+	//===================================================================================
+	void fileGenerated(String fileName, String status);
+	//===================================================================================
+	/**
+	 * @return true to stop the generation before next file
+	 */
+	//===================================================================================
+	boolean isCanceled();
+	//===================================================================================
+}
@@ -0,0 +1,408 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+
+import net.danieldietrich.protectedregions.support.IProtectedRegionSupport;
+import net.danieldietrich.protectedregions.xtext.BidiJavaIoFileSystemAccess;
+import net.danieldietrich.protectedregions.xtext.TangoFileUtils;
+
+import fr.esrf.tango.pogo.generator.common.StringUtils;
+
+/**
+ * A file system access writing only the files which have changed.
+ * A manifest (relative path, content hash, size and date) is kept in each output
+ * directory. When size and date of a file match the manifest, its hash is taken
+ * from the manifest, otherwise the file is read to compute it.
+ * Then a file is written only if the generated content is different.
+ *
+ * Option (environment or system property):
+ *	POGO_OUTPUT_MODE=changed	write only changed files (default)
+ *	POGO_OUTPUT_MODE=always		write all files (as before)
+ *	POGO_OUTPUT_MODE=check		do not write, only report the files which would be written
+ * Another value is rejected (a generation does not start).
+ *
+ * A GenerationMonitor could be set by the thread starting a generation
+ * to follow it and to cancel it (files already written are kept).
+ */
+public class ManifestFileSystemAccess extends BidiJavaIoFileSystemAccess {
+
+	public static final String MODE_OPTION   = "POGO_OUTPUT_MODE";
+	public static final String MANIFEST_FILE = ".pogo_manifest";
+	private static final String CHANGED = "changed";
+	private static final String CHECK   = "check";
+	private static final String ALWAYS  = "always";
+
+	private String mode;
+	private Map<String, Manifest> manifests = new HashMap<String, Manifest>();
+	private List<String> writtenFiles = new ArrayList<String>();
+	private int unchanged = 0;
+	private int skipped = 0;
+	private GenerationMetrics metrics = GenerationMetrics.create();
+	//	Monitor of the generations started by a thread
+	private static final ThreadLocal<GenerationMonitor> monitors = new ThreadLocal<GenerationMonitor>();
+	private GenerationMonitor monitor = monitors.get();
+	//===================================================================================
+	//===================================================================================
+	public ManifestFileSystemAccess(IProtectedRegionSupport support) {
+		super(support);
+		mode = getMode();
+	}
+	//===================================================================================
+	/**
+	 * @return the POGO_OUTPUT_MODE value in lower case (changed if not set)
+	 * @throws IllegalArgumentException if the value is not a known mode
+	 */
+	//===================================================================================
+	public static String getMode() {
+		String mode = StringUtils.getOption(MODE_OPTION);
+		if (mode==null)
+			return CHANGED;
+		mode = mode.toLowerCase();
+		if (!mode.equals(CHANGED) && !mode.equals(ALWAYS) && !mode.equals(CHECK))
+			throw new IllegalArgumentException(MODE_OPTION + "=" + mode +
+					": unknown mode (" + CHANGED + ", " + ALWAYS + " or " + CHECK + " expected)");
+		return mode;
+	}
+	//===================================================================================
+	/**
+	 * @return true if POGO_OUTPUT_MODE=check (files are not written)
+	 * @throws IllegalArgumentException if the value is not a known mode
+	 */
+	//===================================================================================
+	public static boolean isCheckMode() {
+		return CHECK.equals(getMode());
+	}
+	//===================================================================================
+	//===================================================================================
+	@Override
+	public void setOutputPath(String outputName, String path) {
+		super.setOutputPath(outputName, path);
+		manifests.put(outputName, new Manifest(new File(path, MANIFEST_FILE)));
+	}
+	//===================================================================================
+	//===================================================================================
+	@Override
+	public void generateFile(String fileName, CharSequence contents) {
+		//	Merge once (the super class merges, then calls the method below which merges again)
+		generateFile(fileName, DEFAULT_OUTPUT, contents);
+	}
+	//===================================================================================
+	//===================================================================================
+	@Override
+	public void generateFile(String fileName, String slot, CharSequence contents) {
+		if (monitor!=null && monitor.isCanceled())
+			throw new CancellationException("Generation canceled");
+		long t0 = System.nanoTime();
+		URI uri = getUri(fileName, slot);
+		String code = getSupport().mergeRegions(this, fileName, slot, contents).toString();
+		long t1 = System.nanoTime();
+		Manifest manifest = manifests.get((slot==null)? DEFAULT_OUTPUT : slot);
+		File file = new File(uri);
+
+		byte[] bytes = getFileBytes(code);
+		String hash = hash(bytes);
+		String status;
+		if (!mode.equals(ALWAYS) && file.exists() &&
+				hash.equals(manifest.getHash(fileName, file))) {
+			unchanged++;
+			status = "unchanged";
+		}
+		else
+		if (mode.equals(CHECK)) {
+			System.out.println(fileName + " would be written");
+			skipped++;
+			status = "skipped";
+		}
+		else {
+			TangoFileUtils.writeFile(uri, code);
+			manifest.put(fileName, hash, file);
+			writtenFiles.add(fileName);
+			status = "written";
+		}
+		if (metrics!=null)
+			metrics.addFile(fileName, code, bytes.length, t1-t0, System.nanoTime()-t1, status);
+		if (monitor!=null)
+			monitor.fileGenerated(fileName, status);
+	}
+	//===================================================================================
+	//===================================================================================
+	@Override
+	public void deleteFile(String fileName) {
+		deleteFile(fileName, DEFAULT_OUTPUT);
+	}
+	//===================================================================================
+	/**
+	 * Delete the file and its manifest entry (a removed output is not expected anymore)
+	 */
+	//===================================================================================
+	@Override
+	public void deleteFile(String fileName, String slot) {
+		if (mode.equals(CHECK)) {
+			System.out.println(fileName + " would be deleted");
+			return;
+		}
+		super.deleteFile(fileName, slot);
+		manifests.get((slot==null)? DEFAULT_OUTPUT : slot).remove(fileName);
+	}
+	//===================================================================================
+	/**
+	 * Set the monitor of the generations started by current thread.
+	 * @param monitor	the monitor, or null to remove it
+	 */
+	//===================================================================================
+	public static void setMonitor(GenerationMonitor monitor) {
+		if (monitor==null)
+			monitors.remove();
+		else
+			monitors.set(monitor);
+	}
+	//===================================================================================
+	/**
+	 * Save manifests (not in check mode) and print the report.
+	 * Must be called at end of generation.
+	 */
+	//===================================================================================
+	public void finish() {
+		//	In check mode, nothing is written (hashes computed from files are not kept)
+		if (!mode.equals(CHECK))
+			for (Manifest manifest : manifests.values())
+				manifest.save();
+		System.out.println("Generated files: " + writtenFiles.size() + " written, " +
+				unchanged + " unchanged, " + skipped + " skipped");
+		if (metrics!=null)
+			metrics.report(getPathes().get(DEFAULT_OUTPUT));
+	}
+	//===================================================================================
+	/**
+	 * @return the metrics of this generation, or null if no report is requested
+	 */
+	//===================================================================================
+	public GenerationMetrics getMetrics() {
+		return metrics;
+	}
+	//===================================================================================
+	/**
+	 * @return the relative names of the written files
+	 */
+	//===================================================================================
+	public List<String> getWrittenFiles() {
+		return writtenFiles;
+	}
+	//===================================================================================
+	//===================================================================================
+	public int getUnchangedCount() {
+		return unchanged;
+	}
+	//===================================================================================
+	//===================================================================================
+	public int getSkippedCount() {
+		return skipped;
+	}
+	//===================================================================================
+	/**
+	 * @param outputDir	a generation output directory
+	 * @return the relative names of files found in the manifest, or null if no manifest
+	 */
+	//===================================================================================
+	public static List<String> getManifestFiles(String outputDir) {
+		File file = new File(outputDir, MANIFEST_FILE);
+		if (!file.exists())
+			return null;
+		return new ArrayList<String>(new Manifest(file).entries.keySet());
+	}
+	//===================================================================================
+	/**
+	 * The hash of a file is the one of its generated content while the file matches
+	 * the manifest (even if changed by a post-processing, see updateManifest()),
+	 * otherwise it is computed from the file.
+	 * @param outputDir	a generation output directory
+	 * @return the hash of each file found in the manifest (null if removed),
+	 *			or null if no manifest
+	 */
+	//===================================================================================
+	public static Map<String, String> getManifestHashes(String outputDir) {
+		File file = new File(outputDir, MANIFEST_FILE);
+		if (!file.exists())
+			return null;
+		Manifest manifest = new Manifest(file);
+		Map<String, String> hashes = new TreeMap<String, String>();
+		for (String fileName : manifest.entries.keySet()) {
+			File generated = new File(outputDir, fileName);
+			hashes.put(fileName, (generated.exists())? manifest.getHash(fileName, generated) : null);
+		}
+		return hashes;
+	}
+	//===================================================================================
+	/**
+	 * Record that a generated file has been modified after generation (e.g. by a post-processing).
+	 * Its new size and date are kept with the hash of the generated content,
+	 * so it is not written again while the generated content does not change.
+	 * The caller must hold the directory lock (PogoGeneratorSession.getDirectoryLock())
+	 * while it rewrites the file and updates the manifest.
+	 * @param outputDir	a generation output directory
+	 * @param fileName	the file name relative to output directory, as generated
+	 * @param file		the modified file (could have been moved after generation)
+	 */
+	//===================================================================================
+	public static synchronized void updateManifest(String outputDir, String fileName, File file) {
+		Manifest manifest = new Manifest(new File(outputDir, MANIFEST_FILE));
+		String[] entry = manifest.entries.get(fileName);
+		if (entry==null || !file.exists())
+			return;
+		manifest.put(fileName, entry[0], file);
+		manifest.save();
+	}
+	//===================================================================================
+	/**
+	 * @return the bytes as written by TangoFileUtils.writeFile()
+	 */
+	//===================================================================================
+	private static byte[] getFileBytes(String code) {
+		String os = System.getProperty("os.name");
+		if (os.toLowerCase().startsWith("windows"))
+			code = TangoFileUtils.setWindowsFileFormat(code);
+		return code.getBytes(Charset.defaultCharset());
+	}
+	//===================================================================================
+	//===================================================================================
+	static String hash(byte[] bytes) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+			StringBuilder sb = new StringBuilder();
+			for (byte b : digest)
+				sb.append(String.format("%02x", b & 0xff));
+			return sb.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);	//	Always available
+		}
+	}
+	//===================================================================================
+	//===================================================================================
+
+
+
+	//===================================================================================
+	/**
+	 * The manifest of an output directory.
+	 * Each line is: relative path, hash, size, last modified date (tab separated)
+	 */
+	//===================================================================================
+	private static class Manifest {
+		private File file;
+		private Map<String, String[]> entries = new TreeMap<String, String[]>();
+		private boolean modified = false;
+		//===========================================================
+		private Manifest(File file) {
+			this.file = file;
+			if (file.exists()) {
+				try {
+					for (String line : Files.readAllLines(file.toPath(), Charset.defaultCharset())) {
+						String[] fields = line.split("\t");
+						if (!line.startsWith("#") && fields.length==4)
+							entries.put(fields[0], new String[] { fields[1], fields[2], fields[3] });
+					}
+				}
+				catch (IOException e) {
+					System.err.println("Cannot read " + file + ": " + e.getMessage());
+					entries.clear();
+				}
+			}
+		}
+		//===========================================================
+		private String getHash(String fileName, File generated) {
+			String[] entry = entries.get(fileName);
+			if (entry!=null &&
+					entry[1].equals(Long.toString(generated.length())) &&
+					entry[2].equals(Long.toString(generated.lastModified())))
+				return entry[0];
+
+			//	Unknown or modified since last generation: compute hash from file
+			try {
+				String hash = hash(Files.readAllBytes(generated.toPath()));
+				put(fileName, hash, generated);
+				return hash;
+			}
+			catch (IOException e) {
+				return null;
+			}
+		}
+		//===========================================================
+		private void put(String fileName, String hash, File generated) {
+			entries.put(fileName, new String[] {
+					hash, Long.toString(generated.length()), Long.toString(generated.lastModified()) });
+			modified = true;
+		}
+		//===========================================================
+		private void remove(String fileName) {
+			if (entries.remove(fileName)!=null)
+				modified = true;
+		}
+		//===========================================================
+		private void save() {
+			if (!modified || !file.getParentFile().exists())
+				return;
+			StringBuilder sb = new StringBuilder("# Generated by Pogo: file\thash\tsize\tdate\n");
+			for (Map.Entry<String, String[]> entry : entries.entrySet()) {
+				String[] fields = entry.getValue();
+				sb.append(entry.getKey()).append('\t').append(fields[0]).append('\t')
+					.append(fields[1]).append('\t').append(fields[2]).append('\n');
+			}
+			try {
+				Files.write(file.toPath(), sb.toString().getBytes(Charset.defaultCharset()));
+				modified = false;
+			}
+			catch (IOException e) {
+				System.err.println("Cannot write " + file + ": " + e.getMessage());
+			}
+		}
+		//===========================================================
+	}
+}
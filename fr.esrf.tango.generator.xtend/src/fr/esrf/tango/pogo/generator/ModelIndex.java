@@ -0,0 +1,335 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+
+import fr.esrf.tango.pogo.generator.common.StringUtils;
+import fr.esrf.tango.pogo.pogoDsl.Attribute;
+import fr.esrf.tango.pogo.pogoDsl.Command;
+import fr.esrf.tango.pogo.pogoDsl.InheritanceStatus;
+import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass;
+import fr.esrf.tango.pogo.pogoDsl.PogoMultiClasses;
+import fr.esrf.tango.pogo.pogoDsl.Property;
+
+/**
+ * An immutable index of a model resource, built once per generation
+ * (see ParallelGenerator) and shared by all generators:
+ * the classes and projects of the resource, and for each class
+ * its members split by inheritance status.
+ * The generators iterate on these lists instead of walking
+ * the resource and testing the status strings in each template.
+ *
+ * The index is attached to the resource as an adapter.
+ * It must be rebuilt (build()) if the model is modified.
+ */
+public class ModelIndex extends AdapterImpl {
+
+	private final List<PogoDeviceClass> deviceClasses;
+	private final List<PogoMultiClasses> multiClasses;
+	private final Map<PogoDeviceClass, ClassIndex> classes = new IdentityHashMap<PogoDeviceClass, ClassIndex>();
+	//===================================================================================
+	//===================================================================================
+	private ModelIndex(Resource resource) {
+		List<PogoDeviceClass> deviceClassList = new ArrayList<PogoDeviceClass>();
+		List<PogoMultiClasses> multiClassesList = new ArrayList<PogoMultiClasses>();
+		TreeIterator<EObject> iterator = resource.getAllContents();
+		while (iterator.hasNext()) {
+			EObject object = iterator.next();
+			if (object instanceof PogoDeviceClass) {
+				PogoDeviceClass cls = (PogoDeviceClass) object;
+				deviceClassList.add(cls);
+				classes.put(cls, new ClassIndex(cls));
+			}
+			else
+			if (object instanceof PogoMultiClasses)
+				multiClassesList.add((PogoMultiClasses) object);
+		}
+		deviceClasses = Collections.unmodifiableList(deviceClassList);
+		multiClasses  = Collections.unmodifiableList(multiClassesList);
+	}
+	//===================================================================================
+	/**
+	 * Build the index of a resource and attach it (replacing a previous one).
+	 * @param resource	the model resource
+	 * @return the new index
+	 */
+	//===================================================================================
+	public static ModelIndex build(Resource resource) {
+		ModelIndex index = new ModelIndex(resource);
+		synchronized (ModelIndex.class) {
+			resource.eAdapters().remove(find(resource));
+			resource.eAdapters().add(index);
+		}
+		return index;
+	}
+	//===================================================================================
+	/**
+	 * @param resource	the model resource
+	 * @return the index attached to the resource, built if not already done
+	 */
+	//===================================================================================
+	public static ModelIndex of(Resource resource) {
+		synchronized (ModelIndex.class) {
+			ModelIndex index = find(resource);
+			if (index!=null)
+				return index;
+		}
+		return build(resource);
+	}
+	//===================================================================================
+	//===================================================================================
+	private static ModelIndex find(Resource resource) {
+		for (Object adapter : resource.eAdapters())
+			if (adapter instanceof ModelIndex)
+				return (ModelIndex) adapter;
+		return null;
+	}
+	//===================================================================================
+	/**
+	 * @param cls	a class of an indexed resource (or a class without resource)
+	 * @return the index of specified class
+	 */
+	//===================================================================================
+	public static ClassIndex of(PogoDeviceClass cls) {
+		Resource resource = cls.eResource();
+		if (resource!=null) {
+			ClassIndex index = of(resource).classes.get(cls);
+			if (index!=null)
+				return index;
+		}
+		//	Not in the indexed resource (built later or detached)
+		return new ClassIndex(cls);
+	}
+	//===================================================================================
+	//===================================================================================
+	@Override
+	public boolean isAdapterForType(Object type) {
+		return type==ModelIndex.class;
+	}
+	//===================================================================================
+	//===================================================================================
+	@Override
+	public void setTarget(Notifier newTarget) {
+		//	Not bound to a single target
+	}
+	//===================================================================================
+	/**
+	 * @return the device classes of the resource, in model order
+	 */
+	//===================================================================================
+	public List<PogoDeviceClass> getDeviceClasses() {
+		return deviceClasses;
+	}
+	//===================================================================================
+	/**
+	 * @return the multi classes projects of the resource, in model order
+	 */
+	//===================================================================================
+	public List<PogoMultiClasses> getMultiClasses() {
+		return multiClasses;
+	}
+	//===================================================================================
+	//	Shortcuts to be used as extensions in templates
+	//===================================================================================
+	public static List<Attribute> concreteAttributes(PogoDeviceClass cls) {
+		return of(cls).concreteAttributes;
+	}
+	//===================================================================================
+	public static List<Attribute> declaredAttributes(PogoDeviceClass cls) {
+		return of(cls).declaredAttributes;
+	}
+	//===================================================================================
+	public static List<Command> concreteCommands(PogoDeviceClass cls) {
+		return of(cls).concreteCommands;
+	}
+	//===================================================================================
+	public static List<Command> declaredCommands(PogoDeviceClass cls) {
+		return of(cls).declaredCommands;
+	}
+	//===================================================================================
+	public static List<Command> inheritedCommands(PogoDeviceClass cls) {
+		return of(cls).inheritedCommands;
+	}
+	//===================================================================================
+	public static List<Command> concreteDynamicCommands(PogoDeviceClass cls) {
+		return of(cls).concreteDynamicCommands;
+	}
+	//===================================================================================
+	public static List<Property> concreteClassProperties(PogoDeviceClass cls) {
+		return of(cls).concreteClassProperties;
+	}
+	//===================================================================================
+	public static List<Property> concreteDeviceProperties(PogoDeviceClass cls) {
+		return of(cls).concreteDeviceProperties;
+	}
+	//===================================================================================
+	//===================================================================================
+
+
+
+	//===================================================================================
+	/**
+	 * The members of a class, split once by status.
+	 * All lists keep the model order.
+	 */
+	//===================================================================================
+	public static class ClassIndex {
+		//	Attributes and commands implemented in this class (concreteHere)
+		private final List<Attribute> concreteAttributes;
+		private final List<Command> concreteCommands;
+		//	Attributes not already overloaded by an ancestor (to be declared)
+		private final List<Attribute> declaredAttributes;
+		//	Commands abstract or concrete here (to be declared)
+		private final List<Command> declaredCommands;
+		//	Commands concrete here and inherited (created if not already by an ancestor)
+		private final List<Command> inheritedCommands;
+		//	Dynamic commands implemented in this class.
+		//	(Dynamic attributes are not filtered by status, they use the model list)
+		private final List<Command> concreteDynamicCommands;
+		private final List<Property> concreteClassProperties;
+		private final List<Property> concreteDeviceProperties;
+		//===========================================================
+		private ClassIndex(PogoDeviceClass cls) {
+			List<Attribute> concreteAttributeList = new ArrayList<Attribute>();
+			List<Attribute> declaredAttributeList = new ArrayList<Attribute>();
+			for (Attribute attribute : cls.getAttributes()) {
+				InheritanceStatus status = attribute.getStatus();
+				if (isConcreteHere(status))
+					concreteAttributeList.add(attribute);
+				if (!isAlreadyOverloaded(status))
+					declaredAttributeList.add(attribute);
+			}
+			List<Command> concreteCommandList = new ArrayList<Command>();
+			List<Command> declaredCommandList = new ArrayList<Command>();
+			List<Command> inheritedCommandList = new ArrayList<Command>();
+			for (Command command : cls.getCommands()) {
+				InheritanceStatus status = command.getStatus();
+				boolean concreteHere = isConcreteHere(status);
+				if (concreteHere)
+					concreteCommandList.add(command);
+				if (concreteHere || isAbstract(status))
+					declaredCommandList.add(command);
+				if (concreteHere && isInherited(status))
+					inheritedCommandList.add(command);
+			}
+			List<Command> concreteDynamicCommandList = new ArrayList<Command>();
+			for (Command command : cls.getDynamicCommands())
+				if (isConcreteHere(command.getStatus()))
+					concreteDynamicCommandList.add(command);
+			concreteAttributes = Collections.unmodifiableList(concreteAttributeList);
+			declaredAttributes = Collections.unmodifiableList(declaredAttributeList);
+			concreteCommands   = Collections.unmodifiableList(concreteCommandList);
+			declaredCommands   = Collections.unmodifiableList(declaredCommandList);
+			inheritedCommands  = Collections.unmodifiableList(inheritedCommandList);
+			concreteDynamicCommands = Collections.unmodifiableList(concreteDynamicCommandList);
+			concreteClassProperties  = concreteProperties(cls.getClassProperties());
+			concreteDeviceProperties = concreteProperties(cls.getDeviceProperties());
+		}
+		//===========================================================
+		private static List<Property> concreteProperties(List<Property> properties) {
+			List<Property> list = new ArrayList<Property>();
+			for (Property property : properties)
+				if (isConcreteHere(property.getStatus()))
+					list.add(property);
+			return Collections.unmodifiableList(list);
+		}
+		//===========================================================
+		private static boolean isConcreteHere(InheritanceStatus status) {
+			return status!=null && StringUtils.isTrue(status.getConcreteHere());
+		}
+		//===========================================================
+		private static boolean isInherited(InheritanceStatus status) {
+			return status!=null && StringUtils.isTrue(status.getInherited());
+		}
+		//===========================================================
+		private static boolean isAbstract(InheritanceStatus status) {
+			return status!=null &&
+					StringUtils.isTrue(status.getAbstract()) &&
+					!StringUtils.isTrue(status.getInherited()) &&
+					!StringUtils.isTrue(status.getConcreteHere());
+		}
+		//===========================================================
+		private static boolean isAlreadyOverloaded(InheritanceStatus status) {
+			return status!=null &&
+					StringUtils.isTrue(status.getConcrete()) &&
+					!StringUtils.isTrue(status.getConcreteHere());
+		}
+		//===========================================================
+		public List<Attribute> getConcreteAttributes() {
+			return concreteAttributes;
+		}
+		//===========================================================
+		public List<Attribute> getDeclaredAttributes() {
+			return declaredAttributes;
+		}
+		//===========================================================
+		public List<Command> getConcreteCommands() {
+			return concreteCommands;
+		}
+		//===========================================================
+		public List<Command> getDeclaredCommands() {
+			return declaredCommands;
+		}
+		//===========================================================
+		public List<Command> getInheritedCommands() {
+			return inheritedCommands;
+		}
+		//===========================================================
+		public List<Command> getConcreteDynamicCommands() {
+			return concreteDynamicCommands;
+		}
+		//===========================================================
+		public List<Property> getConcreteClassProperties() {
+			return concreteClassProperties;
+		}
+		//===========================================================
+		public List<Property> getConcreteDeviceProperties() {
+			return concreteDeviceProperties;
+		}
+		//===========================================================
+	}
+}
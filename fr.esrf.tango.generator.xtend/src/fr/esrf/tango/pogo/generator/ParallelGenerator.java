@@ -0,0 +1,260 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.xtext.generator.IFileSystemAccess;
+import org.eclipse.xtext.generator.IGenerator;
+
+import fr.esrf.tango.pogo.generator.common.StringUtils;
+
+/**
+ * Run the language generators (C++, Java, Python,...) on the same resource.
+ * They write disjoint files, so they can be run concurrently.
+ * Each generator writes in its own buffer and buffers are flushed
+ * to the real file system access in the generator order,
+ * from the calling thread. Then the generated files and the order
+ * they are written are the same as a sequential generation.
+ *
+ * Options (environment or system property):
+ *	POGO_PARALLEL_GENERATION=false	to fall back to sequential generation.
+ *	POGO_GENERATOR_THREADS=n		to set the thread pool size
+ *									(default is number of processors, 1 means sequential)
+ */
+public class ParallelGenerator {
+
+	public static final String PARALLEL_OPTION = "POGO_PARALLEL_GENERATION";
+	public static final String THREADS_OPTION  = "POGO_GENERATOR_THREADS";
+
+	private static ExecutorService executor = null;
+	private static int poolSize = -1;
+	//===================================================================================
+	//===================================================================================
+	private ParallelGenerator() {
+	}
+	//===================================================================================
+	/**
+	 * @return the number of threads used to generate (1 if sequential)
+	 */
+	//===================================================================================
+	public static synchronized int getPoolSize() {
+		if (poolSize<0) {
+			if ("false".equals(StringUtils.getOption(PARALLEL_OPTION)))
+				poolSize = 1;
+			else
+				poolSize = StringUtils.getIntegerOption(THREADS_OPTION,
+						Runtime.getRuntime().availableProcessors());
+			if (poolSize<1)
+				poolSize = 1;
+		}
+		return poolSize;
+	}
+	//===================================================================================
+	//===================================================================================
+	private static synchronized ExecutorService getExecutor() {
+		if (executor==null) {
+			executor = Executors.newFixedThreadPool(getPoolSize(), new ThreadFactory() {
+				private final AtomicInteger counter = new AtomicInteger();
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "PogoGenerator-" + counter.incrementAndGet());
+					thread.setDaemon(true);	//	Do not prevent JVM exit
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+	//===================================================================================
+	/**
+	 * Run the specified generators on resource.
+	 * @param resource		the model resource
+	 * @param fsa			the file system access used to write files
+	 * @param generators	the generators, in the order files must be written
+	 */
+	//===================================================================================
+	public static void generate(final Resource resource, IFileSystemAccess fsa, IGenerator... generators) {
+		final GenerationMetrics metrics = GenerationMetrics.of(fsa);
+		//	Model traversed once for all generators (see ModelIndex)
+		ModelIndex.build(resource);
+		if (getPoolSize()==1 || generators.length<2) {
+			for (IGenerator generator : generators)
+				run(generator, resource, fsa, metrics);
+			return;
+		}
+
+		//	EMF lazily creates lists and resolves proxies on first access,
+		//	do it now from this thread to be read only during generation.
+		prepareForConcurrentReads(resource);
+
+		List<Future<BufferedFileSystemAccess>> futures = new ArrayList<Future<BufferedFileSystemAccess>>();
+		for (final IGenerator generator : generators) {
+			futures.add(getExecutor().submit(new Callable<BufferedFileSystemAccess>() {
+				public BufferedFileSystemAccess call() {
+					BufferedFileSystemAccess buffer = new BufferedFileSystemAccess();
+					run(generator, resource, buffer, metrics);
+					return buffer;
+				}
+			}));
+		}
+
+		//	Flush in generator order. On failure, files of previous generators
+		//	are written (as in sequential mode) and the exception is re-thrown
+		try {
+			for (Future<BufferedFileSystemAccess> future : futures)
+				future.get().flush(fsa);
+		}
+		catch (ExecutionException e) {
+			cancel(futures);
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new RuntimeException(cause);
+		}
+		catch (InterruptedException e) {
+			cancel(futures);
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Generation interrupted", e);
+		}
+	}
+	//===================================================================================
+	/**
+	 * Run a generator, recording its time and the template time of each file if metrics required.
+	 */
+	//===================================================================================
+	private static void run(IGenerator generator, Resource resource, IFileSystemAccess fsa, GenerationMetrics metrics) {
+		if (metrics==null) {
+			generator.doGenerate(resource, fsa);
+			return;
+		}
+		String name = generator.getClass().getSimpleName();
+		long t0 = System.nanoTime();
+		generator.doGenerate(resource, metrics.instrument(fsa, name));
+		metrics.addGenerator(name, System.nanoTime()-t0);
+	}
+	//===================================================================================
+	//===================================================================================
+	private static void cancel(List<Future<BufferedFileSystemAccess>> futures) {
+		for (Future<BufferedFileSystemAccess> future : futures)
+			future.cancel(true);
+	}
+	//===================================================================================
+	/**
+	 * Resolve proxies and initialize all lazy features of the model
+	 */
+	//===================================================================================
+	private static void prepareForConcurrentReads(Resource resource) {
+		EcoreUtil.resolveAll(resource);
+		TreeIterator<EObject> iterator = resource.getAllContents();
+		while (iterator.hasNext())
+			initializeFeatures(iterator.next());
+	}
+	//===================================================================================
+	/**
+	 * Resolve proxies and initialize all lazy features of an object and its contents,
+	 * then it could be read (or copied) by several threads without lock.
+	 * @param root	the object (e.g. a model shared by a repository)
+	 */
+	//===================================================================================
+	public static void prepareForConcurrentReads(EObject root) {
+		EcoreUtil.resolveAll(root);
+		initializeFeatures(root);
+		TreeIterator<EObject> iterator = root.eAllContents();
+		while (iterator.hasNext())
+			initializeFeatures(iterator.next());
+	}
+	//===================================================================================
+	//===================================================================================
+	private static void initializeFeatures(EObject object) {
+		for (EStructuralFeature feature : object.eClass().getEAllStructuralFeatures())
+			object.eGet(feature);
+	}
+	//===================================================================================
+	//===================================================================================
+
+
+
+	//===================================================================================
+	/**
+	 * A file system access recording the requests to be replayed later.
+	 */
+	//===================================================================================
+	private static class BufferedFileSystemAccess implements IFileSystemAccess {
+		//	{ file name, output configuration (null if not specified), contents (null to delete) }
+		private List<String[]> requests = new ArrayList<String[]>();
+		//===========================================================
+		public void generateFile(String fileName, CharSequence contents) {
+			requests.add(new String[] { fileName, null, contents.toString() });
+		}
+		//===========================================================
+		public void generateFile(String fileName, String outputConfigurationName, CharSequence contents) {
+			requests.add(new String[] { fileName, outputConfigurationName, contents.toString() });
+		}
+		//===========================================================
+		public void deleteFile(String fileName) {
+			requests.add(new String[] { fileName, null, null });
+		}
+		//===========================================================
+		private void flush(IFileSystemAccess fsa) {
+			//	Replay with the same method, protected regions are merged there
+			for (String[] request : requests) {
+				if (request[2]==null)
+					fsa.deleteFile(request[0]);
+				else
+				if (request[1]==null)
+					fsa.generateFile(request[0], request[2]);
+				else
+					fsa.generateFile(request[0], request[1], request[2]);
+			}
+		}
+		//===========================================================
+	}
+}
@@ -22,10 +22,13 @@ class PogoDslGenerator implements IGenerator {
 	@Inject HtmlGenerator htmlGenerator
 
 	override void doGenerate(Resource resource, IFileSystemAccess fsa) {
-		cppDeviceGenerator.doGenerate(resource,fsa)
-		javaDeviceGenerator.doGenerate(resource,fsa)
-		pythonDevice.doGenerate(resource,fsa)
-		pythonDeviceHL.doGenerate(resource,fsa)
-		htmlGenerator.doGenerate(resource,fsa)
+		//	Generators write disjoint files and could be run concurrently
+		//	(see ParallelGenerator for options)
+		ParallelGenerator.generate(resource, fsa,
+			cppDeviceGenerator,
+			javaDeviceGenerator,
+			pythonDevice,
+			pythonDeviceHL,
+			htmlGenerator)
 	}
 }
@@ -47,8 +47,9 @@ import org.eclipse.xtext.generator.IFileSystemAccess;
 import org.eclipse.xtext.generator.IGenerator;
 import org.eclipse.xtext.generator.JavaIoFileSystemAccess;
 
+import net.danieldietrich.protectedregions.xtext.BidiJavaIoFileSystemAccess;
+
 import com.google.common.collect.Maps;
-import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 
@@ -62,7 +63,8 @@ public class PogoDslGeneratorComponent extends AbstractWorkflowComponent2 {
 	private IGenerator generator;
 	
 	public PogoDslGeneratorComponent () {
-		injector = Guice.createInjector(new PogoGeneratorModule());
+		//	Injector is built once and shared by all workflow runs
+		injector = PogoGeneratorSession.getInstance().getInjector();
 		injector.injectMembers(this);
 	}
 	
@@ -84,7 +86,10 @@ public class PogoDslGeneratorComponent extends AbstractWorkflowComponent2 {
 		}
 		PogoSystem system = (PogoSystem) slotContent;
 		
-		generator.doGenerate(system.eResource(), getConfiguredFileSystemAccess());
+		IFileSystemAccess fsa = getConfiguredFileSystemAccess();
+		generator.doGenerate(system.eResource(), fsa);
+		if (fsa instanceof ManifestFileSystemAccess)
+			((ManifestFileSystemAccess) fsa).finish();
 		// system.eResource()
 	}
 	
@@ -103,6 +108,11 @@ public class PogoDslGeneratorComponent extends AbstractWorkflowComponent2 {
 	
 	protected IFileSystemAccess getConfiguredFileSystemAccess() {
 		final JavaIoFileSystemAccess configuredFileSystemAccess = injector.getInstance(JavaIoFileSystemAccess.class);
+		//	MWE2 workflows receive the generation context in system properties
+		GenerationContext context = GenerationContext.fromSystemProperties();
+		if (context!=null && configuredFileSystemAccess instanceof BidiJavaIoFileSystemAccess)
+			((BidiJavaIoFileSystemAccess) configuredFileSystemAccess).setFilter(
+					PogoGeneratorModule.createPathFilter(context));
 		for (Entry<String, String> outs : outlets.entrySet()) {
 			configuredFileSystemAccess.setOutputPath(outs.getKey(), outs.getValue());
 		}
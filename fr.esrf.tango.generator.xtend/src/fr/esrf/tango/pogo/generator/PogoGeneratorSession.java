@@ -0,0 +1,221 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.danieldietrich.protectedregions.xtext.BidiJavaIoFileSystemAccess;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.xtext.generator.IGenerator;
+import org.eclipse.xtext.generator.JavaIoFileSystemAccess;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import fr.esrf.tango.pogo.generator.common.StringUtils;
+import fr.esrf.tango.pogo.generator.cpp.projects.MakefileUtils;
+import fr.esrf.tango.pogo.generator.html.HtmlUtils;
+import fr.esrf.tango.pogo.generator.java.JavaUtils;
+import fr.esrf.tango.pogo.pogoDsl.PogoDslPackage;
+
+/**
+ * A long-lived generator runtime.
+ * The EMF registration and the Guice injector (with protected region parsers)
+ * are built once, at first use, and reused by all generations of the JVM.
+ * It does the same thing as the PogoDslGeneratorMWE workflow,
+ * without building a MWE2 injector and parsing the workflow at each call.
+ */
+public class PogoGeneratorSession {
+
+	//	Options (environment or system property) changing the generated files:
+	//	the names are defined next to the code reading them.
+	//	INSTITUTE is read by Pogo to set the copyright before generation.
+	private static final String[] OUTPUT_OPTIONS = {
+		"INSTITUTE",
+		ManifestFileSystemAccess.MODE_OPTION,
+		HtmlUtils.CLASSES2WWW_OPTION,
+		StringUtils.INCLUDE_OPTION,
+		JavaUtils.USER_OPTION,
+		MakefileUtils.DEBUG_MAKE_OPTION,
+	};
+	private static PogoGeneratorSession instance = null;
+	private final Injector injector;
+	private static final Map<String, Object> directoryLocks = new HashMap<String, Object>();
+	//===================================================================================
+	//===================================================================================
+	private PogoGeneratorSession() {
+		long t0 = System.currentTimeMillis();
+		//	Same registrations as StandaloneSetup in workflow
+		EPackage.Registry.INSTANCE.put(PogoDslPackage.eNS_URI, PogoDslPackage.eINSTANCE);
+		Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap().put("*", new PogoXmiResourceFactory());
+		injector = Guice.createInjector(new PogoGeneratorModule());
+		long t1 = System.currentTimeMillis();
+		System.out.println("Generator session started in " + (t1-t0) + " ms");
+	}
+	//===================================================================================
+	//===================================================================================
+	public static synchronized PogoGeneratorSession getInstance() {
+		if (instance==null)
+			instance = new PogoGeneratorSession();
+		return instance;
+	}
+	//===================================================================================
+	/**
+	 * @return the injector built by PogoGeneratorModule
+	 */
+	//===================================================================================
+	public Injector getInjector() {
+		return injector;
+	}
+	//===================================================================================
+	/**
+	 * @return an identifier of the generator build (location, size and date of its jar file)
+	 */
+	//===================================================================================
+	public static String getBuildId() {
+		try {
+			File location = new File(PogoGeneratorSession.class.getProtectionDomain()
+					.getCodeSource().getLocation().toURI());
+			return location.getName() + ":" + location.length() + ":" + location.lastModified();
+		}
+		catch (Exception e) {
+			return "unknown";
+		}
+	}
+	//===================================================================================
+	/**
+	 * @return the names of the options changing the generated files
+	 */
+	//===================================================================================
+	public static String[] getOutputOptionNames() {
+		return OUTPUT_OPTIONS.clone();
+	}
+	//===================================================================================
+	/**
+	 * @return the options changing the generated files which are set
+	 *			in this process, sorted by name
+	 */
+	//===================================================================================
+	public static Map<String, String> getOutputOptions() {
+		Map<String, String> options = new TreeMap<String, String>();
+		for (String name : OUTPUT_OPTIONS) {
+			String value = StringUtils.getOption(name);
+			if (value!=null)
+				options.put(name, value);
+		}
+		return options;
+	}
+	//===================================================================================
+	/**
+	 * Load the model and generate the files.
+	 * @param modelPath	the xmi file
+	 * @param targetDir	the directory where files will be generated
+	 */
+	//===================================================================================
+	public void generate(String modelPath, String targetDir) {
+		generate(modelPath, targetDir, null);
+	}
+	//===================================================================================
+	/**
+	 * Load the model and generate the files.
+	 * Generations in different directories could run concurrently,
+	 * generations in the same directory are serialized (manifest and protected regions).
+	 * @param modelPath	the xmi file
+	 * @param context	the generation parameters (target directory, class name,...)
+	 */
+	//===================================================================================
+	public void generate(String modelPath, GenerationContext context) {
+		generate(modelPath, context.getTargetDir(), context);
+	}
+	//===================================================================================
+	//===================================================================================
+	private void generate(String modelPath, String targetDir, GenerationContext context) {
+		long t0 = System.currentTimeMillis();
+		ResourceSet resourceSet = new ResourceSetImpl();
+		URI uri = URI.createFileURI(new File(modelPath).getAbsolutePath());
+		Resource resource = resourceSet.getResource(uri, true);
+		if (resource.getContents().isEmpty())
+			throw new IllegalStateException(modelPath + " has no model");
+
+		synchronized (getDirectoryLock(targetDir)) {
+			//	A new file system access for each generation (protected regions read from targetDir)
+			JavaIoFileSystemAccess fsa = injector.getInstance(JavaIoFileSystemAccess.class);
+			if (context!=null && fsa instanceof BidiJavaIoFileSystemAccess)
+				((BidiJavaIoFileSystemAccess) fsa).setFilter(PogoGeneratorModule.createPathFilter(context));
+			fsa.setOutputPath(targetDir);
+			injector.getInstance(IGenerator.class).doGenerate(resource, fsa);
+			if (fsa instanceof ManifestFileSystemAccess)
+				((ManifestFileSystemAccess) fsa).finish();
+		}
+		long t1 = System.currentTimeMillis();
+		System.out.println("generation time : " + (t1-t0) + " ms");
+	}
+	//===================================================================================
+	/**
+	 * @return the object used to serialize generations in specified directory.
+	 *			It must be held too to rewrite generated files after the generation
+	 *			(e.g. PDF link added in the documentation).
+	 */
+	//===================================================================================
+	public static Object getDirectoryLock(String targetDir) {
+		String key;
+		try {
+			key = new File(targetDir).getCanonicalPath();
+		}
+		catch (IOException e) {
+			key = new File(targetDir).getAbsolutePath();
+		}
+		synchronized (directoryLocks) {
+			Object lock = directoryLocks.get(key);
+			if (lock==null) {
+				lock = new Object();
+				directoryLocks.put(key, lock);
+			}
+			return lock;
+		}
+	}
+	//===================================================================================
+	//===================================================================================
+}
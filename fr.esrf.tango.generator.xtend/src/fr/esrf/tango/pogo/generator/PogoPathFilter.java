@@ -0,0 +1,208 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import net.danieldietrich.protectedregions.support.IPathFilter;
+
+import fr.esrf.tango.pogo.generator.common.StringUtils;
+
+/**
+ * Accept only the files generated for a class (protected regions are read only in these files).
+ * The generated file list is compiled once: exact paths in a hash set,
+ * and patterns (e.g. org/tango/myclass/*.java) in regular expressions,
+ * where '*' and '?' do not match a directory separator.
+ * Then the cost of accept() does not depend on the number of files found in target directory.
+ */
+public class PogoPathFilter implements IPathFilter {
+
+	private final Set<String> exactPaths = new HashSet<String>();
+	private final List<Pattern> patterns = new ArrayList<Pattern>();
+	private final boolean isWindows;
+	//===================================================================================
+	/**
+	 * @param context	the generation context (target directory, class name, language,...)
+	 */
+	//===================================================================================
+	public PogoPathFilter(GenerationContext context) {
+		this(getGeneratedFiles(context));
+	}
+	//===================================================================================
+	/**
+	 * @param generatedFiles	the generated file absolute paths ('/' separated, without disk unit),
+	 * 							could contain '*' and '?' wildcards.
+	 */
+	//===================================================================================
+	public PogoPathFilter(Collection<String> generatedFiles) {
+		isWindows = isWindows();
+		for (String generatedFile : generatedFiles) {
+			if (generatedFile.contains("*") || generatedFile.contains("?"))
+				patterns.add(compileGlob(generatedFile));
+			else
+				exactPaths.add(generatedFile);
+		}
+	}
+	//===================================================================================
+	//===================================================================================
+	public boolean accept(URI uri) {
+		String fileName = uri.getPath();
+
+		//	remove "X:" (disk unit for Windows)
+		if (isWindows) {
+			int	p = fileName.indexOf(':');
+			if (p>0)
+				fileName = fileName.substring(p+1);
+		}
+		if (exactPaths.contains(fileName))
+			return true;
+		for (Pattern pattern : patterns)
+			if (pattern.matcher(fileName).matches())
+				return true;
+		return false;
+	}
+	//===================================================================================
+	/**
+	 * @return a regular expression for glob, '*' and '?' do not match '/'
+	 */
+	//===================================================================================
+	private static Pattern compileGlob(String glob) {
+		StringBuilder regex = new StringBuilder();
+		int start = 0;
+		for (int i=0 ; i<glob.length() ; i++) {
+			char c = glob.charAt(i);
+			if (c=='*' || c=='?') {
+				if (i>start)
+					regex.append(Pattern.quote(glob.substring(start, i)));
+				regex.append((c=='*')? "[^/]*" : "[^/]");
+				start = i+1;
+			}
+		}
+		if (start<glob.length())
+			regex.append(Pattern.quote(glob.substring(start)));
+		return Pattern.compile(regex.toString());
+	}
+	//===================================================================================
+	//===================================================================================
+	private static boolean isWindows() {
+		String os = System.getProperty("os.name");
+		return os.toLowerCase().startsWith("windows");
+	}
+	//===================================================================================
+	/**
+	 * Build the list of generated files.
+	 */
+	//===================================================================================
+	private static List<String> getGeneratedFiles(GenerationContext context) {
+		String	targetDir = context.getTargetDir();
+		String	className = context.getClassName();
+		String	language  = context.getTargetLanguage().toLowerCase();
+
+		if (isWindows()) {
+			//	Replace '\' by '/' if any in targetDir, and remove disk unit
+			targetDir = targetDir.replace('\\', '/');
+			int	p = targetDir.indexOf(':');
+			if (p>0)
+				targetDir = targetDir.substring(p+1);
+		}
+		StringUtils.printTrace(targetDir + "/" + className + " : " + language);
+
+		List<String> generatedFiles = new ArrayList<String>();
+		if (language.equals("multicpp"))
+			fillGeneratedFilesListForMultiClasesCpp(generatedFiles, targetDir);
+		else
+		if (language.equals("cpp"))
+			fillGeneratedFilesListForCpp(generatedFiles, targetDir, className);
+		else
+		if (language.equals("java"))
+			fillGeneratedFilesListForJava(generatedFiles, targetDir, className);
+		else
+		if (language.equals("python"))
+			fillGeneratedFilesListForPython(generatedFiles, targetDir, className);
+		else
+		if (language.equals("pythonhl"))
+			fillGeneratedFilesListForPythonHL(generatedFiles, targetDir, className, context.isPythonPackage());
+
+		//	Add html file for all languages
+		generatedFiles.add(targetDir+"/doc_html/ClassDescription.html");
+		return generatedFiles;
+	}
+	//===================================================================================
+	private static void fillGeneratedFilesListForMultiClasesCpp(List<String> generatedFiles, String targetDir) {
+		generatedFiles.add(targetDir+"/MultiClassesFactory.cpp");
+		generatedFiles.add(targetDir+"/Makefile.multi");
+	}
+	//===================================================================================
+	private static void fillGeneratedFilesListForCpp(List<String> generatedFiles, String targetDir, String className) {
+		generatedFiles.add(targetDir+"/"+className + ".h");
+		generatedFiles.add(targetDir+"/"+className + ".cpp");
+		generatedFiles.add(targetDir+"/"+className + "Class.h");
+		generatedFiles.add(targetDir+"/"+className + "Class.cpp");
+		generatedFiles.add(targetDir+"/"+className + "StateMachine.cpp");
+		generatedFiles.add(targetDir+"/"+className + "DynAttrUtils.cpp");
+		generatedFiles.add(targetDir+"/ClassFactory.cpp");
+		generatedFiles.add(targetDir+"/main.cpp");
+		generatedFiles.add(targetDir+"/Makefile");
+		generatedFiles.add(targetDir+"/CMakeLists.txt");
+	}
+	//===================================================================================
+	private static void fillGeneratedFilesListForJava(List<String> generatedFiles, String targetDir, String className) {
+		generatedFiles.add(targetDir+"/org/tango/" + className.toLowerCase() + "/*.java");
+		generatedFiles.add(targetDir+"/Makefile");
+	}
+	//===================================================================================
+	private static void fillGeneratedFilesListForPython(List<String> generatedFiles, String targetDir, String className) {
+		generatedFiles.add(targetDir+"/"+className + ".py");
+	}
+	//===================================================================================
+	private static void fillGeneratedFilesListForPythonHL(List<String> generatedFiles,
+			String targetDir, String className, boolean pythonPackage) {
+		if (pythonPackage) {
+			generatedFiles.add(targetDir+"/test/" + className + "_test.py");
+			generatedFiles.add(targetDir+"/"+className + "/" + className + ".py");
+		}
+		else {
+			generatedFiles.add(targetDir+"/"+className + ".py");
+		}
+	}
+	//===================================================================================
+}
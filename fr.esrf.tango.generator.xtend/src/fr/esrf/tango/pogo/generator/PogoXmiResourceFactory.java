@@ -0,0 +1,130 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.xmi.XMLHelper;
+import org.eclipse.emf.ecore.xmi.XMLLoad;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.SAXXMIHandler;
+import org.eclipse.emf.ecore.xmi.impl.XMILoadImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * XMI resource factory reading xmi files written by older Pogo releases.
+ * The keys removed or renamed in PogoDsl are fixed while parsing:
+ * obsolete attributes are ignored and renamed elements are mapped
+ * to their new feature. The xmi file itself is never rewritten,
+ * it will be written with the new keys at next save.
+ */
+public class PogoXmiResourceFactory extends XMIResourceFactoryImpl {
+
+	//	Attributes no longer in model
+	private static final Set<String> ignoredAttributes =
+			new HashSet<String>(Collections.singletonList("htmlInheritance"));
+	//	Old element name -> new feature name
+	private static final Map<String, String> renamedElements = new HashMap<String, String>();
+	static {
+		renamedElements.put("inheritance", "inheritances");
+	}
+	//===================================================================================
+	//===================================================================================
+	@Override
+	public Resource createResource(URI uri) {
+		return new PogoXmiResource(uri);
+	}
+	//===================================================================================
+	//===================================================================================
+
+
+
+	//===================================================================================
+	//===================================================================================
+	private static class PogoXmiResource extends XMIResourceImpl {
+		//===========================================================
+		private PogoXmiResource(URI uri) {
+			super(uri);
+		}
+		//===========================================================
+		@Override
+		protected XMLLoad createXMLLoad() {
+			return new XMILoadImpl(createXMLHelper()) {
+				@Override
+				protected DefaultHandler makeDefaultHandler() {
+					return new CompatibilityHandler(resource, helper, options);
+				}
+			};
+		}
+		//===========================================================
+	}
+	//===================================================================================
+	/**
+	 * SAX handler applying the compatibility fixes on the fly.
+	 */
+	//===================================================================================
+	private static class CompatibilityHandler extends SAXXMIHandler {
+		//===========================================================
+		private CompatibilityHandler(XMLResource resource, XMLHelper helper, Map<?, ?> options) {
+			super(resource, helper, options);
+		}
+		//===========================================================
+		@Override
+		protected void setAttribValue(EObject object, String name, String value) {
+			if (!ignoredAttributes.contains(name))
+				super.setAttribValue(object, name, value);
+		}
+		//===========================================================
+		@Override
+		protected EStructuralFeature getFeature(EObject object, String prefix, String name, boolean isElement) {
+			EStructuralFeature feature = super.getFeature(object, prefix, name, isElement);
+			if (feature==null && isElement && renamedElements.containsKey(name))
+				feature = super.getFeature(object, prefix, renamedElements.get(name), isElement);
+			return feature;
+		}
+		//===========================================================
+	}
+}
@@ -48,6 +48,8 @@ import fr.esrf.tango.pogo.pogoDsl.State;
 
 
 public class StringUtils {
+	//	Environment read by getIncludePath()
+	public static final String INCLUDE_OPTION = "TANGO_INCLUDE";
 
 	//===========================================================
 	/*
@@ -90,6 +92,27 @@ public class StringUtils {
 			System.out.println(s);
 	}
 	//===========================================================
+	/**
+	 * Returns the value of a generator option, read from
+	 * environment first, then from java system properties.
+	 */
+	//===========================================================
+	public static String getOption(String key) {
+		String value = System.getenv(key);
+		if (value==null)
+			value = System.getProperty(key);
+		return value;
+	}
+	//===========================================================
+	/**
+	 * Returns a generator option as integer or default value
+	 */
+	//===========================================================
+	public static int getIntegerOption(String key, int defaultValue) {
+		int value = getIntegerValue(getOption(key));
+		return (value<0)? defaultValue : value;
+	}
+	//===========================================================
 	/**
 	 * returns true if has been set
 	 */
@@ -518,7 +541,7 @@ public class StringUtils {
     //===============================================================
     //===============================================================
 	public static String getIncludePath() {
-		String tangoInclude = System.getenv("TANGO_INCLUDE");
+		String tangoInclude = System.getenv(INCLUDE_OPTION);
 		if (tangoInclude==null)
 			return "$TANGO_ROOT/include";
 		return tangoInclude;
@@ -35,6 +35,7 @@
 
 package fr.esrf.tango.pogo.generator.cpp
 
+import fr.esrf.tango.pogo.generator.ModelIndex
 import org.eclipse.xtext.generator.IGenerator
 import org.eclipse.xtext.generator.IFileSystemAccess
 import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass
@@ -48,6 +49,7 @@ import fr.esrf.tango.pogo.generator.cpp.projects.VC10.VC10_Project
 import fr.esrf.tango.pogo.pogoDsl.PogoMultiClasses
 import static extension fr.esrf.tango.pogo.generator.common.StringUtils.*
 import fr.esrf.tango.pogo.generator.common.EclipseProjects
+import static extension fr.esrf.tango.pogo.generator.cpp.utils.LabViewUtils.*
 
 class CppGenerator implements IGenerator {
 
@@ -60,6 +62,9 @@ class CppGenerator implements IGenerator {
 	@Inject	extension DynamicAttributeUtils
 	@Inject	extension ClassFactory
 	@Inject	extension Main
+	@Inject	extension LabViewBridge
+	@Inject	extension LabViewConnections
+	@Inject	extension LabViewFrames
 	
 	@Inject	extension LinuxCMakeLists
 	@Inject	extension WinCMakeLists
@@ -72,7 +77,7 @@ class CppGenerator implements IGenerator {
 		//
 		//	Generate cpp files for PogoDeviceClass objects
 		//
-		for (cls : resource.allContents.toIterable.filter(typeof(PogoDeviceClass))) {
+		for (cls : ModelIndex.of(resource).deviceClasses) {
 			//println(cls.description.filestogenerate)
 			//println("Lannguage="+cls.description.language)
 			if (cls.description.language.toLowerCase.equals("cpp")) {
@@ -104,6 +109,20 @@ class CppGenerator implements IGenerator {
 						printTrace("Generating " + cls.dynamicAttrUtilsFileName)
 						fsa.generateFile(cls.dynamicAttrUtilsFileName,cls.generateDynamicAttrUtilsFile)
 					}
+
+					//	LabVIEW pipelined bridge if requested
+					if (cls.pipelinedBridge) {
+						printTrace("Generating " + labViewBridgeFileName)
+						fsa.generateFile(labViewBridgeFileName, cls.generateLabViewBridgeFile)
+					}
+					if (cls.hasSharedConnections) {
+						printTrace("Generating " + labViewConnectionsFileName)
+						fsa.generateFile(labViewConnectionsFileName, cls.generateLabViewConnectionsFile)
+					}
+					if (cls.binaryFrames) {
+						printTrace("Generating " + labViewFramesFileName)
+						fsa.generateFile(labViewFramesFileName, cls.generateLabViewFramesFile)
+					}
 				}
 				printTrace("------> " + cls.description.filestogenerate)
 				
@@ -169,7 +188,7 @@ class CppGenerator implements IGenerator {
 		//
 		//	Generate cpp files for PogoMultiClasses  objects
 		//
-		for (multi : resource.allContents.toIterable.filter(typeof(PogoMultiClasses))) {
+		for (multi : ModelIndex.of(resource).multiClasses) {
 			//	Multi class
 			if (multi.filestogenerate.contains("Code files")) {
 				printTrace("Generating MultiClassesFactory.cpp")
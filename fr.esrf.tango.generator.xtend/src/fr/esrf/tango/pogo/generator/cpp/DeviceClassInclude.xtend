@@ -48,6 +48,7 @@ import fr.esrf.tango.pogo.generator.cpp.utils.Headers
 import fr.esrf.tango.pogo.generator.cpp.utils.InheritanceUtils
 import fr.esrf.tango.pogo.pogoDsl.ForwardedAttribute
 import fr.esrf.tango.pogo.pogoDsl.Pipe
+import static extension fr.esrf.tango.pogo.generator.ModelIndex.*
 
 //======================================================
 //	Define deviceClass include file to be generated
@@ -157,10 +158,8 @@ class DeviceClassInclude {
 	//	Define attribute Classes 
 	//======================================================
 	def attributeClasses(PogoDeviceClass cls) '''
-		«FOR Attribute attribute : cls.attributes»
-			«IF attribute.isConcreteHere»
-				«cls.attributeClass(attribute, false)»
-			«ENDIF»
+		«FOR Attribute attribute : cls.concreteAttributes»
+			«cls.attributeClass(attribute, false)»
 		«ENDFOR»
 	'''
 	
@@ -195,11 +194,9 @@ class DeviceClassInclude {
 	//	Define command Classes 
 	//======================================================
 	def commandClasses(PogoDeviceClass cls) '''
-		«FOR Command command : cls.commands»
-			«IF command.concreteHere»
-				«IF command.name.equals("State")==false && command.name.equals("Status")==false»
-					«cls.commandClass(command)»
-				«ENDIF»
+		«FOR Command command : cls.concreteCommands»
+			«IF command.name.equals("State")==false && command.name.equals("Status")==false»
+				«cls.commandClass(command)»
 			«ENDIF»
 		«ENDFOR»
 	'''
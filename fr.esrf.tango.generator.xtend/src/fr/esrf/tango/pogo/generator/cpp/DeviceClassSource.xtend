@@ -48,6 +48,7 @@ import fr.esrf.tango.pogo.generator.cpp.utils.InheritanceUtils
 import fr.esrf.tango.pogo.pogoDsl.ForwardedAttribute
 import fr.esrf.tango.pogo.pogoDsl.Pipe
 import fr.esrf.tango.pogo.generator.common.StringUtils;
+import static extension fr.esrf.tango.pogo.generator.ModelIndex.*
 
 class DeviceClassSource {
 
@@ -130,11 +131,9 @@ class DeviceClassSource {
 	//==========================================================
 	def commandRelatedMethods(PogoDeviceClass cls) '''
 		«IF cls.commands.size>2»
-			«FOR Command command : cls.commands»
-				«IF command.isConcreteHere»
-					«IF command.name.equals("State")==false && command.name.equals("Status")==false»
-						«cls.classExecuteMethod(command)»
-					«ENDIF»
+			«FOR Command command : cls.concreteCommands»
+				«IF command.name.equals("State")==false && command.name.equals("Status")==false»
+					«cls.classExecuteMethod(command)»
 				«ENDIF»
 			«ENDFOR»
 		«ENDIF»
@@ -228,10 +227,9 @@ class DeviceClassSource {
 				«cls.inheritedClassNameForDeviceClass»::command_factory();
 
 			«ENDIF»
-			«FOR Command command : cls.commands»
-				«IF command.isConcreteHere &&
-					command.name.equals("State")==false && command.name.equals("Status")==false»
-					«IF command.inherited»
+			«FOR Command command : cls.concreteCommands»
+				«IF command.name.equals("State")==false && command.name.equals("Status")==false»
+					«IF cls.inheritedCommands.contains(command)»
 						//	Get inherited Command object «command.name» if already created
 						try
 						{
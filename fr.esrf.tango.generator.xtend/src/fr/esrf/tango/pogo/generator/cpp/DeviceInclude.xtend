@@ -48,7 +48,10 @@ import fr.esrf.tango.pogo.generator.cpp.utils.Commands
 import fr.esrf.tango.pogo.generator.cpp.utils.Attributes
 import fr.esrf.tango.pogo.generator.cpp.utils.Pipes
 import fr.esrf.tango.pogo.generator.cpp.utils.InheritanceUtils
+import fr.esrf.tango.pogo.generator.cpp.utils.LabViewUtils
 import fr.esrf.tango.pogo.pogoDsl.Pipe
+import static extension fr.esrf.tango.pogo.generator.ModelIndex.*
+import static extension fr.esrf.tango.pogo.generator.cpp.utils.LabViewUtils.*
 
 //======================================================
 //	Define device include file to be generated
@@ -61,6 +64,7 @@ class DeviceInclude  {
 	@Inject	extension Attributes
 	@Inject	extension Pipes
 	@Inject	extension InheritanceUtils
+	@Inject	extension LabViewUtils
 
 
 	//======================================================
@@ -82,7 +86,7 @@ class DeviceInclude  {
 		class «cls.name» : public «cls.inheritedClassNameForDevice»
 		{
 
-		«cls.protectedArea("Data Members","	/* LABVIEW COMMUNICATION BEGIN ID(Data Members)*/\nTCPManager *tcp_manager;\n	/* LABVIEW COMMUNICATION END */"+"//Add your own data members", false)»
+		«cls.protectedArea("Data Members","	/* LABVIEW COMMUNICATION BEGIN ID(Data Members)*/\nTCPManager *tcp_manager;\n"+cls.labViewDataMembers+"	/* LABVIEW COMMUNICATION END */"+"//Add your own data members", false)»
 		
 		«cls.declareDevicePropertyDataMembers»
 		«cls.declareAttributeDataMembers»
@@ -91,7 +95,7 @@ class DeviceInclude  {
 		«cls.declareAttributes»
 		«cls.declarePipes»
 		«cls.declareCommands»
-		«cls.protectedArea("Additional Method prototypes","	/* LABVIEW COMMUNICATION BEGIN ID(Additional Method prototypes)*/\ntemplate<typename T>\nvoid labViewRead(T* value);\n\ntemplate<typename T>\nvoid labViewWrite(std::string msg, T value = NULL);\n\ntemplate<typename T>\nvoid labViewWrite1D(std::string msg, T value = NULL, int size = 0);\n\ntemplate<typename T>\nvoid labViewWrite2D(std::string msg, T value = NULL, int sizex = 0, int sizey = 0);\n\nvoid updateState();\n	/* LABVIEW COMMUNICATION END */"+"\n//Additional Method prototypes", false)»
+		«cls.protectedArea("Additional Method prototypes","	/* LABVIEW COMMUNICATION BEGIN ID(Additional Method prototypes)*/\ntemplate<typename T>\nvoid labViewRead(T* value);\n\ntemplate<typename T>\nvoid labViewWrite(std::string msg, T value = NULL);\n\ntemplate<typename T>\nvoid labViewWrite1D(std::string msg, T value = NULL, int size = 0);\n\ntemplate<typename T>\nvoid labViewWrite2D(std::string msg, T value = NULL, int sizex = 0, int sizey = 0);\n\nvoid updateState();\n"+cls.labViewPrototypes+"	/* LABVIEW COMMUNICATION END */"+"\n//Additional Method prototypes", false)»
 		};
 		
 		«cls.protectedArea("Additional Classes Definitions", "Additional Classes Definitions", true)»
@@ -114,6 +118,7 @@ class DeviceInclude  {
 			"/* LABVIEW COMMUNICATION BEGIN ID(includes)*/"+
 			 "\n#include <AsioTCPManager.h>\n"+
 			 "#include \"EncoderDecoder.h\"\n"+
+			 cls.labViewIncludes +
 			 "	/* LABVIEW COMMUNICATION END */" +
 			cls.inheritanceIncludeList(false), false)»
 	'''
@@ -126,11 +131,9 @@ class DeviceInclude  {
 		«IF cls.deviceProperties.size>0»
 			//	Device property data members
 			public:
-				«FOR Property property : cls.deviceProperties»
-					«IF property.concreteHere»
-						//	«property.name»:	«property.description.comments("//  ")»
-						«property.type.cppPropType»	«property.name.dataMemberName»;
-					«ENDIF»
+				«FOR Property property : cls.concreteDeviceProperties»
+					//	«property.name»:	«property.description.comments("//  ")»
+					«property.type.cppPropType»	«property.name.dataMemberName»;
 				«ENDFOR»
 				«IF cls.deviceProperties.hasMandatoryProperty»
 
@@ -147,8 +150,8 @@ class DeviceInclude  {
 		«IF cls.attributes.size>0»
 			//	Attribute data members
 			public:
-				«FOR Attribute attr : cls.attributes»
-					«IF isTrue(attr.status.concreteHere) && attr.isRead»
+				«FOR Attribute attr : cls.concreteAttributes»
+					«IF attr.isRead»
 							«IF attr.dataType.cppType.contains("Enum")»
 								«attr.name»Enum	*attr_«attr.name»_read;
 							«ELSE»
@@ -241,23 +244,25 @@ class DeviceInclude  {
 		public:
 			«cls.simpleMethodHeader1("read_attr_hardware", "Hardware acquisition for attributes.")»
 			virtual void read_attr_hardware(vector<long> &attr_list);
+			«IF cls.batchRead»
+				«cls.simpleMethodHeader1("labViewReadAttributes", "Read the requested attributes from LabVIEW in one exchange.")»
+				void labViewReadAttributes(vector<long> &attr_list);
+			«ENDIF»
 			«IF cls.hasWritableAttribute»
 				«cls.simpleMethodHeader1("write_attr_hardware", "Hardware writing for attributes.")»
 				virtual void write_attr_hardware(vector<long> &attr_list);
 			«ENDIF»
 		«IF cls.attributes.size()>0»
 
-			«FOR Attribute attr : cls.attributes»
-				«IF attr.alreadyOverloaded==false»
-					«attr.attributePrototypeMethodHeader»
-						«IF attr.isRead»
-							virtual void «attr.readAttrubuteMethod»(Tango::Attribute &attr)«attr.checkAbstractForProto»;
-						«ENDIF»
-						«IF attr.isWrite»
-							virtual void «attr.writeAttrubuteMethod»(Tango::WAttribute &attr)«attr.checkAbstractForProto»;
-						«ENDIF»
-						virtual bool is_«attr.name»_allowed(Tango::AttReqType type);
-				«ENDIF»
+			«FOR Attribute attr : cls.declaredAttributes»
+				«attr.attributePrototypeMethodHeader»
+					«IF attr.isRead»
+						virtual void «attr.readAttrubuteMethod»(Tango::Attribute &attr)«attr.checkAbstractForProto»;
+					«ENDIF»
+					«IF attr.isWrite»
+						virtual void «attr.writeAttrubuteMethod»(Tango::WAttribute &attr)«attr.checkAbstractForProto»;
+					«ENDIF»
+					virtual bool is_«attr.name»_allowed(Tango::AttReqType type);
 			«ENDFOR»
 		«ENDIF»
 
@@ -312,13 +317,11 @@ class DeviceInclude  {
 		«IF cls.commands.size()>0»
 		//	Command related methods
 		public:
-			«FOR Command command : cls.commands»
-				«IF command.isAbstract || command.isConcreteHere»
-					«command.commandExecutionMethodHeader»
-					«cls.commandExecutionMethodSignature(command, true)»
-					«IF command.name.equals("State")==false && command.name.equals("Status")==false»
-						virtual bool is_«command.name»_allowed(const CORBA::Any &any);
-					«ENDIF»
+			«FOR Command command : cls.declaredCommands»
+				«command.commandExecutionMethodHeader»
+				«cls.commandExecutionMethodSignature(command, true)»
+				«IF command.name.equals("State")==false && command.name.equals("Status")==false»
+					virtual bool is_«command.name»_allowed(const CORBA::Any &any);
 				«ENDIF»
 			«ENDFOR»
 		«ENDIF»
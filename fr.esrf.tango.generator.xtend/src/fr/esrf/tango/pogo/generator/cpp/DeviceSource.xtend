@@ -42,12 +42,15 @@ import fr.esrf.tango.pogo.pogoDsl.Command
 import static extension fr.esrf.tango.pogo.generator.cpp.utils.CppStringUtils.*
 import fr.esrf.tango.pogo.generator.cpp.utils.ProtectedArea
 import fr.esrf.tango.pogo.generator.cpp.utils.InheritanceUtils
+import fr.esrf.tango.pogo.generator.cpp.utils.LabViewUtils
 import fr.esrf.tango.pogo.generator.cpp.utils.Headers
 import fr.esrf.tango.pogo.generator.cpp.utils.Commands
 import fr.esrf.tango.pogo.generator.cpp.utils.Attributes
 import fr.esrf.tango.pogo.generator.cpp.utils.Pipes
 import fr.esrf.tango.pogo.generator.cpp.utils.Properties
 import fr.esrf.tango.pogo.pogoDsl.Pipe
+import static extension fr.esrf.tango.pogo.generator.ModelIndex.*
+import static extension fr.esrf.tango.pogo.generator.cpp.utils.LabViewUtils.*
 
 //======================================================
 // Define device source file to be generated
@@ -61,6 +64,7 @@ class DeviceSource {
 	@Inject	extension Pipes
 	@Inject	extension Properties
 	@Inject	extension InheritanceUtils
+	@Inject	extension LabViewUtils
 
 
 	//======================================================
@@ -88,7 +92,7 @@ class DeviceSource {
 		«cls.pipeMethods»
 		«cls.commandMethods»
 
-		«cls.protectedArea("namespace_ending", "	/* LABVIEW COMMUNICATION BEGIN ID(namespace_ending)*/
+		«cls.protectedArea("namespace_ending", cls.labViewIo("	/* LABVIEW COMMUNICATION BEGIN ID(namespace_ending)*/
 	template<typename T>
 	void "+cls.name+"::labViewRead(T* value) {
 		if (!tcp_manager)
@@ -161,8 +165,8 @@ class DeviceSource {
 			return;
 		}
 	}
-
-	/* LABVIEW COMMUNICATION END */"+"//Additional Methods", false)»
+"+cls.framesMethods+cls.healthMethods+"
+	/* LABVIEW COMMUNICATION END */")+"//Additional Methods", false)»
 		} //	namespace
 	'''
 
@@ -189,19 +193,19 @@ class DeviceSource {
 		«cls.name»::«cls.name»(Tango::DeviceClass *cl, string &s)
 		 : «cls.inheritedClassName»(cl, s.c_str())
 		{
-			«cls.protectedArea("constructor_1", "tcp_manager = NULL;\ninit_device();", false)»
+			«cls.protectedArea("constructor_1", "tcp_manager = NULL;\n"+cls.labViewConstructor+"init_device();", false)»
 		}
 		//--------------------------------------------------------
 		«cls.name»::«cls.name»(Tango::DeviceClass *cl, const char *s)
 		 : «cls.inheritedClassName»(cl, s)
 		{
-			«cls.protectedArea("constructor_2", "tcp_manager = NULL;\ninit_device();", false)»
+			«cls.protectedArea("constructor_2", "tcp_manager = NULL;\n"+cls.labViewConstructor+"init_device();", false)»
 		}
 		//--------------------------------------------------------
 		«cls.name»::«cls.name»(Tango::DeviceClass *cl, const char *s, const char *d)
 		 : «cls.inheritedClassName»(cl, s, d)
 		{
-			«cls.protectedArea("constructor_3", "tcp_manager = NULL;\ninit_device();", false)»
+			«cls.protectedArea("constructor_3", "tcp_manager = NULL;\n"+cls.labViewConstructor+"init_device();", false)»
 		}
 
 		«cls.simpleMethodHeader("delete_device",
@@ -209,9 +213,9 @@ class DeviceSource {
 		void «cls.name»::delete_device()
 		{
 			DEBUG_STREAM << "«cls.name»::delete_device() " << device_name << endl;
-			«cls.protectedArea("delete_device", "	/* LABVIEW COMMUNICATION BEGIN ID(delete_device)*/\ndelete tcp_manager;\ntcp_manager = 0;\n	/* LABVIEW COMMUNICATION END */"
+			«cls.protectedArea("delete_device", "	/* LABVIEW COMMUNICATION BEGIN ID(delete_device)*/\n"+cls.labViewDisconnect+"	/* LABVIEW COMMUNICATION END */"
 				+ "\n//Delete device allocated objects", false)»
-			«cls.attributes.deleteAttributeDataMembers»
+			«cls.deleteAttributeDataMembers»
 			«IF cls.hasInheritanceClass»
 
 				if (Tango::Util::instance()->is_svr_shutting_down()==false  &&
@@ -251,7 +255,7 @@ class DeviceSource {
 			«ELSE»
 				//	No device property to be read from database
 			«ENDIF»
-			«cls.attributes.allocateAttributeDataMembers»
+			«cls.allocateAttributeDataMembers»
 			«IF cls.deviceProperties.hasMandatoryProperty»
 				//	No longer if mandatory property not set. 
 				if (mandatoryNotDefined)
@@ -259,8 +263,7 @@ class DeviceSource {
 
 			«ENDIF»
 			«cls.protectedArea("init_device", "	/* LABVIEW COMMUNICATION BEGIN ID(init_device)*/
-\ncheckForErrorsAndUpdate = true;\nif (tcp_manager)\ndelete tcp_manager;\n\n	tcp_manager = new AsioTCPManager(ip, port);
-	\nif (!tcp_manager->openSocket()) {\ndelete tcp_manager;\ntcp_manager = 0;\n}\n\n//*attr_ViPath_read = \"\";\nif(checkForErrorsAndUpdate)\n\tupdateState();\n	
+\ncheckForErrorsAndUpdate = true;\n"+cls.labViewConnect+"\n//*attr_ViPath_read = \"\";\nif(checkForErrorsAndUpdate)\n\tupdateState();\n"+cls.healthStart+"	
 /* LABVIEW COMMUNICATION END */\n" 
 +"//Initialize device", false)»
 		}
@@ -309,7 +312,7 @@ class DeviceSource {
 								(const char *)"«cls.name»::always_executed_hook()");
 				}
 			«ENDIF»
-			«cls.protectedArea("always_executed_hook"," /* LABVIEW COMMUNICATION BEGIN ID(always_executed_hook)*/\nif(checkForErrorsAndUpdate)\n\tupdateState();\n	/* LABVIEW COMMUNICATION END */\n"+"//code always executed before all requests", false)»
+			«cls.protectedArea("always_executed_hook"," /* LABVIEW COMMUNICATION BEGIN ID(always_executed_hook)*/\n"+cls.stateCheck+"	/* LABVIEW COMMUNICATION END */\n"+"//code always executed before all requests", false)»
 		}
 
 	'''
@@ -333,11 +336,21 @@ class DeviceSource {
 	//======================================================
 	def attributeMethods(PogoDeviceClass cls) '''
 		«cls.simpleMethodHeader("read_attr_hardware", "Hardware acquisition for attributes")»
+		«IF cls.batchRead»
+		void «cls.name»::read_attr_hardware(vector<long> &attr_list)
+		{
+			DEBUG_STREAM << "«cls.name»::read_attr_hardware(vector<long> &attr_list) entering... " << endl;
+			«cls.protectedArea("read_attr_hardware", "/* LABVIEW COMMUNICATION BEGIN ID(read_attr_hardware)*/\nlabViewReadAttributes(attr_list);\n/* LABVIEW COMMUNICATION END */\n//Add your own code", false)»
+		}
+		«cls.simpleMethodHeader("labViewReadAttributes", "Read the requested attributes from LabVIEW in one exchange")»
+		«cls.labViewReadAttributesMethod»
+		«ELSE»
 		void «cls.name»::read_attr_hardware(TANGO_UNUSED(vector<long> &attr_list))
 		{
 			DEBUG_STREAM << "«cls.name»::read_attr_hardware(vector<long> &attr_list) entering... " << endl;
 			«cls.protectedArea("read_attr_hardware", "Add your own code", true)»
 		}
+		«ENDIF»
 		«IF cls.hasWritableAttribute»
 		«cls.simpleMethodHeader("write_attr_hardware", "Hardware writing for attributes")»
 		void «cls.name»::write_attr_hardware(TANGO_UNUSED(vector<long> &attr_list))
@@ -347,16 +360,14 @@ class DeviceSource {
 		}
 		«ENDIF»
 		
-		«FOR Attribute attribute : cls.attributes»
-			«IF attribute.isConcreteHere»
-				«IF attribute.isRead»
-					«attribute.attributeMethodHeader("Read")»
-					«cls.readAttributeMethod(attribute)»
-				«ENDIF»
-				«IF attribute.isWrite»
-					«attribute.attributeMethodHeader("Write")»
-					«cls.writeAttributeMethod(attribute)»
-				«ENDIF»
+		«FOR Attribute attribute : cls.concreteAttributes»
+			«IF attribute.isRead»
+				«attribute.attributeMethodHeader("Read")»
+				«cls.readAttributeMethod(attribute)»
+			«ENDIF»
+			«IF attribute.isWrite»
+				«attribute.attributeMethodHeader("Write")»
+				«cls.writeAttributeMethod(attribute)»
 			«ENDIF»
 		«ENDFOR»
 		
@@ -390,22 +401,18 @@ class DeviceSource {
 	// Define Command related methods
 	//======================================================
 	def commandMethods(PogoDeviceClass cls) '''
-		«FOR Command command : cls.commands»
-			«IF isTrue(command.status.concreteHere)»
+		«FOR Command command : cls.concreteCommands»
+			//--------------------------------------------------------
+			«command.commandExecutionMethodHeader»
+			//--------------------------------------------------------
+			«cls.commandExecutionMethod(command)»
+		«ENDFOR»
+		«IF cls.dynamicCommands.size()>0»
+			«FOR Command command : cls.concreteDynamicCommands»
 				//--------------------------------------------------------
 				«command.commandExecutionMethodHeader»
 				//--------------------------------------------------------
 				«cls.commandExecutionMethod(command)»
-			«ENDIF»
-		«ENDFOR»
-		«IF cls.dynamicCommands.size()>0»
-			«FOR Command command : cls.dynamicCommands»
-				«IF isTrue(command.status.concreteHere)»
-					//--------------------------------------------------------
-					«command.commandExecutionMethodHeader»
-					//--------------------------------------------------------
-					«cls.commandExecutionMethod(command)»
-				«ENDIF»
 			«ENDFOR»
 		«ENDIF»
 		«cls.simpleMethodHeader("add_dynamic_commands", "Create the dynamic commands if any\nfor specified device.")»
@@ -46,6 +46,7 @@ import fr.esrf.tango.pogo.generator.cpp.utils.InheritanceUtils
 import fr.esrf.tango.pogo.generator.cpp.utils.Headers
 import fr.esrf.tango.pogo.generator.cpp.utils.CppStringUtils
 import fr.esrf.tango.pogo.pogoDsl.Pipe
+import static extension fr.esrf.tango.pogo.generator.ModelIndex.*
 
 //======================================================
 // Define Device state machine .cpp file to be generated
@@ -152,10 +153,8 @@ class DeviceStateMachine {
 	// define attributes State Machine
 	//======================================================
 	def attributesStateMachine(PogoDeviceClass cls) '''
-		«FOR Attribute attribute : cls.attributes»
-			«IF attribute.alreadyOverloaded==false»
-				«cls.attributeStateMachine(attribute)»
-			«ENDIF»
+		«FOR Attribute attribute : cls.declaredAttributes»
+			«cls.attributeStateMachine(attribute)»
 		«ENDFOR»
 		«FOR Attribute attribute : cls.dynamicAttributes»
 			«cls.attributeStateMachine(attribute)»
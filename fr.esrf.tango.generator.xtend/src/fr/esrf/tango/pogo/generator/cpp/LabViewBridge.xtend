@@ -0,0 +1,343 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator.cpp
+
+import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass
+
+
+//======================================================
+// Define LabViewBridge.h file to be generated
+//	(if the LabViewBridge class property is pipelined, see LabViewUtils)
+//
+//	Each line sent to LabVIEW is tagged with a request id ("#<id> <line>").
+//	The LabVIEW side answers a query with the same tag,
+//	so replies could be matched even if not received in order.
+//	An untagged reply is given to the oldest query waiting for a reply.
+//	A writer thread sends the queued lines, a reader thread reads
+//	the replies while queries are waiting, and each caller thread
+//	reads the replies of its own queries, in order.
+//	The bridge owns the connection: it is deleted with the bridge.
+//
+//	The device keeps the default serialization model (by device):
+//	requests to a device are still serialized by Tango, so its own
+//	exchanges overlap only with its health thread, or with
+//	the other devices sharing the connection.
+//======================================================
+class LabViewBridge {
+
+	def labViewBridgeFileName() {
+		"LabViewBridge.h"
+	}
+
+	//======================================================
+	// Define LabViewBridge.h file to be generated
+	//======================================================
+	def generateLabViewBridgeFile (PogoDeviceClass cls) '''
+		//=============================================================================
+		//
+		// file :        LabViewBridge.h
+		//
+		// description : Pipelined and request tagged exchanges with LabVIEW
+		//               for the «cls.name» device server.
+		//               This file is generated by POGO, do not edit.
+		//
+		//=============================================================================
+
+		#ifndef LabViewBridge_H
+		#define LabViewBridge_H
+
+		#include <AsioTCPManager.h>
+		#include <string>
+		#include <sstream>
+		#include <cstdlib>
+		#include <algorithm>
+		#include <vector>
+		#include <map>
+		#include <deque>
+		#include <memory>
+		#include <chrono>
+		#include <thread>
+		#include <mutex>
+		#include <condition_variable>
+
+		class LabViewBridge
+		{
+		public:
+			//	The bridge owns the connection, it is deleted with the bridge
+			LabViewBridge(TCPManager *tcp_manager) : state(new State(tcp_manager)) {
+				writer = std::thread(&LabViewBridge::writerLoop, state);
+				reader = std::thread(&LabViewBridge::readerLoop, state);
+			}
+
+			//	Queued lines are sent before stopping.
+			//	If a reply is being read, wait for it at most one second:
+			//	threads still blocked on the connection are then left
+			//	with it, and it is deleted when they return.
+			~LabViewBridge() {
+				std::unique_lock<std::mutex> lock(state->mutex);
+				state->running = false;
+				state->writeCond.notify_all();
+				state->readCond.notify_all();
+				state->replyCond.notify_all();
+				State *s = state.get();
+				bool stopped = s->stopCond.wait_for(lock, std::chrono::milliseconds(1000),
+					[s] { return s->threads==0; });
+				lock.unlock();
+				if (stopped) {
+					writer.join();
+					reader.join();
+				}
+				else {
+					writer.detach();
+					reader.detach();
+				}
+			}
+
+			//	Queue a message. If all its lines are queries (ending with '?'),
+			//	each line is tagged, otherwise the message is tagged as a whole.
+			//	The queries are registered for the calling thread.
+			void write(const std::string &msg) {
+				std::vector<std::string> lines;
+				bool queries = true;
+				std::string::size_type start = 0;
+				while (start<msg.size()) {
+					std::string::size_type end = msg.find("\r\n", start);
+					std::string line = msg.substr(start, (end==std::string::npos) ? std::string::npos : end-start);
+					start = (end==std::string::npos) ? msg.size() : end+2;
+					if (line.empty())
+						continue;
+					queries = queries && isQuery(line);
+					lines.push_back(line);
+				}
+				if (lines.empty())
+					return;
+				if (!queries) {
+					std::string line = msg.substr(0, msg.find_last_not_of("\r\n")+1);
+					lines.assign(1, line);
+				}
+
+				std::lock_guard<std::mutex> lock(state->mutex);
+				std::deque<unsigned long> &awaited = state->threadQueries[std::this_thread::get_id()];
+				for (size_t i=0 ; i<lines.size() ; i++) {
+					unsigned long id = state->nextId++;
+					std::ostringstream tagged;
+					tagged << '#' << id << ' ' << lines[i] << "\r\n";
+					state->writeQueue += tagged.str();
+					if (isQuery(lines[i])) {
+						state->pending[id] = Reply();
+						state->order.push_back(id);
+						awaited.push_back(id);
+					}
+				}
+				if (awaited.empty())
+					state->threadQueries.erase(std::this_thread::get_id());
+				state->writeCond.notify_one();
+				state->readCond.notify_one();
+			}
+
+			TCPManager *getTcpManager() const {
+				return state->tcp;
+			}
+
+			//	Returns true if a read or a write on the connection failed:
+			//	the bridge is stopped, and waiting callers get empty replies.
+			bool isBroken() const {
+				std::lock_guard<std::mutex> lock(state->mutex);
+				return state->broken;
+			}
+
+			//	Wait for the reply of the oldest query sent by the calling thread
+			void read(std::string &msg) {
+				read(msg, -1);
+			}
+
+			//	Same as read(), waiting at most timeoutMs (no limit if negative).
+			//	Returns false if the reply was not received in time:
+			//	it will be dropped when it comes.
+			bool read(std::string &msg, long timeoutMs) {
+				msg.clear();
+				std::unique_lock<std::mutex> lock(state->mutex);
+				std::map<std::thread::id, std::deque<unsigned long> >::iterator queries =
+					state->threadQueries.find(std::this_thread::get_id());
+				if (queries==state->threadQueries.end())
+					return true;
+				unsigned long id = queries->second.front();
+				queries->second.pop_front();
+				if (queries->second.empty())
+					state->threadQueries.erase(queries);
+				State *s = state.get();
+				bool received = true;
+				if (timeoutMs<0)
+					s->replyCond.wait(lock, [s, id] { return s->pending[id].done || !s->running; });
+				else
+					received = s->replyCond.wait_for(lock, std::chrono::milliseconds(timeoutMs),
+						[s, id] { return s->pending[id].done || !s->running; });
+				if (!received) {
+					s->pending[id].abandoned = true;
+					return false;
+				}
+				msg = s->pending[id].value;
+				s->pending.erase(id);
+				return true;
+			}
+
+		private:
+			struct Reply {
+				bool done;
+				//	The caller does not wait for it anymore
+				bool abandoned;
+				std::string value;
+				Reply() : done(false), abandoned(false) {}
+			};
+
+			//	Shared with the threads, which could stay after the bridge
+			struct State {
+				TCPManager *tcp;
+				std::mutex mutex;
+				std::condition_variable writeCond;
+				std::condition_variable readCond;
+				std::condition_variable replyCond;
+				std::condition_variable stopCond;
+				std::string writeQueue;
+				unsigned long nextId;
+				bool running;
+				bool broken;
+				int threads;
+				std::map<unsigned long, Reply> pending;
+				//	Queries waiting for a reply, in sent order
+				std::deque<unsigned long> order;
+				//	Queries sent by each thread, not read yet
+				std::map<std::thread::id, std::deque<unsigned long> > threadQueries;
+
+				State(TCPManager *tcp_manager) : tcp(tcp_manager), nextId(1), running(true), broken(false), threads(2) {}
+				~State() {
+					delete tcp;
+				}
+				//	Called by a thread if the connection failed (mutex locked)
+				void fail() {
+					broken = true;
+					running = false;
+					writeCond.notify_all();
+					readCond.notify_all();
+					replyCond.notify_all();
+				}
+				//	Called by a thread at the end of its loop (mutex locked)
+				void stopped() {
+					threads--;
+					stopCond.notify_all();
+				}
+			};
+
+			static bool isQuery(const std::string &line) {
+				return !line.empty() && line[line.size()-1]=='?';
+			}
+
+			static void writerLoop(std::shared_ptr<State> s) {
+				std::unique_lock<std::mutex> lock(s->mutex);
+				while (true) {
+					s->writeCond.wait(lock, [s] { return !s->writeQueue.empty() || !s->running; });
+					if (s->writeQueue.empty())
+						break;
+					std::string data;
+					data.swap(s->writeQueue);
+					lock.unlock();
+					try {
+						s->tcp->write(data);
+					}
+					catch (...) {
+						lock.lock();
+						s->fail();
+						break;
+					}
+					lock.lock();
+				}
+				s->stopped();
+			}
+
+			static void readerLoop(std::shared_ptr<State> s) {
+				std::unique_lock<std::mutex> lock(s->mutex);
+				while (true) {
+					s->readCond.wait(lock, [s] { return !s->order.empty() || !s->running; });
+					if (!s->running)
+						break;
+					lock.unlock();
+					std::string msg;
+					try {
+						s->tcp->read(msg);
+					}
+					catch (...) {
+						lock.lock();
+						s->fail();
+						break;
+					}
+					lock.lock();
+					dispatch(*s, msg);
+					s->replyCond.notify_all();
+				}
+				s->stopped();
+			}
+
+			//	Give a reply to its query (called with mutex locked)
+			static void dispatch(State &s, const std::string &msg) {
+				unsigned long id = 0;
+				std::string value = msg;
+				if (!msg.empty() && msg[0]=='#') {
+					std::string::size_type space = msg.find(' ');
+					id = strtoul(msg.substr(1, space-1).c_str(), NULL, 10);
+					value = (space==std::string::npos) ? std::string() : msg.substr(space+1);
+				}
+				if (id==0 && !s.order.empty())
+					id = s.order.front();
+				std::map<unsigned long, Reply>::iterator reply = s.pending.find(id);
+				if (reply==s.pending.end() || reply->second.done)
+					return;	//	Not awaited: dropped
+				s.order.erase(std::find(s.order.begin(), s.order.end(), id));
+				if (reply->second.abandoned) {
+					s.pending.erase(reply);
+					return;	//	Caller timed out: dropped
+				}
+				reply->second.done = true;
+				reply->second.value = value;
+			}
+
+			std::shared_ptr<State> state;
+			std::thread writer;
+			std::thread reader;
+		};
+
+		#endif	//	LabViewBridge_H
+	'''
+}
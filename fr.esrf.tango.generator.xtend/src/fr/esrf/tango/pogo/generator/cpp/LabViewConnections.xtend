@@ -0,0 +1,273 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator.cpp
+
+import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass
+
+
+//======================================================
+// Define LabViewConnections.h file to be generated
+//	(if the LabViewSharedConnections class property is set, see LabViewUtils)
+//
+//	A registry of the LabVIEW connections of the process, by endpoint.
+//	The devices talking to the same LabVIEW host share a pool
+//	of at most n connections (the least used one is given),
+//	multiplexed by their LabViewBridge.
+//	A connection is closed when released by its last device.
+//	A broken connection (a read or a write failed) is removed
+//	from the pool, so the next init_device() opens a new one.
+//	The binary frames (LabViewFrames) are negotiated once per endpoint.
+//======================================================
+class LabViewConnections {
+
+	def labViewConnectionsFileName() {
+		"LabViewConnections.h"
+	}
+
+	//======================================================
+	// Define LabViewConnections.h file to be generated
+	//======================================================
+	def generateLabViewConnectionsFile (PogoDeviceClass cls) '''
+		//=============================================================================
+		//
+		// file :        LabViewConnections.h
+		//
+		// description : LabVIEW connections shared by the devices of a process
+		//               for the «cls.name» device server.
+		//               This file is generated by POGO, do not edit.
+		//
+		//=============================================================================
+
+		#ifndef LabViewConnections_H
+		#define LabViewConnections_H
+
+		#include "LabViewBridge.h"
+		#include <string>
+		#include <sstream>
+		#include <vector>
+		#include <map>
+		#include <mutex>
+		#include <condition_variable>
+
+		class LabViewConnections
+		{
+		public:
+			//	Returns a bridge to the endpoint, opening a new connection
+			//	if the pool is not full yet (NULL if it cannot be opened
+			//	and no connection is available).
+			//	A broken connection is removed from the pool,
+			//	it is closed when released by its last device.
+			template<typename IP, typename PORT>
+			static LabViewBridge *acquire(IP ip, PORT port, size_t poolSize) {
+				std::ostringstream oss;
+				oss << ip << ':' << port;
+				std::string endpoint = oss.str();
+				{
+					std::unique_lock<std::mutex> lock(registryMutex());
+					Endpoint &connections = registry()[endpoint];
+					//	No connection to share yet: wait for the ones being opened
+					while (connections.pool.empty() && connections.opening>=poolSize)
+						registryCond().wait(lock);
+					for (size_t i=0 ; i<connections.pool.size() ; )
+						if (connections.pool[i].bridge->isBroken()) {
+							connections.retired.push_back(connections.pool[i]);
+							connections.pool.erase(connections.pool.begin()+i);
+						}
+						else
+							i++;
+					if (connections.pool.size()+connections.opening>=poolSize)
+						return share(endpoint);
+					connections.opening++;
+				}
+
+				//	Connected out of the lock, other devices do not wait for it
+				TCPManager *tcp = new AsioTCPManager(ip, port);
+				LabViewBridge *bridge = NULL;
+				if (tcp->openSocket())
+					bridge = new LabViewBridge(tcp);
+				else
+					delete tcp;
+
+				std::lock_guard<std::mutex> lock(registryMutex());
+				Endpoint &connections = registry()[endpoint];
+				connections.opening--;
+				registryCond().notify_all();
+				if (bridge) {
+					connections.pool.push_back(Connection(bridge));
+					return bridge;
+				}
+				return share(endpoint);
+			}
+
+			//	Release a bridge returned by acquire(),
+			//	the connection is closed if not used anymore.
+			static void release(LabViewBridge *bridge) {
+				if (!bridge)
+					return;
+				bool closed = false;
+				{
+					std::lock_guard<std::mutex> lock(registryMutex());
+					std::map<std::string, Endpoint>::iterator entry;
+					for (entry=registry().begin() ; entry!=registry().end() ; ++entry) {
+						Endpoint &connections = entry->second;
+						if (!release(connections.pool, bridge, closed) &&
+							!release(connections.retired, bridge, closed))
+							continue;
+						if (connections.pool.empty() && connections.retired.empty() && connections.opening==0)
+							registry().erase(entry);
+						break;
+					}
+				}
+				//	Stopped out of the lock, other devices do not wait for it.
+				//	The bridge deletes the connection.
+				if (closed)
+					delete bridge;
+			}
+
+			//	Returns the binary frames state of the endpoint of a bridge:
+			//	1 binary frames, 0 text only, or -1 if not negotiated yet:
+			//	the caller negotiates them, and calls setFrames()
+			//	(other callers wait for it).
+			static int framesOf(LabViewBridge *bridge) {
+				std::unique_lock<std::mutex> lock(registryMutex());
+				while (true) {
+					Endpoint *connections = endpointOf(bridge);
+					if (!connections)
+						return -1;
+					if (connections->frames==NEGOTIATING) {
+						registryCond().wait(lock);
+						continue;
+					}
+					int frames = connections->frames;
+					if (frames<0)
+						connections->frames = NEGOTIATING;
+					return frames;
+				}
+			}
+
+			//	Set the binary frames state negotiated by framesOf() caller
+			//	(-1 if the negotiation failed: the next caller will do it)
+			static void setFrames(LabViewBridge *bridge, int frames) {
+				std::lock_guard<std::mutex> lock(registryMutex());
+				Endpoint *connections = endpointOf(bridge);
+				if (connections)
+					connections->frames = frames;
+				registryCond().notify_all();
+			}
+
+		private:
+			static const int NEGOTIATING = -2;
+
+			struct Connection {
+				LabViewBridge *bridge;
+				int refs;
+				Connection(LabViewBridge *lv_bridge) : bridge(lv_bridge), refs(1) {}
+			};
+
+			struct Endpoint {
+				std::vector<Connection> pool;
+				//	Broken connections, still used by some devices
+				std::vector<Connection> retired;
+				//	Connections being opened
+				size_t opening;
+				//	Binary frames: 1, 0, -1 not negotiated, or NEGOTIATING
+				int frames;
+				Endpoint() : opening(0), frames(-1) {}
+			};
+
+			//	Returns the endpoint of a bridge, NULL if released (called with registry locked)
+			static Endpoint *endpointOf(LabViewBridge *bridge) {
+				std::map<std::string, Endpoint>::iterator entry;
+				for (entry=registry().begin() ; entry!=registry().end() ; ++entry) {
+					std::vector<Connection> *lists[] = { &entry->second.pool, &entry->second.retired };
+					for (int l=0 ; l<2 ; l++)
+						for (size_t i=0 ; i<lists[l]->size() ; i++)
+							if ((*lists[l])[i].bridge==bridge)
+								return &entry->second;
+				}
+				return NULL;
+			}
+
+			//	Share the least used connection (called with registry locked)
+			static LabViewBridge *share(const std::string &endpoint) {
+				Endpoint &connections = registry()[endpoint];
+				std::vector<Connection> &pool = connections.pool;
+				if (pool.empty()) {
+					if (connections.retired.empty() && connections.opening==0)
+						registry().erase(endpoint);
+					return NULL;
+				}
+				Connection *least = &pool[0];
+				for (size_t i=1 ; i<pool.size() ; i++)
+					if (pool[i].refs<least->refs)
+						least = &pool[i];
+				least->refs++;
+				return least->bridge;
+			}
+
+			//	Returns true if the bridge was in the list (called with registry locked)
+			static bool release(std::vector<Connection> &list, LabViewBridge *bridge, bool &closed) {
+				for (size_t i=0 ; i<list.size() ; i++) {
+					if (list[i].bridge!=bridge)
+						continue;
+					if (--list[i].refs==0) {
+						list.erase(list.begin()+i);
+						closed = true;
+					}
+					return true;
+				}
+				return false;
+			}
+
+			static std::map<std::string, Endpoint> &registry() {
+				static std::map<std::string, Endpoint> connections;
+				return connections;
+			}
+
+			static std::mutex &registryMutex() {
+				static std::mutex mutex;
+				return mutex;
+			}
+
+			static std::condition_variable &registryCond() {
+				static std::condition_variable cond;
+				return cond;
+			}
+		};
+
+		#endif	//	LabViewConnections_H
+	'''
+}
@@ -0,0 +1,176 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator.cpp
+
+import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass
+
+
+//======================================================
+// Define LabViewFrames.h file to be generated
+//	(if the class has a LabViewBinaryFrames device property, see LabViewUtils)
+//
+//	Binary frame for spectrum and image values of numeric types:
+//		#B<byte count> <raw little-endian array, base64>\r\n
+//	The raw array is base64 armored to stay on one line,
+//	as TCPManager and the bridge exchange lines.
+//======================================================
+class LabViewFrames {
+
+	def labViewFramesFileName() {
+		"LabViewFrames.h"
+	}
+
+	//======================================================
+	// Define LabViewFrames.h file to be generated
+	//======================================================
+	def generateLabViewFramesFile (PogoDeviceClass cls) '''
+		//=============================================================================
+		//
+		// file :        LabViewFrames.h
+		//
+		// description : Binary frames for spectrum and image exchanges with LabVIEW
+		//               for the «cls.name» device server.
+		//               This file is generated by POGO, do not edit.
+		//
+		//=============================================================================
+
+		#ifndef LabViewFrames_H
+		#define LabViewFrames_H
+
+		#include <string>
+		#include <vector>
+		#include <cstdlib>
+		#include <algorithm>
+		#include <type_traits>
+
+		class LabViewFrames
+		{
+		public:
+			//	Append the frame of count values to msg.
+			//	Returns false if T has no binary frame (strings, booleans, enums)
+			template<typename T>
+			static bool encode(const T *values, long count, std::string &msg) {
+				if (!isBinary<T>() || !values || count<0)
+					return false;
+				size_t bytes = count*sizeof(T);
+				const unsigned char *raw = reinterpret_cast<const unsigned char *>(values);
+				std::vector<unsigned char> swapped;
+				if (!littleEndian() && sizeof(T)>1) {
+					swapped.assign(raw, raw+bytes);
+					swap(&swapped[0], bytes, sizeof(T));
+					raw = &swapped[0];
+				}
+				msg += "#B" + std::to_string(bytes) + " ";
+				msg.reserve(msg.size() + (bytes+2)/3*4 + 2);
+				for (size_t i=0 ; i<bytes ; i+=3) {
+					unsigned long n = raw[i] << 16;
+					if (i+1<bytes)	n |= raw[i+1] << 8;
+					if (i+2<bytes)	n |= raw[i+2];
+					msg += alphabet()[(n>>18) & 0x3F];
+					msg += alphabet()[(n>>12) & 0x3F];
+					msg += (i+1<bytes)? alphabet()[(n>>6) & 0x3F] : '=';
+					msg += (i+2<bytes)? alphabet()[n & 0x3F] : '=';
+				}
+				msg += "\r\n";
+				return true;
+			}
+
+			//	Decode a frame in values (at most count values).
+			//	Returns false if msg is not a frame (text reply)
+			template<typename T>
+			static bool decode(const std::string &msg, T *values, long count) {
+				if (!isBinary<T>() || msg.compare(0, 2, "#B")!=0)
+					return false;
+				std::string::size_type space = msg.find(' ');
+				if (space==std::string::npos)
+					return false;
+				size_t bytes = strtoul(msg.c_str()+2, NULL, 10);
+				bytes = std::min(bytes, count*sizeof(T));
+				bytes -= bytes%sizeof(T);
+
+				unsigned char *raw = reinterpret_cast<unsigned char *>(values);
+				size_t out = 0;
+				unsigned long n = 0;
+				int bits = 0;
+				for (size_t i=space+1 ; i<msg.size() && out<bytes ; i++) {
+					int v = value(msg[i]);
+					if (v<0)
+						break;	//	padding or end of line
+					n = ((n<<6) | v) & 0xFFFF;
+					bits += 6;
+					if (bits>=8) {
+						bits -= 8;
+						raw[out++] = (n>>bits) & 0xFF;
+					}
+				}
+				if (!littleEndian() && sizeof(T)>1)
+					swap(raw, out, sizeof(T));
+				return true;
+			}
+
+		private:
+			template<typename T>
+			static bool isBinary() {
+				return std::is_arithmetic<T>::value && !std::is_same<T, bool>::value;
+			}
+
+			static bool littleEndian() {
+				const unsigned short one = 1;
+				return *reinterpret_cast<const unsigned char *>(&one)==1;
+			}
+
+			static void swap(unsigned char *raw, size_t bytes, size_t size) {
+				for (size_t i=0 ; i+size<=bytes ; i+=size)
+					std::reverse(raw+i, raw+i+size);
+			}
+
+			static const char *alphabet() {
+				return "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+			}
+
+			static int value(char c) {
+				if (c>='A' && c<='Z')	return c-'A';
+				if (c>='a' && c<='z')	return c-'a'+26;
+				if (c>='0' && c<='9')	return c-'0'+52;
+				if (c=='+')	return 62;
+				if (c=='/')	return 63;
+				return -1;
+			}
+		};
+
+		#endif	//	LabViewFrames_H
+	'''
+}
@@ -47,6 +47,8 @@ import fr.esrf.tango.pogo.pogoDsl.PogoMultiClasses;
 import fr.esrf.tango.pogo.generator.cpp.utils.InheritanceUtils;
 
 public class MakefileUtils extends fr.esrf.tango.pogo.generator.common.StringUtils{
+	//	System property read by makeEnv()
+	public static final String DEBUG_MAKE_OPTION = "DEBUG_MAKE";
 
 	InheritanceUtils	inheritanceUtils = new InheritanceUtils();
 	//======================================================
@@ -252,7 +254,8 @@ public class MakefileUtils extends fr.esrf.tango.pogo.generator.common.StringUti
 	}
 	//======================================================
 	//======================================================
-	private static ArrayList<String>	inheritedObjectFiles;
+	//	Instance fields (not static), generations could run concurrently
+	private ArrayList<String>	inheritedObjectFiles;
 	private String addObjectFileList(String classname) {
 		String	classObjectFile = classname +".o";
 		String code = "";
@@ -278,6 +281,7 @@ public class MakefileUtils extends fr.esrf.tango.pogo.generator.common.StringUti
 	//======================================================
 	//======================================================
 	String dependancies(PogoMultiClasses multi) {
+		inheritedDependanciesFiles = new ArrayList<String>();
 		String code = "";
 		for (OneClassSimpleDef cls : multi.getClasses()) {
 			code += "#------------  Object files dependancies for " + cls.getClassname() + " class  ------------\n";
@@ -313,7 +317,7 @@ public class MakefileUtils extends fr.esrf.tango.pogo.generator.common.StringUti
 	}
 	//======================================================
 	//======================================================
-	private static ArrayList<String>	inheritedDependanciesFiles = new ArrayList<String>();
+	private ArrayList<String>	inheritedDependanciesFiles = new ArrayList<String>();
 	String dependanciesIncludes(String classname, EList<Inheritance> inheritances) {
 		String code = "";
 		if (inheritances!=null) {
@@ -379,7 +383,7 @@ public class MakefileUtils extends fr.esrf.tango.pogo.generator.common.StringUti
 	//======================================================
 	//======================================================
 	String makeEnv(PogoMultiClasses multi, boolean cmake) {
-		String	dbg = System.getProperty("DEBUG_MAKE");
+		String	dbg = System.getProperty(DEBUG_MAKE_OPTION);
 		String code = 
 				"# MAKE_ENV is the path to find common environment to buil project\n" +
 				"#\n";
@@ -402,7 +406,7 @@ public class MakefileUtils extends fr.esrf.tango.pogo.generator.common.StringUti
 	//======================================================
 	//======================================================
 	String makeEnv(PogoDeviceClass cls, boolean cmake) {
-		String	dbg = System.getProperty("DEBUG_MAKE");
+		String	dbg = System.getProperty(DEBUG_MAKE_OPTION);
 		String code = 
 				"# MAKE_ENV is the path to find common environment to buil project\n" +
 				"#\n";
@@ -40,8 +40,18 @@ import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass
 import com.google.inject.Inject
 import static extension fr.esrf.tango.pogo.generator.cpp.utils.CppStringUtils.*
 import static extension fr.esrf.tango.pogo.generator.cpp.utils.CppTypeDefinitions.*
-import org.eclipse.emf.common.util.EList
 import fr.esrf.tango.pogo.pogoDsl.ForwardedAttribute
+import fr.esrf.tango.pogo.pogoDsl.ShortType
+import fr.esrf.tango.pogo.pogoDsl.UShortType
+import fr.esrf.tango.pogo.pogoDsl.IntType
+import fr.esrf.tango.pogo.pogoDsl.UIntType
+import fr.esrf.tango.pogo.pogoDsl.LongType
+import fr.esrf.tango.pogo.pogoDsl.ULongType
+import fr.esrf.tango.pogo.pogoDsl.FloatType
+import fr.esrf.tango.pogo.pogoDsl.DoubleType
+import fr.esrf.tango.pogo.pogoDsl.UCharType
+import static extension fr.esrf.tango.pogo.generator.ModelIndex.*
+import static extension fr.esrf.tango.pogo.generator.cpp.utils.LabViewUtils.*
 
 //======================================================
 //	Attribute utilities
@@ -104,12 +114,10 @@ class Attributes {
 	//======================================================
 	//	Delete attribute data members
 	//======================================================
-	def deleteAttributeDataMembers(EList<Attribute> attributes) '''
-		«FOR Attribute attribute : attributes»
-			«IF attribute.isConcreteHere»
-				«IF isTrue(attribute.allocReadMember)»
-					«attribute.deleteAttributeDataMember»
-				«ENDIF»
+	def deleteAttributeDataMembers(PogoDeviceClass cls) '''
+		«FOR Attribute attribute : cls.concreteAttributes»
+			«IF isTrue(attribute.allocReadMember)»
+				«attribute.deleteAttributeDataMember»
 			«ENDIF»
 		«ENDFOR»
 	'''
@@ -136,12 +144,10 @@ class Attributes {
 	//======================================================
 	//	Allocate attribute data members
 	//======================================================
-	def allocateAttributeDataMembers(EList<Attribute> attributes) '''
-		«FOR Attribute attribute : attributes»
-			«IF attribute.isConcreteHere»
-				«IF attribute.allocReadMember.isTrue»
-					«attribute.allocateAttributeDataMember»
-				«ENDIF»
+	def allocateAttributeDataMembers(PogoDeviceClass cls) '''
+		«FOR Attribute attribute : cls.concreteAttributes»
+			«IF attribute.allocReadMember.isTrue»
+				«attribute.allocateAttributeDataMember»
 			«ENDIF»
 		«ENDFOR»
 	'''
@@ -153,19 +159,101 @@ class Attributes {
 		void «cls.name»::«attribute.readAttrubuteMethod»(Tango::Attribute &attr)
 		{
 			DEBUG_STREAM << "«cls.name»::«attribute.readAttrubuteMethod»(Tango::Attribute &attr) entering... " << endl;
+			«IF cls.batchRead»
+			«cls.protectedArea(attribute.readAttrubuteMethod,
+				"//	Value read by read_attr_hardware()\n"+
+				"attr.set_value("+attribute.readAttrubuteDataMember+
+					attribute.readAttrubuteSize + ");", false)»
+			«ELSE»
 			«cls.protectedArea(attribute.readAttrubuteMethod,
 			"\n	/* LABVIEW COMMUNICATION BEGIN*/
-			\nlabViewWrite<"+attribute.dataType.cppType +
+			\n"+cls.labViewExchange+"labViewWrite<"+attribute.dataType.cppType +
 			 attribute.manageEnumForMethodHeader+"*>(\""
-			 +attribute.properties.description+"?\"); \nlabViewRead("
-			 +attribute.readAttrubuteDataMember
-			+");\n	/* LABVIEW COMMUNICATION END */"
+			 +attribute.properties.description+"?\"); \n"
+			 +cls.labViewReadCall(attribute)
+			+";\n	/* LABVIEW COMMUNICATION END */"
 				+"//	Set the attribute value\n"+
 				"attr.set_value("+attribute.readAttrubuteDataMember+
 					attribute.readAttrubuteSize + ");", false)»
+			«ENDIF»
 			«"//cout<<1;"»		
 		}
 	'''
+
+	//======================================================
+	// Define the LabVIEW read of an attribute value:
+	// spectrum and image of numeric types could be
+	// received in binary frames (LabViewBinaryFrames)
+	//======================================================
+	def labViewReadCall(PogoDeviceClass cls, Attribute attribute) {
+		if (cls.binaryFrames && attribute.hasBinaryFrame)
+			"labViewReadArray(" + attribute.readAttrubuteDataMember + ", " +
+				(if (attribute.spectrum) attribute.maxX else attribute.maxX + "*" + attribute.maxY) + ")"
+		else
+			"labViewRead(" + attribute.readAttrubuteDataMember + ")"
+	}
+	//======================================================
+	def hasBinaryFrame(Attribute attribute) {
+		if (attribute.isScalar)
+			return false
+		val type = attribute.dataType
+		type instanceof ShortType || type instanceof UShortType ||
+		type instanceof IntType   || type instanceof UIntType   ||
+		type instanceof LongType  || type instanceof ULongType  ||
+		type instanceof FloatType || type instanceof DoubleType ||
+		type instanceof UCharType
+	}
+
+	//======================================================
+	// Define the method reading all requested attributes
+	// from LabVIEW, called by read_attr_hardware() (LabViewBatchRead).
+	// The queries are sent in one write, then the replies
+	// are read in the same order in attribute read members.
+	// It is not in a protected region, to follow the attribute list.
+	// An attribute still reading its value in its read method
+	// (region generated before the batch read) is not in the batch.
+	//======================================================
+	def batchedAttributes(PogoDeviceClass cls) {
+		cls.concreteAttributes.filter[isRead && !LabViewRegions.hasOwnExchange(cls, it)].toList
+	}
+	//======================================================
+	def labViewReadAttributesMethod(PogoDeviceClass cls) '''
+		void «cls.name»::labViewReadAttributes(vector<long> &attr_list)
+		{
+			if (!tcp_manager)
+				return;
+			vector<string> names;
+			string queries;
+			for (size_t i=0 ; i<attr_list.size() ; i++) {
+				string name = dev_attr->get_attr_by_ind(attr_list[i]).get_name();
+				const char *query = NULL;
+				«FOR Attribute attribute : cls.batchedAttributes»
+					if (name == "«attribute.name»")
+						query = "«attribute.properties.description»?";
+				«ENDFOR»
+				if (query == NULL)
+					continue;
+				if (!queries.empty())
+					queries += "\r\n";
+				queries += query;
+				names.push_back(name);
+			}
+			if (names.empty())
+				return;
+			//	LabVIEW answers each query line with one reply line,
+			//	and each labViewRead() reads one reply line.
+			«IF cls.lockedExchanges»
+				LabViewExchange exchange(health);
+			«ENDIF»
+			labViewWrite<Tango::DevString*>(queries);
+			for (size_t i=0 ; i<names.size() ; i++) {
+				«FOR Attribute attribute : cls.batchedAttributes»
+					if (names[i] == "«attribute.name»")
+						«cls.labViewReadCall(attribute)»;
+				«ENDFOR»
+			}
+		}
+	'''
 	
 	//======================================================
 	// Define read dynamic attribute related method
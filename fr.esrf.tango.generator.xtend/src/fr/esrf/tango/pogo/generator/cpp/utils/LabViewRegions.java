@@ -0,0 +1,133 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator.cpp.utils;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import fr.esrf.tango.pogo.generator.common.StringUtils;
+import fr.esrf.tango.pogo.generator.pr.ProtectedRegionScanner;
+import fr.esrf.tango.pogo.pogoDsl.Attribute;
+import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass;
+
+/**
+ * The LabVIEW exchanges found in the protected regions of an existing
+ * device source file. The regions are kept by the generation,
+ * so the generated code must follow them:
+ * the batch read (LabViewBatchRead) is used only if read_attr_hardware()
+ * calls labViewReadAttributes(), and an attribute whose read method
+ * still does its own exchange is not read in the batch.
+ * A region which is not in the file yet, or empty, will get its default text.
+ *
+ * The file is scanned once per version (path, date and size).
+ */
+public class LabViewRegions {
+
+	private static final Map<String, LabViewRegions> scanned = new HashMap<String, LabViewRegions>();
+	private final long lastModified;
+	private final long length;
+	private final ProtectedRegionScanner.Document document;
+	//===========================================================
+	private LabViewRegions(File file) {
+		lastModified = file.lastModified();
+		length = file.length();
+		ProtectedRegionScanner.Document doc = null;
+		if (file.exists()) {
+			try {
+				doc = ProtectedRegionScanner.forFile(file.getName())
+						.scan(StringUtils.readFile(file.getPath()));
+			}
+			catch (Exception e) {
+				//	Not readable: the merge will report it
+				System.err.println(file + ": " + e);
+			}
+		}
+		document = doc;
+	}
+	//===========================================================
+	/**
+	 * @return the regions of the device source file of specified class
+	 */
+	//===========================================================
+	private static LabViewRegions of(PogoDeviceClass cls) {
+		File file = new File(cls.getDescription().getSourcePath(), cls.getName() + ".cpp");
+		String key = file.getAbsolutePath();
+		synchronized (scanned) {
+			LabViewRegions regions = scanned.get(key);
+			if (regions==null || regions.lastModified!=file.lastModified() || regions.length!=file.length()) {
+				regions = new LabViewRegions(file);
+				scanned.put(key, regions);
+			}
+			return regions;
+		}
+	}
+	//===========================================================
+	/**
+	 * @return the content of a region, null if not found or empty
+	 */
+	//===========================================================
+	private String getContent(String id) {
+		if (document==null)
+			return null;
+		ProtectedRegionScanner.Region region = document.getMarkedRegion(id);
+		if (region==null || region.getContentEnd()<=region.getContentStart())
+			return null;
+		String content = region.getText().substring(
+				region.getContentStart()-region.getStart(), region.getContentEnd()-region.getStart());
+		return (content.trim().isEmpty())? null : content;
+	}
+	//===========================================================
+	/**
+	 * @return true if read_attr_hardware() will call labViewReadAttributes()
+	 */
+	//===========================================================
+	public static boolean callsBatchRead(PogoDeviceClass cls) {
+		String content = of(cls).getContent(cls.getName() + "::read_attr_hardware");
+		return content==null || content.contains("labViewReadAttributes(");
+	}
+	//===========================================================
+	/**
+	 * @return true if the read method of the attribute reads
+	 * 			its value from LabVIEW itself (not batched)
+	 */
+	//===========================================================
+	public static boolean hasOwnExchange(PogoDeviceClass cls, Attribute attribute) {
+		String content = of(cls).getContent(cls.getName() + "::read_" + attribute.getName());
+		return content!=null && content.contains("labViewRead");
+	}
+	//===========================================================
+}
@@ -0,0 +1,565 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator.cpp.utils
+
+import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass
+import fr.esrf.tango.pogo.pogoDsl.Property
+import fr.esrf.tango.pogo.pogoDsl.BooleanType
+import java.util.List
+import static extension fr.esrf.tango.pogo.generator.common.StringUtils.*
+
+//======================================================
+//	LabVIEW communication utilities, following the LabView* properties
+//	of the class model. Their code is the default text of the LABVIEW
+//	COMMUNICATION protected regions, so it is generated only once.
+//======================================================
+class LabViewUtils {
+
+	public static final String HEALTH_PERIOD_PROPERTY = "LabViewHealthPeriod"
+	public static final String BATCH_READ_PROPERTY = "LabViewBatchRead"
+	public static final String BRIDGE_PROPERTY = "LabViewBridge"
+	public static final String SHARED_CONNECTIONS_PROPERTY = "LabViewSharedConnections"
+	public static final String BINARY_FRAMES_PROPERTY = "LabViewBinaryFrames"
+
+	//======================================================
+	//	Returns the default value of a class property, null if not set.
+	//	Changing a setting for an existing class needs to reset the
+	//	LABVIEW COMMUNICATION blocks (delete the region contents,
+	//	they are generated again) or to update them by hand.
+	//======================================================
+	def static String labViewSetting(PogoDeviceClass cls, String name) {
+		for (property : cls.classProperties) {
+			if (property.name==name && !property.defaultPropValue.empty)
+				return property.defaultPropValue.get(0).trim
+		}
+		null
+	}
+	//======================================================
+	//	Returns the health polling period (ms), 0 if disabled.
+	//	LabViewHealthPeriod (ms): the LabVIEW error state is polled
+	//	in a background thread at this period, and always_executed_hook()
+	//	uses the cached state instead of a TCP round trip.
+	//	(0 or not set: the state is read in always_executed_hook())
+	//	The default value selects the generated code, the period used
+	//	is the property value read by init_device() (see healthStart).
+	//======================================================
+	def static int healthPeriod(PogoDeviceClass cls) {
+		val period = getIntegerValue(cls.labViewSetting(HEALTH_PERIOD_PROPERTY))
+		if (period<0) 0 else period
+	}
+	//======================================================
+	def static boolean hasHealthThread(PogoDeviceClass cls) {
+		cls.healthPeriod>0
+	}
+	//======================================================
+	//	Returns true if the health thread and the requests
+	//	share the connection without a bridge: each exchange
+	//	keeps the connection from a query until its replies are read
+	//	(a LabViewExchange in its scope, released even on error).
+	//	A thread still blocked on the connection when the device
+	//	is deleted is left with it (closed when it returns).
+	//======================================================
+	def static boolean lockedExchanges(PogoDeviceClass cls) {
+		cls.hasHealthThread && !cls.pipelinedBridge
+	}
+	//======================================================
+	//	Returns the declaration keeping the connection for
+	//	an exchange (a LabViewExchange in its scope), if needed
+	//======================================================
+	def static String labViewExchange(PogoDeviceClass cls) {
+		if (cls.lockedExchanges) "LabViewExchange exchange(health);\n" else ""
+	}
+	//======================================================
+	//	Returns true if attributes are read in read_attr_hardware():
+	//	requested and kept by the read_attr_hardware region
+	//	of an existing class (see LabViewRegions)
+	//	LabViewBatchRead (true): read_attr_hardware() calls
+	//	labViewReadAttributes() which sends the queries of all requested
+	//	attributes in one write and reads the replies, read_<attr>
+	//	methods only set the value (see Attributes).
+	//	An attribute whose read region still does its own exchange is
+	//	not in the batch. To migrate a class, reset the read_attr_hardware
+	//	region, then the read_<attr> regions (one attribute at a time).
+	//======================================================
+	def static boolean batchRead(PogoDeviceClass cls) {
+		isTrue(cls.labViewSetting(BATCH_READ_PROPERTY)) && LabViewRegions.callsBatchRead(cls)
+	}
+	//======================================================
+	//	Returns true if exchanges go through a LabViewBridge.
+	//	LabViewBridge (pipelined): lines are tagged with a request id,
+	//	written by a writer thread, and replies are matched to the waiting
+	//	callers by a reader thread (generated LabViewBridge.h).
+	//	The device keeps the default serialization model (by device), so
+	//	its requests overlap only with the health thread, or with the
+	//	requests of the devices sharing the connection.
+	//======================================================
+	def static boolean pipelinedBridge(PogoDeviceClass cls) {
+		"pipelined".equals(cls.labViewSetting(BRIDGE_PROPERTY)) || cls.hasSharedConnections
+	}
+	//======================================================
+	//	Returns the max connections per endpoint, 0 if not shared.
+	//	LabViewSharedConnections (n): the devices of the process talking
+	//	to the same LabVIEW endpoint share at most n connections
+	//	(generated LabViewConnections.h), multiplexed by their bridge
+	//	(it implies the pipelined bridge).
+	//======================================================
+	def static int sharedConnections(PogoDeviceClass cls) {
+		val connections = getIntegerValue(cls.labViewSetting(SHARED_CONNECTIONS_PROPERTY))
+		if (connections<0) 0 else connections
+	}
+	//======================================================
+	def static boolean hasSharedConnections(PogoDeviceClass cls) {
+		cls.sharedConnections>0
+	}
+	//======================================================
+	//	Returns true if arrays could be exchanged in binary frames.
+	//	LabViewBinaryFrames (boolean device property): spectrum and image
+	//	values of numeric types use binary frames (generated LabViewFrames.h)
+	//	when the property is true for the device and the VI answers 1
+	//	to "SYSTem:BINary?" at init_device(). Scalars, and all values
+	//	for other VIs, use the text encoding.
+	//======================================================
+	def static boolean binaryFrames(PogoDeviceClass cls) {
+		for (property : cls.deviceProperties) {
+			if (property.name==BINARY_FRAMES_PROPERTY && property.type instanceof BooleanType)
+				return true
+		}
+		false
+	}
+
+	//======================================================
+	//	Returns true if the property is a build setting: it selects
+	//	the generated code, and is not a property of the device server
+	//	(a value set in database would be ignored)
+	//======================================================
+	def static boolean isBuildSetting(Property property) {
+		property.name==BATCH_READ_PROPERTY || property.name==BRIDGE_PROPERTY ||
+			property.name==SHARED_CONNECTIONS_PROPERTY
+	}
+	//======================================================
+	//	Returns the class properties read by the device server
+	//======================================================
+	def static List<Property> runtimeProperties(List<Property> properties) {
+		properties.filter[!isBuildSetting].toList
+	}
+
+	//======================================================
+	//	Includes for the bridge and the health thread
+	//======================================================
+	def labViewIncludes(PogoDeviceClass cls) {
+		(if (cls.hasSharedConnections) "#include \"LabViewConnections.h\"\n"
+		 else if (cls.pipelinedBridge) "#include \"LabViewBridge.h\"\n" else "") +
+		(if (cls.binaryFrames) "#include \"LabViewFrames.h\"\n" else "") +
+		if (cls.hasHealthThread)
+			"#include <thread>\n" +
+			"#include <atomic>\n" +
+			"#include <mutex>\n" +
+			"#include <chrono>\n" +
+			"#include <condition_variable>\n" +
+			"#include <memory>\n"
+		else
+			""
+	}
+	//======================================================
+	//	Data members for the bridge and the health thread
+	//======================================================
+	def labViewDataMembers(PogoDeviceClass cls) {
+		(if (cls.pipelinedBridge) "LabViewBridge *lv_bridge;\n" else "") +
+		(if (cls.binaryFrames) "bool lvBinaryFrames;\n" else "") +
+		if (cls.hasHealthThread) '''
+			//	State shared with the health thread, which could stay
+			//	after the device (see stopHealthThread())
+			struct HealthState {
+				//	Max time to wait for a reply to the health query
+				static const int replyTimeoutMs = 3000;
+				std::mutex mutex;
+				std::condition_variable cond;
+				bool running;
+				bool stopped;
+				int periodMs;
+				//	LabVIEW error state (-1 if not known yet)
+				std::atomic<int> errorState;
+				«IF cls.lockedExchanges»
+					std::shared_ptr<TCPManager> connection;
+					//	Connection owner for an exchange (see LabViewExchange)
+					std::recursive_mutex lv_mutex;
+				«ELSE»
+					LabViewBridge *bridge;
+				«ENDIF»
+				HealthState() : running(false), stopped(false), periodMs(0), errorState(-1) {}
+			};
+			std::shared_ptr<HealthState> health;
+			std::thread *health_thread;
+			«IF cls.lockedExchanges»
+				//	Keeps the connection from a query until its replies are read:
+				//	declared in the scope of each exchange (write, then read)
+				struct LabViewExchange {
+					std::shared_ptr<HealthState> state;
+					std::lock_guard<std::recursive_mutex> lock;
+					LabViewExchange(std::shared_ptr<HealthState> s) : state(s), lock(s->lv_mutex) {}
+				};
+				//	Owns tcp_manager, shared with the health thread
+				std::shared_ptr<TCPManager> lv_connection;
+			«ENDIF»
+		'''.toString
+		else
+			""
+	}
+	//======================================================
+	//	Method prototypes for binary frames and the health thread
+	//======================================================
+	def labViewPrototypes(PogoDeviceClass cls) {
+		(if (cls.binaryFrames)
+			"\ntemplate<typename T>\nvoid labViewReadArray(T* value, long size);\n" +
+			"\nvoid negotiateFrames();\nbool labViewSwitchFrames();\n"
+		else "") +
+		if (cls.hasHealthThread)
+			"\nvoid startHealthThread();\n" +
+			"void stopHealthThread();\n" +
+			"static void pollHealth(std::shared_ptr<HealthState> s);\n" +
+			"void applyHealthState();\n" +
+			(if (cls.lockedExchanges) "void labViewSend(const std::string &line);\nvoid labViewReceive(std::string &line);\n" else "")
+		else
+			""
+	}
+	//======================================================
+	//	Code added in constructors
+	//======================================================
+	def labViewConstructor(PogoDeviceClass cls) {
+		(if (cls.pipelinedBridge) "lv_bridge = NULL;\n" else "") +
+		(if (cls.binaryFrames) "lvBinaryFrames = false;\n" else "") +
+		if (cls.hasHealthThread)
+			"health_thread = NULL;\nhealth.reset(new HealthState());\n"
+		else
+			""
+	}
+	//======================================================
+	//	Code to stop the thread and the bridge before closing connection
+	//======================================================
+	def labViewStop(PogoDeviceClass cls) {
+		(if (cls.hasHealthThread) "stopHealthThread();\n" else "") +
+		if (cls.hasSharedConnections)
+			"LabViewConnections::release(lv_bridge);\nlv_bridge = 0;\ntcp_manager = 0;\n"
+		else if (cls.pipelinedBridge)
+			"delete lv_bridge;\nlv_bridge = 0;\ntcp_manager = 0;\n"
+		else
+			""
+	}
+	//======================================================
+	//	Code to close the connection in delete_device()
+	//======================================================
+	def labViewDisconnect(PogoDeviceClass cls) {
+		cls.labViewStop +
+		if (cls.hasSharedConnections)
+			""
+		else if (cls.lockedExchanges)
+			"lv_connection.reset();\ntcp_manager = 0;\n"
+		else
+			"delete tcp_manager;\ntcp_manager = 0;\n"
+	}
+	//======================================================
+	//	Code to open the connection in init_device()
+	//======================================================
+	def labViewConnect(PogoDeviceClass cls) {
+		cls.labViewStop +
+		(if (cls.hasSharedConnections)
+			"\nlv_bridge = LabViewConnections::acquire(ip, port, " + cls.sharedConnections + ");\n" +
+			"tcp_manager = (lv_bridge)? lv_bridge->getTcpManager() : 0;\n"
+		else
+			(if (cls.lockedExchanges) "lv_connection.reset();\n" else "if (tcp_manager)\ndelete tcp_manager;\n") +
+			"\n\ttcp_manager = new AsioTCPManager(ip, port);\n" +
+			"\t\nif (!tcp_manager->openSocket()) {\ndelete tcp_manager;\ntcp_manager = 0;\n}\n" +
+			if (cls.pipelinedBridge)
+				"if (tcp_manager)\n\tlv_bridge = new LabViewBridge(tcp_manager);\n"
+			else if (cls.lockedExchanges)
+				"lv_connection.reset(tcp_manager);\n"
+			else
+				"") +
+		if (cls.binaryFrames)
+			"negotiateFrames();\n"
+		else
+			""
+	}
+	//======================================================
+	//	Returns the LabVIEW helpers code using the bridge
+	//	and the binary frames if requested
+	//======================================================
+	def labViewIo(PogoDeviceClass cls, String code) {
+		var String io = code
+		if (cls.binaryFrames) {
+			io = io.replace("msg += Encoder::encode1d(value,size);",
+				"if (!lvBinaryFrames || !LabViewFrames::encode(value, size, msg))\n\t\t\t\t" +
+				"msg += Encoder::encode1d(value,size);")
+			io = io.replace("msg += Encoder::encode2d(value, sizex, sizey);",
+				"if (!lvBinaryFrames || !LabViewFrames::encode(value, (long)sizex*sizey, msg))\n\t\t\t\t" +
+				"msg += Encoder::encode2d(value, sizex, sizey);")
+		}
+		if (cls.pipelinedBridge)
+			io = io.replace("tcp_manager->", "lv_bridge->")
+		if (cls.lockedExchanges) {
+			io = io.replace("tcp_manager->write(msg);", "labViewSend(msg);")
+			io = io.replace("tcp_manager->read(msg);", "labViewReceive(msg);")
+			io = io.replace("labViewWrite<Tango::DevString*>(\"SYSTem:ERRor?\");",
+				cls.labViewExchange + "\t\tlabViewWrite<Tango::DevString*>(\"SYSTem:ERRor?\");")
+		}
+		io
+	}
+	//======================================================
+	//	Code to start the thread at the end of init_device
+	//======================================================
+	def healthStart(PogoDeviceClass cls) {
+		if (cls.hasHealthThread) '''
+
+			//	Poll period (ms) from the «HEALTH_PERIOD_PROPERTY» class property,
+			//	if it is not > 0 the state is read before each request
+			string period_name("«HEALTH_PERIOD_PROPERTY»");
+			Tango::DbDatum period_datum =
+				(static_cast<«cls.name»Class *>(get_device_class()))->get_class_property(period_name);
+			Tango::DevLong period = 0;
+			if (!period_datum.is_empty())
+				period_datum >> period;
+			health->periodMs = period;
+			startHealthThread();
+		'''.toString
+		else
+			""
+	}
+	//======================================================
+	//	Code to check the state before each request
+	//======================================================
+	def stateCheck(PogoDeviceClass cls) {
+		if (cls.hasHealthThread)
+			"if(checkForErrorsAndUpdate)\n\tapplyHealthState();\n"
+		else
+			"if(checkForErrorsAndUpdate)\n\tupdateState();\n"
+	}
+	//======================================================
+	//	Methods to read arrays and negotiate binary frames
+	//======================================================
+	def framesMethods(PogoDeviceClass cls) {
+		if (cls.binaryFrames) '''
+
+			template<typename T>
+			void «cls.name»::labViewReadArray(T* value, long size) {
+				if (!tcp_manager)
+					return;
+				string msg;
+				tcp_manager->read(msg);
+				if (!LabViewFrames::decode(msg, value, size))
+					Decoder::decode(msg, value);
+			}
+
+			//	Opt-in by the LabViewBinaryFrames device property
+			//	(read by get_device_property()):
+			//	a VI which does not know "SYSTem:BINary?" would not answer.
+			«IF cls.hasSharedConnections»
+				//	The connection is shared: the frames are negotiated
+				//	once for the endpoint (see LabViewConnections).
+			«ENDIF»
+			void «cls.name»::negotiateFrames() {
+				lvBinaryFrames = false;
+				if (!tcp_manager || !«BINARY_FRAMES_PROPERTY.toFirstLower»)
+					return;
+				«IF cls.hasSharedConnections»
+					int frames = LabViewConnections::framesOf(lv_bridge);
+					if (frames<0) {
+						try {
+							frames = (labViewSwitchFrames())? 1 : 0;
+						}
+						catch (...) {
+							LabViewConnections::setFrames(lv_bridge, -1);
+							throw;
+						}
+						LabViewConnections::setFrames(lv_bridge, frames);
+					}
+					lvBinaryFrames = (frames==1);
+				«ELSE»
+					lvBinaryFrames = labViewSwitchFrames();
+				«ENDIF»
+			}
+
+			//	Returns true if the VI has switched to binary frames
+			bool «cls.name»::labViewSwitchFrames() {
+				«IF cls.lockedExchanges»
+					LabViewExchange exchange(health);
+				«ENDIF»
+				labViewWrite<Tango::DevString*>("SYSTem:BINary?");
+				Tango::DevString* vi_frames = new Tango::DevString[1];
+				labViewRead(vi_frames);
+				bool binary = (atoi(vi_frames[0])==1);
+				delete[](vi_frames);
+				if (binary)
+					labViewWrite<Tango::DevString*>("SYSTem:BINary ON");
+				return binary;
+			}
+		'''.toString
+		else
+			""
+	}
+	//======================================================
+	//	Methods to manage the health thread
+	//======================================================
+	def healthMethods(PogoDeviceClass cls) {
+		if (cls.hasHealthThread) '''
+
+			void «cls.name»::startHealthThread() {
+				if (!tcp_manager || health_thread || health->periodMs<=0)
+					return;
+				health->running = true;
+				«IF cls.lockedExchanges»
+					health->connection = lv_connection;
+				«ELSE»
+					health->bridge = lv_bridge;
+				«ENDIF»
+				health_thread = new std::thread(&«cls.name»::pollHealth, health);
+			}
+
+			//	The thread waits for a reply at most HealthState::replyTimeoutMs.
+			«IF cls.lockedExchanges»
+				//	If still blocked on the connection after that, it is detached
+				//	and keeps the connection and its state until it returns.
+			«ENDIF»
+			void «cls.name»::stopHealthThread() {
+				if (!health_thread)
+					return;
+				std::shared_ptr<HealthState> s = health;
+				std::unique_lock<std::mutex> lock(s->mutex);
+				s->running = false;
+				s->cond.notify_all();
+				«IF cls.lockedExchanges»
+					bool stopped = s->cond.wait_for(lock, std::chrono::milliseconds(HealthState::replyTimeoutMs),
+						[s] { return s->stopped; });
+					lock.unlock();
+					if (stopped)
+						health_thread->join();
+					else
+						health_thread->detach();
+				«ELSE»
+					lock.unlock();
+					health_thread->join();
+				«ENDIF»
+				delete health_thread;
+				health_thread = NULL;
+				//	A new state for the next connection
+				health.reset(new HealthState());
+			}
+
+			//	Does not use the device, which could be deleted before it returns
+			void «cls.name»::pollHealth(std::shared_ptr<HealthState> s) {
+				std::unique_lock<std::mutex> lock(s->mutex);
+				while (s->running) {
+					s->cond.wait_for(lock, std::chrono::milliseconds(s->periodMs));
+					if (!s->running)
+						break;
+					lock.unlock();
+					try {
+						string msg("SYSTem:ERRor?\r\n");
+						bool received = true;
+						«IF cls.lockedExchanges»
+							{
+								//	Requests use the same connection:
+								//	wait for the end of their exchange.
+								std::lock_guard<std::recursive_mutex> lv_lock(s->lv_mutex);
+								s->connection->write(msg);
+								s->connection->read(msg);
+							}
+						«ELSE»
+							//	The bridge matches the reply to this thread
+							s->bridge->write(msg);
+							received = s->bridge->read(msg, HealthState::replyTimeoutMs);
+						«ENDIF»
+						if (received) {
+							Tango::DevString* vi_state = new Tango::DevString[1];
+							Decoder::decode(msg, vi_state);
+							s->errorState = atoi(vi_state[0]);
+							delete[](vi_state);
+						}
+					}
+					catch (...) {
+						//	Connection error, try again at next period
+					}
+					lock.lock();
+				}
+				s->stopped = true;
+				s->cond.notify_all();
+			}
+
+			void «cls.name»::applyHealthState() {
+				if (!tcp_manager) {
+					set_state(Tango::INIT);
+					return;
+				}
+				if (!health_thread) {
+					//	Not polled («HEALTH_PERIOD_PROPERTY» not > 0)
+					updateState();
+					return;
+				}
+				int currLvState = health->errorState;
+				switch (currLvState) {
+				case -1:
+					//	Not polled yet, keep the state read by init_device()
+					return;
+				case 0:
+					set_state(Tango::RUNNING);
+					set_status("No Errors.");
+					return;
+				default:
+					set_state(Tango::FAULT);
+					set_status("Some error(s) occurred!");
+					checkForErrorsAndUpdate = false;
+					return;
+				}
+			}
+			«IF cls.lockedExchanges»
+
+				//	Write to LabVIEW. An exchange (LabViewExchange in the
+				//	caller scope) keeps the connection until its replies are read.
+				void «cls.name»::labViewSend(const std::string &line) {
+					std::lock_guard<std::recursive_mutex> lock(health->lv_mutex);
+					tcp_manager->write(line);
+				}
+
+				//	Read a reply from LabVIEW
+				void «cls.name»::labViewReceive(std::string &line) {
+					std::lock_guard<std::recursive_mutex> lock(health->lv_mutex);
+					tcp_manager->read(line);
+				}
+			«ENDIF»
+		'''.toString
+		else
+			""
+	}
+}
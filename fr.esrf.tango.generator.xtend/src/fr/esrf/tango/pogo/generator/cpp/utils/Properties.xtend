@@ -40,6 +40,8 @@ import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass
 import com.google.inject.Inject
 import static extension fr.esrf.tango.pogo.generator.cpp.utils.CppStringUtils.*
 import static extension fr.esrf.tango.pogo.generator.cpp.utils.CppTypeDefinitions.*
+import static extension fr.esrf.tango.pogo.generator.ModelIndex.*
+import static extension fr.esrf.tango.pogo.generator.cpp.utils.LabViewUtils.*
 
 //======================================================
 //	Attribute utilities
@@ -116,7 +118,7 @@ class Properties {
 		{
 			«cls.protectedAreaClass("get_class_property_before", "Initialize class property data members", true)»
 			//	Read class properties from database.
-			«FOR Property property : cls.classProperties»
+			«FOR Property property : cls.classProperties.runtimeProperties»
 				cl_prop.push_back(Tango::DbDatum("«property.name»"));
 			«ENDFOR»
 			
@@ -126,7 +128,7 @@ class Properties {
 			Tango::DbDatum	def_prop;
 			int	i = -1;
 		
-			«FOR Property property : cls.classProperties»
+			«FOR Property property : cls.classProperties.runtimeProperties»
 				//	Try to extract «property.name» value
 				if (cl_prop[++i].is_empty()==false)	cl_prop[i]  >>  «property.name.dataMemberName»;
 				else
@@ -273,17 +275,13 @@ class Properties {
 			vector<string>	vect_data;
 
 			//	Set Default Class Properties
-			«FOR Property property : cls.classProperties»
-				«IF property.concreteHere»
-					«property.setDefaultPropertyForWizard("class")»
-				«ENDIF»
+			«FOR Property property : cls.concreteClassProperties.runtimeProperties»
+				«property.setDefaultPropertyForWizard("class")»
 			«ENDFOR»
 
 			//	Set Default device Properties
-			«FOR Property property : cls.deviceProperties»
-				«IF property.concreteHere»
-					«property.setDefaultPropertyForWizard("dev")»
-				«ENDIF»
+			«FOR Property property : cls.concreteDeviceProperties»
+				«property.setDefaultPropertyForWizard("dev")»
 			«ENDFOR»
 		}
 	'''
@@ -296,7 +294,7 @@ class Properties {
 		«IF cls.classProperties.size>0»
 		//	Class properties data members
 		public:
-			«FOR Property property : cls.classProperties»
+			«FOR Property property : cls.classProperties.runtimeProperties»
 				//	«property.name»:	«property.description.comments("//  ")»
 				«property.type.cppPropType»	«property.name.dataMemberName»;
 			«ENDFOR»
@@ -35,6 +35,7 @@
 
 package fr.esrf.tango.pogo.generator.html
 
+import fr.esrf.tango.pogo.generator.ModelIndex
 import org.eclipse.emf.ecore.resource.Resource
 import org.eclipse.xtext.generator.IGenerator
 import org.eclipse.xtext.generator.IFileSystemAccess
@@ -48,7 +49,7 @@ class HtmlAttributes  implements IGenerator {
 	@Inject extension HtmlUtils
 
 	override void doGenerate(Resource resource, IFileSystemAccess fsa) {
-		for (cls : resource.allContents.toIterable.filter(typeof(PogoDeviceClass))) {
+		for (cls : ModelIndex.of(resource).deviceClasses) {
 
 			if (cls.description.filestogenerate.contains("html")) {
 				printTrace("Generating doc_html/Attributes.html")
@@ -57,6 +57,8 @@ import fr.esrf.tango.pogo.pogoDsl.Command;
 import fr.esrf.tango.pogo.pogoDsl.State;
 
 public class HtmlUtils extends StringUtils {
+	//	Environment read by isFromClasses2www()
+	public static final String CLASSES2WWW_OPTION = "Classes2www";
 	
 	//===========================================================
 	//===========================================================
@@ -710,7 +712,7 @@ public class HtmlUtils extends StringUtils {
  	//===========================================================
 	//===========================================================
 	static boolean isFromClasses2www() {
-		String str = System.getenv("Classes2www");
+		String str = System.getenv(CLASSES2WWW_OPTION);
 		return (str!=null && str.equals("true"));
 	}
  	//===========================================================
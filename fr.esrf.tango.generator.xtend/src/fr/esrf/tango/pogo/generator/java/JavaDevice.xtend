@@ -35,6 +35,7 @@
 
 package fr.esrf.tango.pogo.generator.java
 
+import fr.esrf.tango.pogo.generator.ModelIndex
 import org.eclipse.emf.ecore.resource.Resource
 import org.eclipse.xtext.generator.IGenerator
 import org.eclipse.xtext.generator.IFileSystemAccess
@@ -48,6 +49,7 @@ import fr.esrf.tango.pogo.generator.common.Headers
 import fr.esrf.tango.pogo.pogoDsl.Property
 import fr.esrf.tango.pogo.pogoDsl.Attribute
 import fr.esrf.tango.pogo.pogoDsl.Command
+import static extension fr.esrf.tango.pogo.generator.ModelIndex.*
 
 class JavaDevice  implements IGenerator {
 
@@ -61,7 +63,7 @@ class JavaDevice  implements IGenerator {
 	@Inject extension Headers
 
 	override void doGenerate(Resource resource, IFileSystemAccess fsa) {
-		for (cls : resource.allContents.toIterable.filter(typeof(PogoDeviceClass))) {
+		for (cls : ModelIndex.of(resource).deviceClasses) {
 			//	Code files
 			if (cls.description.language.toLowerCase.equals("java")) {
 					if (cls.description.filestogenerate.contains("Code files")) {
@@ -238,24 +240,22 @@ class JavaDevice  implements IGenerator {
 	// define code for class properties
 	//======================================================
 	def addClassProperties(PogoDeviceClass cls) '''
-		«FOR Property property : cls.classProperties»
-			«IF property.isConcreteHere»
-				/**
-				 * Class Property «property.name»
-				 * «property.description.comments("* ")»
-				 */
-				@ClassProperty(name="«property.name»", description="«property.description.oneLineString»" «property.defaultValue»)
-				private «property.strJavaType» «property.name.dataMemberName»;
-				/**
-				 * set property «property.name»
-				 * @param  «property.name.dataMemberName»  see description above.
-				 */
-				public void set«property.name»(«property.strJavaType» «property.name.dataMemberName») {
-					this.«property.name.dataMemberName» = «property.name.dataMemberName»;
-					«cls.protectedArea("set" + property.name, "Check property value here", true)»
-				}
+		«FOR Property property : cls.concreteClassProperties»
+			/**
+			 * Class Property «property.name»
+			 * «property.description.comments("* ")»
+			 */
+			@ClassProperty(name="«property.name»", description="«property.description.oneLineString»" «property.defaultValue»)
+			private «property.strJavaType» «property.name.dataMemberName»;
+			/**
+			 * set property «property.name»
+			 * @param  «property.name.dataMemberName»  see description above.
+			 */
+			public void set«property.name»(«property.strJavaType» «property.name.dataMemberName») {
+				this.«property.name.dataMemberName» = «property.name.dataMemberName»;
+				«cls.protectedArea("set" + property.name, "Check property value here", true)»
+			}
 
-			«ENDIF»
 		«ENDFOR»
 	'''
 
@@ -263,24 +263,22 @@ class JavaDevice  implements IGenerator {
 	// define code for device properties
 	//======================================================
 	def addDeviceProperties(PogoDeviceClass cls) '''
-		«FOR Property property : cls.deviceProperties»
-			«IF property.isConcreteHere»
-				/**
-				 * Device Property «property.name»
-				 * «property.description.comments("* ")»
-				 */
-				@DeviceProperty(name="«property.name»", description="«property.description.oneLineString»" «property.defaultValue» «property.isMandatory»)
-				private «property.strJavaType» «property.name.dataMemberName»;
-				/**
-				 * set property «property.name»
-				 * @param  «property.name.dataMemberName»  see description above.
-				 */
-				public void set«property.name»(«property.strJavaType» «property.name.dataMemberName») {
-					this.«property.name.dataMemberName» = «property.name.dataMemberName»;
-					«cls.protectedArea("set" + property.name, "Check property value here", true)»
-				}
+		«FOR Property property : cls.concreteDeviceProperties»
+			/**
+			 * Device Property «property.name»
+			 * «property.description.comments("* ")»
+			 */
+			@DeviceProperty(name="«property.name»", description="«property.description.oneLineString»" «property.defaultValue» «property.isMandatory»)
+			private «property.strJavaType» «property.name.dataMemberName»;
+			/**
+			 * set property «property.name»
+			 * @param  «property.name.dataMemberName»  see description above.
+			 */
+			public void set«property.name»(«property.strJavaType» «property.name.dataMemberName») {
+				this.«property.name.dataMemberName» = «property.name.dataMemberName»;
+				«cls.protectedArea("set" + property.name, "Check property value here", true)»
+			}
 
-			«ENDIF»
 		«ENDFOR»
 	'''
 
@@ -35,6 +35,7 @@
 
 package fr.esrf.tango.pogo.generator.java
 
+import fr.esrf.tango.pogo.generator.ModelIndex
 import org.eclipse.xtext.generator.IGenerator
 import org.eclipse.xtext.generator.IFileSystemAccess
 import com.google.inject.Inject
@@ -61,7 +62,7 @@ class JavaGenerator implements IGenerator {
 		linuxMakefile.doGenerate(resource, fsa)
 		//	IntelliJIDEA project
 		ideaProject.doGenerate(resource, fsa)
-		for (cls : resource.allContents.toIterable.filter(typeof(PogoDeviceClass))) {
+		for (cls : ModelIndex.of(resource).deviceClasses) {
 			if (cls.description.language.toLowerCase.equals("java")) {
 				//	Eclipse Project
 				if (cls.description.filestogenerate.toLowerCase.contains("eclipse")) {
@@ -48,11 +48,13 @@ import fr.esrf.tango.pogo.pogoDsl.Property;
 import fr.esrf.tango.pogo.pogoDsl.Command;
 
 public class JavaUtils extends StringUtils {
+	//	System property read by getUser()
+	public static final String USER_OPTION = "user.name";
 
 	//===========================================================
 	//===========================================================
 	public static String getUser() {
-		String str = System.getProperty("user.name");
+		String str = System.getProperty(USER_OPTION);
 		if (str!=null)
 			return str;
 		return "";
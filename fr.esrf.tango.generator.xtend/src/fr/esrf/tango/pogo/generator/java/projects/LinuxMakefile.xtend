@@ -35,6 +35,7 @@
 
 package fr.esrf.tango.pogo.generator.java.projects
 
+import fr.esrf.tango.pogo.generator.ModelIndex
 import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass
 import org.eclipse.xtext.generator.IGenerator
 import org.eclipse.xtext.generator.IFileSystemAccess
@@ -53,7 +54,7 @@ class LinuxMakefile   implements IGenerator{
 	@Inject	extension JavaUtils
 
 	override void doGenerate(Resource resource, IFileSystemAccess fsa) {
-		for (cls : resource.allContents.toIterable.filter(typeof(PogoDeviceClass))) {
+		for (cls : ModelIndex.of(resource).deviceClasses) {
 			if (cls.description.language.toLowerCase.equals("java")) {
 				if (cls.description.filestogenerate.contains("Makefile")) {
 					fsa.generateFile("Makefile", cls.generateLinuxMakefile)
@@ -35,6 +35,7 @@
 
 package fr.esrf.tango.pogo.generator.java.projects
 
+import fr.esrf.tango.pogo.generator.ModelIndex
 import org.eclipse.emf.ecore.resource.Resource
 import org.eclipse.xtext.generator.IGenerator
 import org.eclipse.xtext.generator.IFileSystemAccess
@@ -44,7 +45,7 @@ import static extension fr.esrf.tango.pogo.generator.java.JavaUtils.*
 class IdeaProject  implements IGenerator {
 
 	override void doGenerate(Resource resource, IFileSystemAccess fsa) {
-		for (cls : resource.allContents.toIterable.filter(typeof(PogoDeviceClass))) {
+		for (cls : ModelIndex.of(resource).deviceClasses) {
 			if (cls.description.language.toLowerCase.equals("java")) {
 				if (cls.description.filestogenerate.contains("pom.xml")) {
 					printTrace("Generating ../../../pom.xml")
@@ -0,0 +1,101 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator.pr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.danieldietrich.protectedregions.core.IDocument;
+import net.danieldietrich.protectedregions.core.IRegionParser;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * A protected region parser based on ProtectedRegionScanner.
+ * It replaces the RegionParserFactory parsers (same regions),
+ * which search every comment and character data start from the cursor
+ * and become quadratic on large files.
+ */
+public class PogoRegionParser implements IRegionParser {
+
+	private final String name;
+	private final ProtectedRegionScanner scanner;
+	private final List<ICommentType> commentTypes;
+	private final List<ICDataType> cdataTypes;
+	//===================================================================================
+	//===================================================================================
+	public PogoRegionParser(String name,
+			ProtectedRegionScanner.CommentType[] commentTypes, ProtectedRegionScanner.CDataType[] cdataTypes) {
+		this.name = name;
+		this.commentTypes = Collections.unmodifiableList(Arrays.<ICommentType>asList(commentTypes));
+		this.cdataTypes = Collections.unmodifiableList(Arrays.<ICDataType>asList(cdataTypes));
+		scanner = new ProtectedRegionScanner(commentTypes, cdataTypes);
+	}
+	//===================================================================================
+	//===================================================================================
+	public IDocument parse(InputStream in) throws IOException {
+		return parse(IOUtils.toString(in));
+	}
+	//===================================================================================
+	//===================================================================================
+	public IDocument parse(CharSequence in) {
+		return scanner.scan(in);
+	}
+	//===================================================================================
+	//===================================================================================
+	public boolean isInverse() {
+		return false;
+	}
+	//===================================================================================
+	//===================================================================================
+	public Iterable<ICommentType> getCommentTypes() {
+		return commentTypes;
+	}
+	//===================================================================================
+	//===================================================================================
+	public Iterable<ICDataType> getCDataTypes() {
+		return cdataTypes;
+	}
+	//===================================================================================
+	//===================================================================================
+	@Override
+	public String toString() {
+		return name;
+	}
+}
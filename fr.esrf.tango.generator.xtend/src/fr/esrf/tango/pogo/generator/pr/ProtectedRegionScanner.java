@@ -0,0 +1,467 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator.pr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.danieldietrich.protectedregions.core.IDocument;
+import net.danieldietrich.protectedregions.core.IRegionParser;
+
+/**
+ * Index all protected regions of a file in one pass.
+ *
+ * The text is split as the RegionParserFactory parsers do:
+ * comments are read from the beginning of the text, character data (strings)
+ * are skipped, and a comment matching a PogoPR marker starts or ends a marked region.
+ * A marked region starts at the opening of the start comment and ends after
+ * the end comment (after the line end for a single line comment).
+ *
+ * The RegionParserFactory parsers search every delimiter again from the cursor
+ * at each step, which is quadratic on large files. Here the next index of each
+ * delimiter is kept until the cursor passes it, and the marker patterns are only
+ * checked on comments containing "PROTECTED": the cost is linear with file size.
+ */
+public class ProtectedRegionScanner {
+
+	private static final String KEY = "PROTECTED";
+	private static final Pattern START = Pattern.compile(
+			"PROTECTED\\s+REGION\\s+ID\\s*\\(\\s*[a-zA-Z\\d_\\.\\s:]*\\s*\\)\\s+(ENABLED\\s+)?START");
+	private static final Pattern END = Pattern.compile("PROTECTED\\s+REGION\\s+END");
+
+	public static final CommentType[] JAVA_COMMENTS   = {
+			new CommentType("/*", "*/"), new CommentType("//", null) };
+	public static final CommentType[] PYTHON_COMMENTS = { new CommentType("#", null) };
+	public static final CommentType[] XML_COMMENTS    = { new CommentType("<!--", "-->") };
+
+	public static final CDataType[] JAVA_CDATA   = {
+			new CDataType("\"", "\"", "\\"), new CDataType("'", "'", "\\") };
+	public static final CDataType[] PYTHON_CDATA = JAVA_CDATA;
+	public static final CDataType[] XML_CDATA    = {
+			new CDataType("<![CDATA[", "]]>", null), new CDataType("\"", "\"", null), new CDataType("'", "'", null) };
+
+	private final CommentType[] commentTypes;
+	private final CDataType[] cdataTypes;
+	//===================================================================================
+	//===================================================================================
+	public ProtectedRegionScanner(CommentType[] commentTypes, CDataType[] cdataTypes) {
+		this.commentTypes = commentTypes;
+		this.cdataTypes = cdataTypes;
+	}
+	//===================================================================================
+	/**
+	 * @param fileName	a generated file name
+	 * @return a scanner for comment syntax of specified file (C++/Java syntax by default)
+	 */
+	//===================================================================================
+	public static ProtectedRegionScanner forFile(String fileName) {
+		if (fileName.endsWith(".py") || fileName.contains("Makefile") || fileName.endsWith("CMakeLists.txt"))
+			return new ProtectedRegionScanner(PYTHON_COMMENTS, PYTHON_CDATA);
+		if (fileName.endsWith(".xml") || fileName.endsWith(".xsd"))
+			return new ProtectedRegionScanner(XML_COMMENTS, XML_CDATA);
+		return new ProtectedRegionScanner(JAVA_COMMENTS, JAVA_CDATA);
+	}
+	//===================================================================================
+	/**
+	 * Split the text in regions.
+	 * @param text	the text to be scanned
+	 * @return a document with marked (protected) and not marked regions.
+	 * @throws IllegalStateException if markers are not balanced, an id is duplicated,
+	 * 			or a comment or character data does not end.
+	 */
+	//===================================================================================
+	public Document scan(CharSequence text) {
+		String code = text.toString();
+		Document document = new Document(code);
+		Delimiters comments = new Delimiters(code, commentTypes);
+		Delimiters cdata = new Delimiters(code, cdataTypes);
+		Delimiters key = new Delimiters(code, new CommentType(KEY, null));
+
+		int marker = 0;			//	start of current region
+		int cursor = 0;			//	parsing position
+		Region current = null;	//	current marked region (null if outside)
+		while (cursor<code.length()) {
+			//	Skip the character data preceding the next comment
+			int opening = comments.next(cursor);
+			int cdataStart = cdata.next(cursor);
+			if (cdataStart>=0 && (opening<0 || cdataStart<=opening)) {
+				cursor = skipCharacterData(code, cdataTypes[cdata.found], cdataStart);
+				continue;
+			}
+			if (opening<0)
+				break;
+
+			//	Read the comment
+			CommentType type = commentTypes[comments.found];
+			int textStart = opening + type.start.length();
+			int textEnd;
+			if (type.end==null) {
+				textEnd = endOfLine(code, textStart);
+				if (textEnd<code.length())
+					cursor = (code.startsWith("\r\n", textEnd))? textEnd+2 : textEnd+1;
+				else
+					cursor = textStart;	//	At end of file, the comment text is parsed again
+			}
+			else {
+				textEnd = code.indexOf(type.end, textStart);
+				if (textEnd<0)
+					throw new IllegalStateException("Comment does not end properly: " + code.substring(opening));
+				cursor = textEnd + type.end.length();
+			}
+			int keyIndex = key.next(textStart);
+			if (keyIndex<0 || keyIndex+KEY.length()>textEnd)
+				continue;	//	Not a marker
+
+			String comment = code.substring(textStart, textEnd);
+			Matcher startMatcher = START.matcher(comment);
+			Matcher endMatcher = END.matcher(comment);
+			boolean isStart = startMatcher.find();
+			boolean isEnd = endMatcher.find();
+			if (current==null && isEnd)
+				throw new IllegalStateException(
+						"Detected marked region end without corresponding marked region start, near [" + comment + "].");
+			if (current==null && isStart || current!=null && isEnd) {
+				if (isStart) {
+					document.add(code, marker, opening, null);
+					current = new Region(code, getId(comment), comment.contains("ENABLED"), startMatcher.group());
+					int lineEnd = code.indexOf('\n', textStart+startMatcher.end());
+					current.contentStart = (lineEnd<0)? code.length() : lineEnd+1;
+					marker = opening;
+				}
+				else {
+					current.contentEnd = code.lastIndexOf('\n', textStart+endMatcher.start());
+					document.add(code, marker, cursor, current);
+					marker = cursor;
+					current = null;
+				}
+			}
+		}
+		if (current!=null)
+			throw new IllegalStateException("Marked region does not end properly. ID: " + current.id);
+		document.add(code, marker, code.length(), null);
+		return document;
+	}
+	//===================================================================================
+	/**
+	 * @return the index following the end of character data starting at specified index.
+	 */
+	//===================================================================================
+	private int skipCharacterData(String code, CDataType type, int index) {
+		for (int i=index+type.start.length() ; i<code.length() ; ) {
+			if (type.escape!=null && code.startsWith(type.escape, i))
+				i += type.escape.length() + 1;
+			else
+			if (code.startsWith(type.end, i))
+				return i + type.end.length();
+			else
+				i++;
+		}
+		throw new IllegalStateException("Character data end '" + type.end + "' not found: " +
+				code.substring(index, endOfLine(code, index)));
+	}
+	//===================================================================================
+	/**
+	 * @return the index of the first '\n' or '\r' from specified index (text length if none)
+	 */
+	//===================================================================================
+	private int endOfLine(String code, int index) {
+		int i = index;
+		while (i<code.length() && code.charAt(i)!='\n' && code.charAt(i)!='\r')
+			i++;
+		return i;
+	}
+	//===================================================================================
+	/**
+	 * @return the id of a start marker comment (as PogoPR does)
+	 */
+	//===================================================================================
+	private String getId(String comment) {
+		int i = comment.indexOf('(');
+		return comment.substring(i+1, comment.indexOf(')', i+1)).trim();
+	}
+	//===================================================================================
+	//===================================================================================
+
+
+
+	//===================================================================================
+	/**
+	 * The next occurrence of a set of delimiters.
+	 * The index of each delimiter is searched again only when the cursor has passed it.
+	 */
+	//===================================================================================
+	private static class Delimiters {
+		private final String code;
+		private final String[] strings;
+		private final int[] indexes;
+		private int found;
+		//===========================================================
+		private Delimiters(String code, Delimiter... delimiters) {
+			this.code = code;
+			strings = new String[delimiters.length];
+			indexes = new int[delimiters.length];
+			for (int i=0 ; i<delimiters.length ; i++) {
+				strings[i] = delimiters[i].getStart();
+				indexes[i] = -2;	//	Not searched yet
+			}
+		}
+		//===========================================================
+		/**
+		 * @return the lowest index of a delimiter from specified position (-1 if none),
+		 * 			the delimiter index is set in found (the first declared wins).
+		 */
+		//===========================================================
+		private int next(int position) {
+			int lowest = -1;
+			found = -1;
+			for (int i=0 ; i<strings.length ; i++) {
+				if (indexes[i]!=-1 && indexes[i]<position)
+					indexes[i] = code.indexOf(strings[i], position);
+				if (indexes[i]>=0 && (lowest<0 || indexes[i]<lowest)) {
+					lowest = indexes[i];
+					found = i;
+				}
+			}
+			return lowest;
+		}
+	}
+	//===================================================================================
+	/**
+	 * A delimited syntax element
+	 */
+	//===================================================================================
+	private interface Delimiter {
+		String getStart();
+	}
+	//===================================================================================
+	/**
+	 * A comment syntax (end is null for single line comment)
+	 */
+	//===================================================================================
+	public static class CommentType implements Delimiter, IRegionParser.ICommentType {
+		private final String start;
+		private final String end;
+		//===========================================================
+		public CommentType(String start, String end) {
+			this.start = start;
+			this.end = end;
+		}
+		//===========================================================
+		public String getStart() {
+			return start;
+		}
+		//===========================================================
+		public String getEnd() {
+			return end;
+		}
+		//===========================================================
+		public boolean isMultiline() {
+			return end!=null;
+		}
+		//===========================================================
+		public boolean isNestable() {
+			return false;
+		}
+	}
+	//===================================================================================
+	/**
+	 * A character data syntax (e.g. string literal), ignored when searching comments
+	 */
+	//===================================================================================
+	public static class CDataType implements Delimiter, IRegionParser.ICDataType {
+		private final String start;
+		private final String end;
+		private final String escape;
+		//===========================================================
+		public CDataType(String start, String end, String escape) {
+			this.start = start;
+			this.end = end;
+			this.escape = escape;
+		}
+		//===========================================================
+		public String getStart() {
+			return start;
+		}
+		//===========================================================
+		public String getEnd() {
+			return end;
+		}
+		//===========================================================
+		public boolean isEscapable() {
+			return escape!=null;
+		}
+		//===========================================================
+		public String getEscapeString() {
+			return escape;
+		}
+	}
+	//===================================================================================
+	/**
+	 * A region of the scanned text (marked if it has an id)
+	 */
+	//===================================================================================
+	public static class Region implements IDocument.IRegion {
+		private final String code;
+		private final String id;
+		private final boolean enabled;
+		private final String marker;
+		private int start;
+		private int end;
+		private int contentStart = -1;
+		private int contentEnd = -1;
+		//===========================================================
+		private Region(String code, String id, boolean enabled, String marker) {
+			this.code = code;
+			this.id = id;
+			this.enabled = enabled;
+			this.marker = marker;
+		}
+		//===========================================================
+		public boolean isMarkedRegion() {
+			return id!=null;
+		}
+		//===========================================================
+		public boolean isEnabled() {
+			return enabled;
+		}
+		//===========================================================
+		public String getId() {
+			return id;
+		}
+		//===========================================================
+		/**
+		 * @return the region text, including start and end comments
+		 */
+		//===========================================================
+		public String getText() {
+			return code.substring(start, end);
+		}
+		//===========================================================
+		/**
+		 * @return the start marker text (e.g. "PROTECTED REGION ID(id) ENABLED START")
+		 */
+		//===========================================================
+		public String getMarker() {
+			return marker;
+		}
+		//===========================================================
+		public int getStart() {
+			return start;
+		}
+		//===========================================================
+		public int getEnd() {
+			return end;
+		}
+		//===========================================================
+		/**
+		 * @return the index of the line following the start marker line
+		 */
+		//===========================================================
+		public int getContentStart() {
+			return contentStart;
+		}
+		//===========================================================
+		/**
+		 * @return the index of the line end preceding the end marker line
+		 */
+		//===========================================================
+		public int getContentEnd() {
+			return contentEnd;
+		}
+		//===========================================================
+		@Override
+		public String toString() {
+			return id;
+		}
+	}
+	//===================================================================================
+	/**
+	 * The list of regions of a scanned text, and the marked ones by id
+	 */
+	//===================================================================================
+	public static class Document implements IDocument {
+		private final String code;
+		private final List<IRegion> regions = new ArrayList<IRegion>();
+		private final Map<String, Region> markedRegions = new HashMap<String, Region>();
+		//===========================================================
+		private Document(String code) {
+			this.code = code;
+		}
+		//===========================================================
+		private void add(String code, int start, int end, Region region) {
+			if (end<=start)
+				return;
+			if (region==null)
+				region = new Region(code, null, false, null);
+			region.start = start;
+			region.end = end;
+			if (region.isMarkedRegion()) {
+				if (markedRegions.containsKey(region.id))
+					throw new IllegalStateException("Duplicate marked region id: " + region.id);
+				markedRegions.put(region.id, region);
+			}
+			regions.add(region);
+		}
+		//===========================================================
+		public Iterable<IRegion> getRegions() {
+			return Collections.unmodifiableList(regions);
+		}
+		//===========================================================
+		public Region getMarkedRegion(String id) {
+			return markedRegions.get(id);
+		}
+		//===========================================================
+		public String getContents() {
+			StringBuilder sb = new StringBuilder(code.length());
+			for (IRegion region : regions)
+				sb.append(region.getText());
+			return sb.toString();
+		}
+		//===========================================================
+		/**
+		 * @return the number of marked regions
+		 */
+		//===========================================================
+		public int getMarkedRegionCount() {
+			return markedRegions.size();
+		}
+	}
+}
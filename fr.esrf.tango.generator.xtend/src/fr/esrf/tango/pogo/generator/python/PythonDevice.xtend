@@ -35,6 +35,7 @@
 
 package fr.esrf.tango.pogo.generator.python
 
+import fr.esrf.tango.pogo.generator.ModelIndex
 import org.eclipse.xtext.generator.IGenerator
 import org.eclipse.emf.ecore.resource.Resource
 import org.eclipse.xtext.generator.IFileSystemAccess
@@ -51,7 +52,7 @@ class PythonDevice implements IGenerator {
 
     override void doGenerate(Resource resource, IFileSystemAccess fsa){
         //println("doGenerate for python")
-        for(cls : resource.allContents.toIterable.filter(typeof(PogoDeviceClass))){
+        for(cls : ModelIndex.of(resource).deviceClasses){
             if (cls.description.filestogenerate.toLowerCase.contains("code files") &&
             	cls.description.language.toLowerCase.equals("python") )    {
                 println("doGenerate for python " + cls.name)
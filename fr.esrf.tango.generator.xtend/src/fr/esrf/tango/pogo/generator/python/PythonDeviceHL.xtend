@@ -35,6 +35,7 @@
 
 package fr.esrf.tango.pogo.generator.python
 
+import fr.esrf.tango.pogo.generator.ModelIndex
 import org.eclipse.xtext.generator.IGenerator
 import org.eclipse.emf.ecore.resource.Resource
 import org.eclipse.xtext.generator.IFileSystemAccess
@@ -49,7 +50,7 @@ class PythonDeviceHL implements IGenerator {
     @Inject    extension ProtectedAreaHL
 
     override void doGenerate(Resource resource, IFileSystemAccess fsa){
-        for(cls : resource.allContents.toIterable.filter(typeof(PogoDeviceClass))){         
+        for(cls : ModelIndex.of(resource).deviceClasses){         
 			//	PythonHl Project Directory
 			if (cls.description.filestogenerate.toLowerCase.contains("python package")) {
 				printTrace("Generating PythonHl project directory")
@@ -0,0 +1,252 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+
+package fr.esrf.tango.pogo.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import net.danieldietrich.protectedregions.support.ProtectedRegionSupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Check that ManifestFileSystemAccess writes only the files whose generated
+ * content has changed, following the POGO_OUTPUT_MODE option.
+ */
+public class ManifestFileSystemAccessTest {
+
+	//	A date which cannot be the one of a file just written
+	private static final long OLD_DATE = 1000000000000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	//===================================================================================
+	//===================================================================================
+	@Before
+	public void setUp() {
+		//	Read from the environment first, it must not be set
+		assumeTrue(System.getenv(ManifestFileSystemAccess.MODE_OPTION)==null);
+	}
+	//===================================================================================
+	//===================================================================================
+	@After
+	public void tearDown() {
+		System.clearProperty(ManifestFileSystemAccess.MODE_OPTION);
+	}
+	//===================================================================================
+	//===================================================================================
+	@Test
+	public void firstGeneration() throws IOException {
+		ManifestFileSystemAccess fsa = generate("Dev.cpp", "code\n", "Dev.h", "header\n");
+		assertEquals(Arrays.asList("Dev.cpp", "Dev.h"), fsa.getWrittenFiles());
+		assertEquals("code\n", read("Dev.cpp"));
+		assertEquals(Arrays.asList("Dev.cpp", "Dev.h"),
+				ManifestFileSystemAccess.getManifestFiles(folder.getRoot().getPath()));
+	}
+	//===================================================================================
+	//===================================================================================
+	@Test
+	public void unchangedFileNotWritten() throws IOException {
+		generate("Dev.cpp", "code\n", "Dev.h", "header\n");
+		setOldDate("Dev.cpp");
+
+		ManifestFileSystemAccess fsa = generate("Dev.cpp", "code\n", "Dev.h", "new header\n");
+		assertEquals(Collections.singletonList("Dev.h"), fsa.getWrittenFiles());
+		assertEquals(1, fsa.getUnchangedCount());
+		assertEquals(OLD_DATE, file("Dev.cpp").lastModified());
+		assertEquals("new header\n", read("Dev.h"));
+	}
+	//===================================================================================
+	/**
+	 * A file modified since generation is written again
+	 */
+	//===================================================================================
+	@Test
+	public void modifiedFileWritten() throws IOException {
+		generate("Dev.cpp", "code\n");
+		write("Dev.cpp", "edited\n");
+		ManifestFileSystemAccess fsa = generate("Dev.cpp", "code\n");
+		assertEquals(Collections.singletonList("Dev.cpp"), fsa.getWrittenFiles());
+		assertEquals("code\n", read("Dev.cpp"));
+
+		//	Removed file
+		assertTrue(file("Dev.cpp").delete());
+		fsa = generate("Dev.cpp", "code\n");
+		assertEquals(Collections.singletonList("Dev.cpp"), fsa.getWrittenFiles());
+	}
+	//===================================================================================
+	//===================================================================================
+	@Test
+	public void checkMode() throws IOException {
+		generate("Dev.cpp", "code\n");
+		System.setProperty(ManifestFileSystemAccess.MODE_OPTION, "check");
+		assertTrue(ManifestFileSystemAccess.isCheckMode());
+
+		ManifestFileSystemAccess fsa = generate("Dev.cpp", "new code\n", "Dev.h", "header\n");
+		assertEquals(0, fsa.getWrittenFiles().size());
+		assertEquals(2, fsa.getSkippedCount());
+		assertEquals("code\n", read("Dev.cpp"));
+		assertFalse(file("Dev.h").exists());
+	}
+	//===================================================================================
+	/**
+	 * A check run neither creates nor updates the manifest
+	 */
+	//===================================================================================
+	@Test
+	public void checkModeKeepsManifest() throws IOException {
+		File manifest = file(ManifestFileSystemAccess.MANIFEST_FILE);
+		System.setProperty(ManifestFileSystemAccess.MODE_OPTION, "check");
+		generate("Dev.cpp", "code\n");
+		assertFalse(manifest.exists());
+
+		System.clearProperty(ManifestFileSystemAccess.MODE_OPTION);
+		generate("Dev.cpp", "code\n");
+		String content = read(ManifestFileSystemAccess.MANIFEST_FILE);
+		setOldDate("Dev.cpp");	//	Hash computed from file
+		System.setProperty(ManifestFileSystemAccess.MODE_OPTION, "check");
+		generate("Dev.cpp", "code\n");
+		assertEquals(content, read(ManifestFileSystemAccess.MANIFEST_FILE));
+	}
+	//===================================================================================
+	//===================================================================================
+	@Test
+	public void alwaysMode() throws IOException {
+		generate("Dev.cpp", "code\n");
+		setOldDate("Dev.cpp");
+		System.setProperty(ManifestFileSystemAccess.MODE_OPTION, "always");
+
+		ManifestFileSystemAccess fsa = generate("Dev.cpp", "code\n");
+		assertEquals(Collections.singletonList("Dev.cpp"), fsa.getWrittenFiles());
+		assertEquals(0, fsa.getUnchangedCount());
+		assertFalse(file("Dev.cpp").lastModified()==OLD_DATE);
+	}
+	//===================================================================================
+	/**
+	 * A deleted output is removed from the manifest
+	 */
+	//===================================================================================
+	@Test
+	public void deletedFile() throws IOException {
+		generate("Dev.cpp", "code\n", "Dev.h", "header\n");
+		ManifestFileSystemAccess fsa = new ManifestFileSystemAccess(new ProtectedRegionSupport());
+		fsa.setOutputPath(folder.getRoot().getPath());
+		fsa.deleteFile("Dev.h");
+		fsa.finish();
+		assertFalse(file("Dev.h").exists());
+		assertEquals(Collections.singletonList("Dev.cpp"),
+				ManifestFileSystemAccess.getManifestFiles(folder.getRoot().getPath()));
+	}
+	//===================================================================================
+	/**
+	 * A misspelled mode is rejected, it does not write the files
+	 */
+	//===================================================================================
+	@Test(expected=IllegalArgumentException.class)
+	public void unknownMode() {
+		System.setProperty(ManifestFileSystemAccess.MODE_OPTION, "chek");
+		generate("Dev.cpp", "code\n");
+	}
+	//===================================================================================
+	/**
+	 * A file changed by a post-processing and recorded by updateManifest()
+	 * is not written again while its generated content does not change.
+	 */
+	//===================================================================================
+	@Test
+	public void postProcessedFile() throws IOException {
+		generate("doc_html/TitleBanner.html", "<table></table>\n");
+		write("doc_html/TitleBanner.html", "<table><td>PDF</td></table>\n");
+		ManifestFileSystemAccess.updateManifest(folder.getRoot().getPath(),
+				"doc_html/TitleBanner.html", file("doc_html/TitleBanner.html"));
+
+		ManifestFileSystemAccess fsa = generate("doc_html/TitleBanner.html", "<table></table>\n");
+		assertEquals(0, fsa.getWrittenFiles().size());
+		assertEquals("<table><td>PDF</td></table>\n", read("doc_html/TitleBanner.html"));
+
+		fsa = generate("doc_html/TitleBanner.html", "<table>new</table>\n");
+		assertEquals(Collections.singletonList("doc_html/TitleBanner.html"), fsa.getWrittenFiles());
+	}
+	//===================================================================================
+	/**
+	 * Generate the files (name, content pairs) as a generation does
+	 */
+	//===================================================================================
+	private ManifestFileSystemAccess generate(String... files) {
+		ManifestFileSystemAccess fsa = new ManifestFileSystemAccess(new ProtectedRegionSupport());
+		fsa.setOutputPath(folder.getRoot().getPath());
+		for (int i=0 ; i<files.length ; i+=2)
+			fsa.generateFile(files[i], files[i+1]);
+		fsa.finish();
+		return fsa;
+	}
+	//===================================================================================
+	//===================================================================================
+	private File file(String fileName) {
+		return new File(folder.getRoot(), fileName);
+	}
+	//===================================================================================
+	//===================================================================================
+	private String read(String fileName) throws IOException {
+		return new String(Files.readAllBytes(file(fileName).toPath()), Charset.defaultCharset());
+	}
+	//===================================================================================
+	//===================================================================================
+	private void write(String fileName, String content) throws IOException {
+		Files.write(file(fileName).toPath(), content.getBytes(Charset.defaultCharset()));
+	}
+	//===================================================================================
+	//===================================================================================
+	private void setOldDate(String fileName) {
+		assertTrue(file(fileName).setLastModified(OLD_DATE));
+	}
+	//===================================================================================
+	//===================================================================================
+}
@@ -0,0 +1,217 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+
+package fr.esrf.tango.pogo.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
+import org.junit.Test;
+
+import fr.esrf.tango.pogo.generator.cpp.utils.InheritanceUtils;
+import fr.esrf.tango.pogo.pogoDsl.Attribute;
+import fr.esrf.tango.pogo.pogoDsl.Command;
+import fr.esrf.tango.pogo.pogoDsl.InheritanceStatus;
+import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass;
+import fr.esrf.tango.pogo.pogoDsl.PogoDslFactory;
+import fr.esrf.tango.pogo.pogoDsl.PogoSystem;
+import fr.esrf.tango.pogo.pogoDsl.Property;
+
+/**
+ * Check that the ModelIndex lists are the members selected
+ * by the status filters the templates used before (InheritanceUtils).
+ */
+public class ModelIndexTest {
+
+	private static final PogoDslFactory factory = PogoDslFactory.eINSTANCE;
+	private static final InheritanceUtils inheritance = new InheritanceUtils();
+	private static final String[] values = { null, "true", "false" };
+	//===================================================================================
+	//===================================================================================
+	@Test
+	public void randomStatus() {
+		Random random = new Random(20141121);
+		for (int i=0 ; i<2000 ; i++)
+			checkIndex(createClass(random, random.nextInt(12)));
+	}
+	//===================================================================================
+	/**
+	 * Members without status are not concrete here
+	 */
+	//===================================================================================
+	@Test
+	public void noStatus() {
+		PogoDeviceClass cls = factory.createPogoDeviceClass();
+		Attribute attribute = factory.createAttribute();
+		Command command = factory.createCommand();
+		Property property = factory.createProperty();
+		cls.getAttributes().add(attribute);
+		cls.getCommands().add(command);
+		cls.getDynamicCommands().add(factory.createCommand());
+		cls.getDeviceProperties().add(property);
+
+		assertEquals(Collections.emptyList(), ModelIndex.concreteAttributes(cls));
+		assertEquals(Collections.singletonList(attribute), ModelIndex.declaredAttributes(cls));
+		assertEquals(Collections.emptyList(), ModelIndex.concreteCommands(cls));
+		assertEquals(Collections.emptyList(), ModelIndex.declaredCommands(cls));
+		assertEquals(Collections.emptyList(), ModelIndex.inheritedCommands(cls));
+		assertEquals(Collections.emptyList(), ModelIndex.concreteDynamicCommands(cls));
+		assertEquals(Collections.emptyList(), ModelIndex.concreteDeviceProperties(cls));
+	}
+	//===================================================================================
+	/**
+	 * The index is built once per resource, and replaced by build()
+	 */
+	//===================================================================================
+	@Test
+	public void sharedIndex() {
+		Random random = new Random(1);
+		PogoSystem system = factory.createPogoSystem();
+		PogoDeviceClass first = createClass(random, 5);
+		PogoDeviceClass second = createClass(random, 5);
+		system.getClasses().add(first);
+		system.getClasses().add(second);
+		Resource resource = new ResourceImpl();
+		resource.getContents().add(system);
+
+		ModelIndex index = ModelIndex.of(resource);
+		assertSame(index, ModelIndex.of(resource));
+		assertEquals(Arrays.asList(first, second), index.getDeviceClasses());
+		assertSame(ModelIndex.of(first), ModelIndex.of(first));
+
+		//	Modified model: the index has to be rebuilt
+		first.getAttributes().add(createAttribute(random));
+		ModelIndex.ClassIndex classIndex = ModelIndex.of(first);
+		assertNotSame(index, ModelIndex.build(resource));
+		assertNotSame(classIndex, ModelIndex.of(first));
+		checkIndex(first);
+	}
+	//===================================================================================
+	//===================================================================================
+	private void checkIndex(PogoDeviceClass cls) {
+		List<Attribute> concreteAttributes = new ArrayList<Attribute>();
+		List<Attribute> declaredAttributes = new ArrayList<Attribute>();
+		for (Attribute attribute : cls.getAttributes()) {
+			if (inheritance.isConcreteHere(attribute))
+				concreteAttributes.add(attribute);
+			if (!inheritance.alreadyOverloaded(attribute))
+				declaredAttributes.add(attribute);
+		}
+		List<Command> concreteCommands = new ArrayList<Command>();
+		List<Command> declaredCommands = new ArrayList<Command>();
+		List<Command> inheritedCommands = new ArrayList<Command>();
+		for (Command command : cls.getCommands()) {
+			if (inheritance.isConcreteHere(command))
+				concreteCommands.add(command);
+			if (inheritance.isAbstract(command) || inheritance.isConcreteHere(command))
+				declaredCommands.add(command);
+			if (inheritance.isConcreteHere(command) && inheritance.isInherited(command))
+				inheritedCommands.add(command);
+		}
+		List<Command> concreteDynamicCommands = new ArrayList<Command>();
+		for (Command command : cls.getDynamicCommands())
+			if (inheritance.isConcreteHere(command))
+				concreteDynamicCommands.add(command);
+
+		assertEquals(concreteAttributes, ModelIndex.concreteAttributes(cls));
+		assertEquals(declaredAttributes, ModelIndex.declaredAttributes(cls));
+		assertEquals(concreteCommands, ModelIndex.concreteCommands(cls));
+		assertEquals(declaredCommands, ModelIndex.declaredCommands(cls));
+		assertEquals(inheritedCommands, ModelIndex.inheritedCommands(cls));
+		assertEquals(concreteDynamicCommands, ModelIndex.concreteDynamicCommands(cls));
+		assertEquals(concreteProperties(cls.getClassProperties()), ModelIndex.concreteClassProperties(cls));
+		assertEquals(concreteProperties(cls.getDeviceProperties()), ModelIndex.concreteDeviceProperties(cls));
+	}
+	//===================================================================================
+	//===================================================================================
+	private List<Property> concreteProperties(List<Property> properties) {
+		List<Property> list = new ArrayList<Property>();
+		for (Property property : properties)
+			if (inheritance.isConcreteHere(property))
+				list.add(property);
+		return list;
+	}
+	//===================================================================================
+	//===================================================================================
+	private PogoDeviceClass createClass(Random random, int size) {
+		PogoDeviceClass cls = factory.createPogoDeviceClass();
+		cls.setName("Dev");
+		for (int i=0 ; i<size ; i++) {
+			cls.getAttributes().add(createAttribute(random));
+			Command command = factory.createCommand();
+			command.setStatus(createStatus(random));
+			cls.getCommands().add(command);
+			command = factory.createCommand();
+			command.setStatus(createStatus(random));
+			cls.getDynamicCommands().add(command);
+			Property property = factory.createProperty();
+			property.setStatus(createStatus(random));
+			cls.getClassProperties().add(property);
+			property = factory.createProperty();
+			property.setStatus(createStatus(random));
+			cls.getDeviceProperties().add(property);
+		}
+		return cls;
+	}
+	//===================================================================================
+	//===================================================================================
+	private Attribute createAttribute(Random random) {
+		Attribute attribute = factory.createAttribute();
+		attribute.setStatus(createStatus(random));
+		return attribute;
+	}
+	//===================================================================================
+	//===================================================================================
+	private InheritanceStatus createStatus(Random random) {
+		InheritanceStatus status = factory.createInheritanceStatus();
+		status.setAbstract(values[random.nextInt(values.length)]);
+		status.setInherited(values[random.nextInt(values.length)]);
+		status.setConcrete(values[random.nextInt(values.length)]);
+		status.setConcreteHere(values[random.nextInt(values.length)]);
+		return status;
+	}
+	//===================================================================================
+	//===================================================================================
+}
@@ -0,0 +1,133 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+
+package fr.esrf.tango.pogo.generator;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Check the files accepted by PogoPathFilter: exact paths, glob patterns,
+ * and the file list built for each language.
+ */
+public class PogoPathFilterTest {
+
+	private static final String TARGET_DIR = "/home/user/Dev";
+	//===================================================================================
+	//===================================================================================
+	@Test
+	public void exactPaths() {
+		PogoPathFilter filter = new PogoPathFilter(Arrays.asList(
+				TARGET_DIR + "/Dev.cpp", TARGET_DIR + "/Makefile"));
+		assertTrue(filter.accept(uri("Dev.cpp")));
+		assertTrue(filter.accept(uri("Makefile")));
+		assertFalse(filter.accept(uri("Dev.h")));
+		assertFalse(filter.accept(uri("sub/Dev.cpp")));
+		assertFalse(filter.accept(uri("Dev.cpp.bak")));
+	}
+	//===================================================================================
+	/**
+	 * '*' and '?' do not match a directory separator, other characters are literal
+	 */
+	//===================================================================================
+	@Test
+	public void globPatterns() {
+		PogoPathFilter filter = new PogoPathFilter(Arrays.asList(
+				TARGET_DIR + "/org/tango/dev/*.java", TARGET_DIR + "/Dev?.py"));
+		assertTrue(filter.accept(uri("org/tango/dev/Dev.java")));
+		assertTrue(filter.accept(uri("org/tango/dev/.java")));
+		assertFalse(filter.accept(uri("org/tango/dev/sub/Dev.java")));
+		assertFalse(filter.accept(uri("org/tango/dev/Dev.javax")));
+		assertTrue(filter.accept(uri("Dev1.py")));
+		assertFalse(filter.accept(uri("Dev.py")));
+		assertFalse(filter.accept(uri("Dev/.py")));
+
+		//	'.' is not a regular expression wildcard
+		assertFalse(filter.accept(uri("Dev1xpy")));
+	}
+	//===================================================================================
+	//===================================================================================
+	@Test
+	public void cppFiles() {
+		PogoPathFilter filter = new PogoPathFilter(context("Cpp"));
+		assertTrue(filter.accept(uri("Dev.cpp")));
+		assertTrue(filter.accept(uri("DevClass.h")));
+		assertTrue(filter.accept(uri("ClassFactory.cpp")));
+		assertTrue(filter.accept(uri("doc_html/ClassDescription.html")));
+		assertFalse(filter.accept(uri("MultiClassesFactory.cpp")));
+	}
+	//===================================================================================
+	/**
+	 * The language name is not case sensitive (MultiCpp), and the factory
+	 * is MultiClassesFactory.cpp
+	 */
+	//===================================================================================
+	@Test
+	public void multiCppFiles() {
+		PogoPathFilter filter = new PogoPathFilter(context("MultiCpp"));
+		assertTrue(filter.accept(uri("MultiClassesFactory.cpp")));
+		assertTrue(filter.accept(uri("Makefile.multi")));
+		assertTrue(filter.accept(uri("doc_html/ClassDescription.html")));
+		assertFalse(filter.accept(uri("MultiClassFactory.cpp")));
+		assertFalse(filter.accept(uri("Dev.cpp")));
+	}
+	//===================================================================================
+	//===================================================================================
+	@Test
+	public void javaFiles() {
+		PogoPathFilter filter = new PogoPathFilter(context("Java"));
+		assertTrue(filter.accept(uri("org/tango/dev/Dev.java")));
+		assertTrue(filter.accept(uri("Makefile")));
+		assertFalse(filter.accept(uri("org/tango/Dev.java")));
+	}
+	//===================================================================================
+	//===================================================================================
+	private static GenerationContext context(String language) {
+		return new GenerationContext(TARGET_DIR, "Dev", language, false);
+	}
+	//===================================================================================
+	//===================================================================================
+	private static URI uri(String fileName) {
+		return URI.create("file:" + TARGET_DIR + "/" + fileName);
+	}
+	//===================================================================================
+	//===================================================================================
+}
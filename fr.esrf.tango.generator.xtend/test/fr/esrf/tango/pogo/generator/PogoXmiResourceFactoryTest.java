@@ -0,0 +1,145 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+
+package fr.esrf.tango.pogo.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.Resource.Factory;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass;
+import fr.esrf.tango.pogo.pogoDsl.PogoDslPackage;
+import fr.esrf.tango.pogo.pogoDsl.PogoSystem;
+
+/**
+ * Check that PogoXmiResourceFactory reads the keys written by older Pogo releases
+ * (htmlInheritance ignored, inheritance element mapped to inheritances)
+ * as the current ones.
+ */
+public class PogoXmiResourceFactoryTest {
+
+	private static final String HEADER =
+			"<?xml version=\"1.0\" encoding=\"ASCII\"?>\n" +
+			"<pogoDsl:PogoSystem xmi:version=\"2.0\" xmlns:xmi=\"http://www.omg.org/XMI\"" +
+			" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"" +
+			" xmlns:pogoDsl=\"http://www.esrf.fr/tango/pogo/PogoDsl\">\n";
+	private static final String FOOTER = "</pogoDsl:PogoSystem>\n";
+	//===================================================================================
+	//===================================================================================
+	@BeforeClass
+	public static void registerPackage() {
+		EPackage.Registry.INSTANCE.put(PogoDslPackage.eNS_URI, PogoDslPackage.eINSTANCE);
+	}
+	//===================================================================================
+	//===================================================================================
+	@Test
+	public void currentKeys() throws IOException {
+		PogoDeviceClass cls = load(new PogoXmiResourceFactory(), model("", "inheritances"));
+		assertEquals("Dev", cls.getName());
+		checkInheritances(cls);
+	}
+	//===================================================================================
+	//===================================================================================
+	@Test
+	public void oldKeys() throws IOException {
+		String code = model(" htmlInheritance=\"false\"", "inheritance");
+		PogoDeviceClass cls = load(new PogoXmiResourceFactory(), code);
+		assertEquals("Dev", cls.getName());
+		checkInheritances(cls);
+
+		//	Not readable without the compatibility handler
+		try {
+			load(new XMIResourceFactoryImpl(), code);
+			fail("old keys loaded by the default factory");
+		}
+		catch (IOException e) {
+			//	Expected (feature not found)
+		}
+	}
+	//===================================================================================
+	/**
+	 * Other unknown keys are still errors
+	 */
+	//===================================================================================
+	@Test(expected=IOException.class)
+	public void unknownKey() throws IOException {
+		load(new PogoXmiResourceFactory(), model(" notInModel=\"false\"", "inheritances"));
+	}
+	//===================================================================================
+	//===================================================================================
+	private static void checkInheritances(PogoDeviceClass cls) {
+		assertEquals(2, cls.getDescription().getInheritances().size());
+		assertEquals("Device_Impl", cls.getDescription().getInheritances().get(0).getClassname());
+		assertEquals("AbstractDev", cls.getDescription().getInheritances().get(1).getClassname());
+		assertEquals("../AbstractDev", cls.getDescription().getInheritances().get(1).getSourcePath());
+	}
+	//===================================================================================
+	/**
+	 * @param classAttributes	attributes added to the classes element
+	 * @param inheritanceTag	the inheritance element name
+	 */
+	//===================================================================================
+	private static String model(String classAttributes, String inheritanceTag) {
+		return HEADER +
+				"  <classes name=\"Dev\" pogoRevision=\"8.1\"" + classAttributes + ">\n" +
+				"    <description description=\"A device\" title=\"Dev\" sourcePath=\"/tmp\" language=\"Cpp\">\n" +
+				"      <" + inheritanceTag + " classname=\"Device_Impl\" sourcePath=\"\"/>\n" +
+				"      <" + inheritanceTag + " classname=\"AbstractDev\" sourcePath=\"../AbstractDev\"/>\n" +
+				"    </description>\n" +
+				"  </classes>\n" +
+				FOOTER;
+	}
+	//===================================================================================
+	//===================================================================================
+	private static PogoDeviceClass load(Factory factory, String code) throws IOException {
+		Resource resource = factory.createResource(URI.createFileURI("/tmp/Dev.xmi"));
+		resource.load(new ByteArrayInputStream(code.getBytes(Charset.forName("US-ASCII"))), null);
+		return ((PogoSystem) resource.getContents().get(0)).getClasses().get(0);
+	}
+	//===================================================================================
+	//===================================================================================
+}
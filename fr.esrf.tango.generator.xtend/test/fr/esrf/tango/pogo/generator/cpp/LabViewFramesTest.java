@@ -0,0 +1,165 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+
+package fr.esrf.tango.pogo.generator.cpp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass;
+import fr.esrf.tango.pogo.pogoDsl.PogoDslFactory;
+
+/**
+ * Check the generated LabViewFrames.h: the frames of known arrays
+ * (#B<byte count> <little-endian bytes in base64>) and the encode/decode round trip.
+ * The header is compiled with g++, the test is skipped if it is not installed.
+ */
+public class LabViewFramesTest {
+
+	//	Frames of the arrays encoded by the program
+	private static final List<String> FRAMES = Arrays.asList(
+			"#B6 AQD+//9/",			//	short   { 1, -2, 32767 }
+			"#B8 AAAAAAAA8D8=",		//	double  { 1.0 }
+			"#B5 AP8HCAk=");		//	uchar   { 0, 255, 7, 8, 9 }
+
+	private static final String PROGRAM =
+			"#include \"LabViewFrames.h\"\n" +
+			"#include <cstdio>\n" +
+			"#include <cstring>\n" +
+			"template<typename T> int check(const T *in, long n) {\n" +
+			"	std::string msg;\n" +
+			"	if (!LabViewFrames::encode(in, n, msg))\n" +
+			"		return 1;\n" +
+			"	std::vector<T> out(n+1);\n" +
+			"	if (!LabViewFrames::decode(msg.substr(0, msg.size()-2), &out[0], n))\n" +
+			"		return 2;\n" +
+			"	return (memcmp(in, &out[0], n*sizeof(T))==0)? 0 : 4;\n" +
+			"}\n" +
+			"template<typename T> void print(const T *in, long n) {\n" +
+			"	std::string msg;\n" +
+			"	LabViewFrames::encode(in, n, msg);\n" +
+			"	printf(\"%s\", msg.c_str());\n" +
+			"}\n" +
+			"int main() {\n" +
+			"	short s[] = { 1, -2, 32767 };\n" +
+			"	double d[] = { 1.0, -1.5, 3.14159, 1e300 };\n" +
+			"	unsigned char c[] = { 0, 255, 7, 8, 9 };\n" +
+			"	long l[] = { -1, 123456789 };\n" +
+			"	float f[] = { 0.5f, -2.25f, 1e-30f };\n" +
+			"	bool b[] = { true };\n" +
+			"	print(s, 3);\n" +
+			"	print(d, 1);\n" +
+			"	print(c, 5);\n" +
+			"	int result = check(s, 3) | check(d, 4) | check(l, 2) | check(f, 3);\n" +
+			"	for (long n=0 ; n<=5 ; n++)\n" +
+			"		result |= check(c, n);\n" +
+			"	std::string msg;\n" +
+			"	if (LabViewFrames::encode(b, 1, msg))\n" +
+			"		result |= 8;	//	no frame for booleans\n" +
+			"	if (LabViewFrames::decode(std::string(\"1.0 2.0\"), d, 4))\n" +
+			"		result |= 16;	//	text reply\n" +
+			"	return result;\n" +
+			"}\n";
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	//===================================================================================
+	//===================================================================================
+	@Test
+	public void roundTrip() throws IOException, InterruptedException {
+		assumeTrue(hasCompiler());
+		PogoDeviceClass cls = PogoDslFactory.eINSTANCE.createPogoDeviceClass();
+		cls.setName("Dev");
+		write("LabViewFrames.h", new LabViewFrames().generateLabViewFramesFile(cls).toString());
+		write("frames.cpp", PROGRAM);
+
+		List<String> output = new ArrayList<String>();
+		int status = run(output, "g++", "-std=c++11", "-Wall", "-o", "frames", "frames.cpp");
+		assertEquals(output.toString(), 0, status);
+
+		output.clear();
+		status = run(output, new File(folder.getRoot(), "frames").getPath());
+		assertEquals(FRAMES, output);
+		assertEquals(0, status);
+	}
+	//===================================================================================
+	//===================================================================================
+	private static boolean hasCompiler() {
+		try {
+			return new ProcessBuilder("g++", "--version").start().waitFor()==0;
+		}
+		catch (IOException | InterruptedException e) {
+			return false;
+		}
+	}
+	//===================================================================================
+	/**
+	 * Run a command in the test folder
+	 * @return the exit status (output lines added to specified list)
+	 */
+	//===================================================================================
+	private int run(List<String> output, String... command) throws IOException, InterruptedException {
+		Process process = new ProcessBuilder(command)
+				.directory(folder.getRoot()).redirectErrorStream(true).start();
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(process.getInputStream(), Charset.defaultCharset()))) {
+			String line;
+			while ((line=reader.readLine())!=null)
+				output.add(line);
+		}
+		return process.waitFor();
+	}
+	//===================================================================================
+	//===================================================================================
+	private void write(String fileName, String content) throws IOException {
+		Files.write(new File(folder.getRoot(), fileName).toPath(), content.getBytes(Charset.defaultCharset()));
+	}
+	//===================================================================================
+	//===================================================================================
+}
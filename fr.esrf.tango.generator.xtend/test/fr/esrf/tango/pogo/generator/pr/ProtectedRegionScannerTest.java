@@ -0,0 +1,199 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  source code for Tango code generator.
+//
+// $Author: verdier $
+//
+// Copyright (C) :  2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//					European Synchrotron Radiation Facility
+//                  BP 220, Grenoble 38043
+//                  FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package fr.esrf.tango.pogo.generator.pr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.Random;
+
+import net.danieldietrich.protectedregions.core.IDocument;
+import net.danieldietrich.protectedregions.core.IRegionParser;
+import net.danieldietrich.protectedregions.core.RegionParserBuilder;
+import net.danieldietrich.protectedregions.core.RegionParserFactory;
+
+import org.junit.Test;
+
+/**
+ * Check that ProtectedRegionScanner splits files as the RegionParserFactory parsers
+ * it replaces (same regions, or an exception for both).
+ */
+public class ProtectedRegionScannerTest {
+
+	private static final IRegionParser javaParser =
+			RegionParserFactory.createJavaParser(new PogoPR(), false);
+	private static final IRegionParser javaScanner = new PogoRegionParser("java",
+			ProtectedRegionScanner.JAVA_COMMENTS, ProtectedRegionScanner.JAVA_CDATA);
+	private static final IRegionParser pythonParser = new RegionParserBuilder().name("python")
+			.addComment("#").ignoreCData('"', '\\').ignoreCData('\'', '\\')
+			.setInverse(false).useOracle(new PogoPR()).build();
+	private static final IRegionParser pythonScanner = new PogoRegionParser("python",
+			ProtectedRegionScanner.PYTHON_COMMENTS, ProtectedRegionScanner.PYTHON_CDATA);
+
+	private static final String START = "/*----- PROTECTED REGION ID(Dev::read) ENABLED START -----*/";
+	private static final String END   = "/*----- PROTECTED REGION END -----*/	//	Dev::read";
+	//===================================================================================
+	//===================================================================================
+	@Test
+	public void generatedCode() {
+		checkJava("#include <Dev.h>\n" +
+				"/*----- PROTECTED REGION ID(Dev.cpp) ENABLED START -----*/\n" +
+				"//	static initializations\n" +
+				"/*----- PROTECTED REGION END -----*/	//	Dev.cpp\n\n" +
+				"void Dev::read(Tango::Attribute &attr)\n{\n" +
+				"	DEBUG_STREAM << \"Dev::read() entering... \" << endl;\n" +
+				"	" + START + "\n" +
+				"	char c = '\\'';\n" +
+				"	" + END + "\n}\n", 5);
+	}
+	//===================================================================================
+	/**
+	 * Marker in a block comment opened on a previous line
+	 */
+	//===================================================================================
+	@Test
+	public void markerInMultiLineComment() {
+		checkJava("/*\n * PROTECTED REGION ID(Dev::init) ENABLED START\n */\n" +
+				"init();\n" +
+				"/*\n PROTECTED REGION END\n*/\nend();\n", 2);
+		checkJava("/* PROTECTED REGION ID(Dev::init)\n START */\ninit();\n/* PROTECTED\nREGION END */\n", 2);
+	}
+	//===================================================================================
+	/**
+	 * Comment openers and markers in string literals are not comments
+	 */
+	//===================================================================================
+	@Test
+	public void commentInString() {
+		checkJava("url = \"http://www.tango-controls.org\";	" + START + "\n" +
+				"s = \"/* not a comment\";\n" +
+				"t = \"" + END + "\";\n" +
+				"c = '\"';	" + END + "\n", 3);
+		checkJava("s = \"a\\\"//b\";	/* PROTECTED REGION ID(x) START */\n" +
+				"/* PROTECTED REGION END */", 2);
+	}
+	//===================================================================================
+	/**
+	 * Single line end marker at end of file (no line end):
+	 * the marked region ends after the comment opener, as with RegionParserFactory parsers.
+	 */
+	//===================================================================================
+	@Test
+	public void endMarkerAtEndOfFile() {
+		checkJava(START + "\ncode();\n//	PROTECTED REGION END", 2);
+		checkJava(START + "\ncode();\n//	PROTECTED REGION END\r\n", 1);
+		checkJava(START + "\r\ncode();\r\n" + END, 2);
+		checkPython("#	PROTECTED REGION ID(Dev.init) ENABLED START\nx = '#'\n#	PROTECTED REGION END", 2);
+	}
+	//===================================================================================
+	//===================================================================================
+	@Test
+	public void malformedCode() {
+		checkJava(START + "\ncode();\n", -1);
+		checkJava(START + "\n" + END + "\n/* not closed\n", -1);
+		checkJava("s = \"not closed;\n" + START + "\n" + END + "\n", -1);
+		checkJava(END + "\n", -1);
+		checkJava(START + "\n" + END + "\n" + START + "\n" + END + "\n", -1);
+	}
+	//===================================================================================
+	/**
+	 * Random sequences of comment, string delimiters and markers
+	 */
+	//===================================================================================
+	@Test
+	public void randomCode() {
+		String[] pieces = { "/*", "*/", "//", "#", "\n", "\r\n", "\r", "\"", "'", "\\", " code ",
+				"PROTECTED REGION ID(a) ENABLED START", "PROTECTED REGION ID(b) START",
+				"PROTECTED REGION END", "PROTECTED\nREGION END" };
+		Random random = new Random(20141121);
+		for (int i=0 ; i<20000 ; i++) {
+			StringBuilder sb = new StringBuilder();
+			int length = random.nextInt(20);
+			for (int j=0 ; j<length ; j++)
+				sb.append(pieces[random.nextInt(pieces.length)]);
+			String code = sb.toString();
+			assertEquals(code, dump(javaParser, code), dump(javaScanner, code));
+			assertEquals(code, dump(pythonParser, code), dump(pythonScanner, code));
+		}
+	}
+	//===================================================================================
+	//===================================================================================
+	private void checkJava(String code, int nbRegions) {
+		check(javaParser, javaScanner, code, nbRegions);
+	}
+	//===================================================================================
+	//===================================================================================
+	private void checkPython(String code, int nbRegions) {
+		check(pythonParser, pythonScanner, code, nbRegions);
+	}
+	//===================================================================================
+	/**
+	 * @param nbRegions	expected number of regions (-1 if parsers must fail)
+	 */
+	//===================================================================================
+	private void check(IRegionParser parser, IRegionParser scanner, String code, int nbRegions) {
+		String expected = dump(parser, code);
+		assertEquals(expected, dump(scanner, code));
+		if (nbRegions<0)
+			assertEquals(null, expected);
+		else {
+			assertNotNull(expected);
+			int count = 0;
+			for (IDocument.IRegion ignored : scanner.parse(code).getRegions())
+				count++;
+			assertEquals(nbRegions, count);
+		}
+	}
+	//===================================================================================
+	/**
+	 * @return the regions as a string, or null if the code cannot be parsed.
+	 */
+	//===================================================================================
+	private String dump(IRegionParser parser, String code) {
+		try {
+			StringBuilder sb = new StringBuilder();
+			for (IDocument.IRegion region : parser.parse(code).getRegions())
+				sb.append('[').append(region.getId()).append(region.isEnabled()? " enabled" : "")
+					.append(']').append(region.getText()).append('\n');
+			return sb.toString();
+		}
+		catch (RuntimeException e) {
+			return null;
+		}
+	}
+	//===================================================================================
+	//===================================================================================
+}
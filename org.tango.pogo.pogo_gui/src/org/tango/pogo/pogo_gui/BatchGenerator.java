@@ -0,0 +1,248 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  java source code to generate many classes in one process.
+//
+// $Author: verdier $
+//
+// Copyright (C) :      2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package org.tango.pogo.pogo_gui;
+
+import fr.esrf.tango.pogo.generator.common.StringUtils;
+import fr.esrf.tango.pogo.pogoDsl.OneClassSimpleDef;
+import fr.esrf.tango.pogo.pogoDsl.PogoMultiClasses;
+import org.tango.pogo.pogo_gui.tools.OAWutils;
+import org.tango.pogo.pogo_gui.tools.PogoException;
+import org.tango.pogo.pogo_gui.tools.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *	This class is able to generate source files for many xmi files
+ *	in one process, using a pool of workers.
+ *	Inputs could be xmi files, directories (searched recursively)
+ *	or glob patterns (e.g. "servers/**.xmi").
+ *	A multi classes project file (.multi.xmi) is expanded to its classes,
+ *	which are generated with the project files (MultiClassesFactory.cpp, Makefile.multi,...).
+ *	Classes and projects not changed since last generation are skipped (see GenerationCache).
+ *	The pool size could be set by POGO_BATCH_THREADS (environment or property).
+ *
+ * @author verdier
+ */
+
+public class BatchGenerator {
+    private static final String THREADS_OPTION = "POGO_BATCH_THREADS";
+    private List<String> xmiFiles;
+    private List<String> projectFiles = new ArrayList<>();
+
+    //===============================================================
+    //===============================================================
+    public BatchGenerator(List<String> inputs) throws PogoException {
+        TreeSet<String> files = new TreeSet<>();   //  Sorted and no duplicate
+        for (String input : inputs)
+            files.addAll(resolveInput(input));
+        if (files.isEmpty() && projectFiles.isEmpty())
+            throw new PogoException("No xmi file found in " + inputs);
+        xmiFiles = new ArrayList<>(files);
+    }
+    //===============================================================
+    /**
+     * Returns the model files of the classes in a multi classes project
+     */
+    //===============================================================
+    static List<String> getClassFiles(String projectFile) throws PogoException {
+        PogoMultiClasses multiClasses = OAWutils.getInstance().loadMultiClassesModel(projectFile);
+        List<String> list = new ArrayList<>();
+        for (OneClassSimpleDef simpleClass : multiClasses.getClasses()) {
+            //  Same rules as MultiClassesTree
+            String fileName = simpleClass.getSourcePath() + "/" + simpleClass.getClassname();
+            if (Utils.isTrue(simpleClass.getPogo6()))
+                fileName += ".h";
+            else
+                fileName += ".xmi";
+            File file = new File(fileName);
+            if (!file.exists())
+                file = new File(Utils.getAbsolutePath(fileName, multiClasses.getSourcePath()));
+            if (!file.exists())
+                throw new PogoException(projectFile + ": no such file: " + fileName);
+            list.add(file.toPath().toAbsolutePath().normalize().toString());
+        }
+        return list;
+    }
+    //===============================================================
+    //===============================================================
+    private static boolean isGlob(String input) {
+        return input.contains("*") || input.contains("?") ||
+                input.contains("[") || input.contains("{");
+    }
+    //===============================================================
+    //===============================================================
+    private static boolean isDeviceClassModel(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(".xmi") && !name.endsWith(".multi.xmi");
+    }
+    //===============================================================
+    /**
+     * Returns the xmi files for specified file, directory or glob pattern
+     */
+    //===============================================================
+    private List<String> resolveInput(String input) throws PogoException {
+        final List<String> list = new ArrayList<>();
+        Path root;
+        final PathMatcher matcher;
+        if (isGlob(input)) {
+            //  Search from the directory before the first wildcard
+            String pattern = new File(input).getAbsolutePath();
+            int wildcard = 0;
+            while ("*?[{".indexOf(pattern.charAt(wildcard))<0)
+                wildcard++;
+            root = Paths.get(pattern.substring(0, pattern.lastIndexOf(File.separatorChar, wildcard)+1));
+            matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        }
+        else {
+            root = Paths.get(input).toAbsolutePath();
+            matcher = null;
+            if (!Files.isDirectory(root)) {
+                if (!Files.exists(root))
+                    throw new PogoException(input + ": file not found");
+                if (root.toString().endsWith(".multi.xmi")) {
+                    projectFiles.add(root.toString());
+                    list.addAll(getClassFiles(root.toString()));
+                }
+                else
+                    list.add(root.toString());
+                return list;
+            }
+        }
+        if (!Files.isDirectory(root))
+            return list;
+
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (isDeviceClassModel(file) && (matcher==null || matcher.matches(file)))
+                        list.add(file.toString());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new PogoException(input + ": " + e);
+        }
+        return list;
+    }
+    //===============================================================
+    //===============================================================
+    private static int getPoolSize() {
+        return Math.max(1, StringUtils.getIntegerOption(THREADS_OPTION,
+                Runtime.getRuntime().availableProcessors()));
+    }
+    //===============================================================
+    /**
+     * Generate source files for all xmi files and display a summary
+     *
+     * @return 0 if all generations succeed, -1 otherwise.
+     */
+    //===============================================================
+    public int generate() {
+        //  Classes and multi classes projects are generated concurrently
+        List<String> files = new ArrayList<>(xmiFiles);
+        files.addAll(projectFiles);
+        int poolSize = Math.min(getPoolSize(), files.size());
+        System.out.println("Generating " + xmiFiles.size() + " classes" +
+                ((projectFiles.isEmpty())? "" : " and " + projectFiles.size() + " multi classes projects") +
+                " with " + poolSize + " workers");
+        long t0 = System.currentTimeMillis();
+
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (final String xmiFile : files) {
+            futures.add(executor.submit(new Callable<Long>() {
+                public Long call() throws Exception {
+                    long start = System.currentTimeMillis();
+                    if (projectFiles.contains(xmiFile))
+                        OAWutils.getInstance().generate(
+                                OAWutils.getInstance().loadMultiClassesModel(xmiFile));
+                    else
+                        Pogo.generateSourceFile(xmiFile);
+                    return System.currentTimeMillis() - start;
+                }
+            }));
+        }
+        executor.shutdown();
+
+        //  Collect results in file order
+        List<String> report = new ArrayList<>();
+        int failed = 0;
+        for (int i=0 ; i<files.size() ; i++) {
+            String xmiFile = files.get(i);
+            try {
+                long time = futures.get(i).get();
+                report.add(" 0\t" + xmiFile + "\t(" + time + " ms)");
+            } catch (ExecutionException e) {
+                failed++;
+                Throwable cause = e.getCause();
+                String message = (cause instanceof PogoException) ?
+                        cause.getMessage() : cause.toString();
+                report.add("-1\t" + xmiFile + "\t" + message.trim());
+            } catch (InterruptedException e) {
+                failed++;
+                report.add("-1\t" + xmiFile + "\tinterrupted");
+            }
+        }
+        long t1 = System.currentTimeMillis();
+
+        System.out.println("===============================================================");
+        for (String line : report)
+            System.out.println(line);
+        System.out.println("===============================================================");
+        System.out.println((files.size()-failed) + " generated, " + failed + " failed  (" +
+                files.size() + " models in " + (t1-t0) + " ms)");
+        return (failed==0)? 0 : -1;
+    }
+    //===============================================================
+    //===============================================================
+}
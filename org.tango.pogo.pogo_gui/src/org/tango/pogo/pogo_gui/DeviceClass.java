@@ -317,7 +317,9 @@ public class DeviceClass {
         //	Load ancestor classes
         try {
             //	Try to load it
+            //  Find the files first (could display a file chooser on this thread)
             EList<Inheritance> inheritances = pogoClass.getDescription().getInheritances();
+            List<String> filenames = new ArrayList<>();
             for (Inheritance inheritance : inheritances) {
                 if (!isDefaultInheritance(inheritance)) {
                     String className = inheritance.getClassname();
@@ -327,15 +329,20 @@ public class DeviceClass {
                                     className + ".xmi";
                     if ((filename = checkInheritanceFile(filename, className)) == null)
                         return false;
-
-                    //	OK. Lo add it
-                    Utils.getInstance().startSplashRefresher(
-                            "Loading  " + Utils.getRelativeFilename(filename));
-                    ancestors.add(new DeviceClass(filename, false));
                     inheritance.setSourcePath(Utils.getPath(filename));
-                    Utils.getInstance().stopSplashRefresher();
+                    filenames.add(filename);
                 }
             }
+            if (filenames.isEmpty())
+                return true;
+
+            //	Then load them concurrently and add them
+            Utils.getInstance().startSplashRefresher("Loading  " + filenames.size() +
+                    ((filenames.size()==1)? " ancestor" : " ancestors"));
+            ModelLoader.loadAll(filenames);
+            for (String filename : filenames)
+                ancestors.add(new DeviceClass(filename, false));
+            Utils.getInstance().stopSplashRefresher();
         } catch (PogoException e) {
             if (PogoGUI.useDisplay) {
                 Utils.getInstance().stopSplashRefresher();
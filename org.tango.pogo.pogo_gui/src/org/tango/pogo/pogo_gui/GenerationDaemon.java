@@ -0,0 +1,427 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  java source code for a local generation service.
+//
+// $Author: verdier $
+//
+// Copyright (C) :      2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package org.tango.pogo.pogo_gui;
+
+import fr.esrf.tango.pogo.generator.common.StringUtils;
+import fr.esrf.tango.pogo.generator.GenerationMetrics;
+import fr.esrf.tango.pogo.generator.PogoGeneratorSession;
+import org.tango.pogo.pogo_gui.tools.OAWutils;
+import org.tango.pogo.pogo_gui.tools.PdfRenderer;
+import org.tango.pogo.pogo_gui.tools.PogoException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ *	This class is a long running generation service, started by pogo -daemon.
+ *	It keeps the generator injector and the loaded models (ModelRepository)
+ *	and generates the files for the requests received on a loopback port.
+ *	The port and a random token are written in ~/.pogo_daemon (readable by user only),
+ *	a request must start with this token.
+ *	pogo -src uses the daemon if this file exists and the daemon answers,
+ *	and generates in its own process otherwise.
+ *	The options changing the generated files (PogoGeneratorSession.getOutputOptions())
+ *	are read from the environment of each process: the daemon refuses a request
+ *	if the options or the generator (Pogo release and build) of the client differ
+ *	from its own, and the client generates itself.
+ *	The port could be set by POGO_DAEMON_PORT (environment or property),
+ *	a free port is used by default.
+ *	The client waits for the daemon answers at most POGO_DAEMON_TIMEOUT seconds
+ *	(environment or property, default is 600, 0 to wait forever).
+ *	A model is answered when its files are written, including the PDF documentation
+ *	rendered in background (see PdfRenderer).
+ *
+ *	Protocol (UTF-8 lines):
+ *		request:	POGO/2 token
+ *					generator release build
+ *					option name=value	(one line per output option set by client)
+ *					src file		(one line per model file)
+ *					(empty line)
+ *		or:			POGO/2 token
+ *					stop
+ *		response:	model file		for each model, followed by
+ *					| json			the generation reports (GenerationMetrics),
+ *					ok ms   or   failed ms message
+ *					end
+ *		or:			refused message		(generator or options differ, bad request)
+ *					end
+ *
+ * @author verdier
+ */
+
+public class GenerationDaemon {
+    private static final String PORT_OPTION = "POGO_DAEMON_PORT";
+    private static final String TIMEOUT_OPTION = "POGO_DAEMON_TIMEOUT";
+    private static final String STATE_FILE = ".pogo_daemon";
+    private static final String PROTOCOL = "POGO/2";
+    private static final int ANSWER_TIMEOUT = 10000;   //  First answer (ms)
+    private static final Charset charset = Charset.forName("UTF-8");
+
+    private final ServerSocket serverSocket;
+    private final String token;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    //===============================================================
+    //===============================================================
+    public GenerationDaemon() throws PogoException {
+        //  Warm up before accepting requests
+        OAWutils.getInstance();
+        PogoGeneratorSession.getInstance();
+
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes)
+            sb.append(String.format("%02x", b & 0xff));
+        token = sb.toString();
+        try {
+            serverSocket = new ServerSocket();
+            serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), getPort()));
+        } catch (IOException e) {
+            throw new PogoException("Cannot start daemon: " + e.getMessage());
+        }
+        writeStateFile();
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                removeStateFile();
+            }
+        });
+    }
+    //===============================================================
+    //===============================================================
+    private static int getPort() {
+        return StringUtils.getIntegerOption(PORT_OPTION, 0);
+    }
+    //===============================================================
+    //===============================================================
+    private static int getTimeout() {
+        return Math.max(0, StringUtils.getIntegerOption(TIMEOUT_OPTION, 600)) * 1000;
+    }
+    //===============================================================
+    /**
+     * @return the Pogo release and the generator build of this process
+     */
+    //===============================================================
+    private static String getGenerator() {
+        return PogoConst.revNumber + " " + PogoGeneratorSession.getBuildId();
+    }
+    //===============================================================
+    //===============================================================
+    private static File getStateFile() {
+        return new File(System.getProperty("user.home"), STATE_FILE);
+    }
+    //===============================================================
+    //===============================================================
+    private void writeStateFile() throws PogoException {
+        File file = getStateFile();
+        Properties properties = new Properties();
+        properties.setProperty("port", Integer.toString(serverSocket.getLocalPort()));
+        properties.setProperty("token", token);
+        try {
+            //  Restrict access before writing the token
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            if (!file.createNewFile())
+                throw new IOException("cannot create file");
+            //noinspection ResultOfMethodCallIgnored
+            file.setReadable(false, false);
+            //noinspection ResultOfMethodCallIgnored
+            file.setReadable(true, true);
+            try (FileOutputStream outputStream = new FileOutputStream(file)) {
+                properties.store(outputStream, "Pogo generation daemon");
+            }
+        } catch (IOException e) {
+            throw new PogoException("Cannot write " + file + ": " + e.getMessage());
+        }
+    }
+    //===============================================================
+    //===============================================================
+    private void removeStateFile() {
+        //  Only if not replaced by another daemon
+        Properties properties = readStateFile();
+        if (properties!=null && token.equals(properties.getProperty("token")))
+            //noinspection ResultOfMethodCallIgnored
+            getStateFile().delete();
+    }
+    //===============================================================
+    //===============================================================
+    private static Properties readStateFile() {
+        File file = getStateFile();
+        if (!file.exists())
+            return null;
+        Properties properties = new Properties();
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            properties.load(inputStream);
+            return properties;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    //===============================================================
+    /**
+     * Accept requests until stopped.
+     */
+    //===============================================================
+    public void run() {
+        System.out.println("Pogo generation daemon listening on " +
+                serverSocket.getLocalSocketAddress());
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                executor.execute(new Runnable() {
+                    public void run() {
+                        manageRequest(socket);
+                    }
+                });
+            } catch (IOException e) {
+                if (!serverSocket.isClosed())
+                    System.err.println(e.getMessage());
+            }
+        }
+        executor.shutdown();
+        removeStateFile();
+    }
+    //===============================================================
+    //===============================================================
+    private void manageRequest(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), charset));
+             PrintWriter writer = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), charset), true)) {
+            String header = reader.readLine();
+            if (header==null || !MessageDigest.isEqual(
+                    header.getBytes(charset), (PROTOCOL + " " + token).getBytes(charset))) {
+                writer.println("refused bad request");
+                writer.println("end");
+                return;
+            }
+            List<String> files = new ArrayList<>();
+            Map<String, String> options = new TreeMap<>();
+            String generator = null;
+            String line;
+            while ((line=reader.readLine())!=null && !line.isEmpty()) {
+                if (line.equals("stop")) {
+                    writer.println("end");
+                    serverSocket.close();
+                    return;
+                }
+                if (line.startsWith("src "))
+                    files.add(line.substring("src ".length()));
+                else
+                if (line.startsWith("generator "))
+                    generator = line.substring("generator ".length());
+                else
+                if (line.startsWith("option ")) {
+                    String option = line.substring("option ".length());
+                    int index = option.indexOf('=');
+                    if (index>0)
+                        options.put(option.substring(0, index), option.substring(index+1));
+                }
+            }
+            //  Generated files must not depend on which process generates them
+            String difference = compareOptions(options, PogoGeneratorSession.getOutputOptions());
+            if (!getGenerator().equals(generator))
+                difference = "(generator differs: " + getGenerator() + ")";
+            if (difference!=null) {
+                writer.println("refused " + difference);
+                writer.println("end");
+                return;
+            }
+            for (String file : files)
+                generate(file, writer);
+            writer.println("end");
+        } catch (IOException e) {
+            System.err.println("Request failed: " + e.getMessage());
+        }
+    }
+    //===============================================================
+    /**
+     * @return a message if client and daemon options differ, null otherwise
+     */
+    //===============================================================
+    private static String compareOptions(Map<String, String> clientOptions, Map<String, String> options) {
+        if (clientOptions.equals(options))
+            return null;
+        Set<String> names = new TreeSet<>(clientOptions.keySet());
+        names.addAll(options.keySet());
+        StringBuilder sb = new StringBuilder("(options differ:");
+        for (String name : names) {
+            String value = options.get(name);
+            if (value==null ? clientOptions.get(name)!=null : !value.equals(clientOptions.get(name)))
+                sb.append(' ').append(name);
+        }
+        return sb.append(')').toString();
+    }
+    //===============================================================
+    //===============================================================
+    private void generate(String fileName, PrintWriter writer) {
+        writer.println("model " + fileName);
+        long t0 = System.currentTimeMillis();
+        String error = null;
+        GenerationMetrics.startCollecting();
+        try {
+            if (fileName.endsWith(".multi.xmi")) {
+                if (new BatchGenerator(Collections.singletonList(fileName)).generate()!=0)
+                    error = fileName + ": generation failed";
+                for (String classFile : BatchGenerator.getClassFiles(fileName))
+                    PdfRenderer.waitFor(new File(classFile).getParent());
+            }
+            else {
+                DeviceClass deviceClass = Pogo.generateSourceFile(fileName);
+                PdfRenderer.waitFor(deviceClass.getPogoDeviceClass().getDescription().getSourcePath());
+            }
+        } catch (PogoException e) {
+            error = e.getMessage();
+        } catch (Exception e) {
+            e.printStackTrace();
+            error = e.toString();
+        }
+        for (String report : GenerationMetrics.stopCollecting())
+            for (String line : report.split("\n"))
+                writer.println("| " + line);
+        long t1 = System.currentTimeMillis();
+        if (error==null)
+            writer.println("ok " + (t1-t0));
+        else
+            writer.println("failed " + (t1-t0) + " " + error.replace('\n', ' '));
+    }
+    //===============================================================
+    /**
+     * Send the files to the daemon if it is running.
+     *
+     * @param fileNames the model files to be generated
+     * @return true if generation succeed, false if failed,
+     *          or null if the daemon is not running or has refused the request
+     */
+    //===============================================================
+    public static Boolean generate(List<String> fileNames) {
+        List<String> lines = new ArrayList<>();
+        lines.add("generator " + getGenerator());
+        for (Map.Entry<String, String> option : PogoGeneratorSession.getOutputOptions().entrySet())
+            lines.add("option " + option.getKey() + "=" + option.getValue());
+        for (String fileName : fileNames)
+            lines.add("src " + new File(fileName).getAbsolutePath());
+        return sendRequest(lines);
+    }
+    //===============================================================
+    /**
+     * Stop the daemon if it is running
+     *
+     * @return true if it was running
+     */
+    //===============================================================
+    public static boolean stop() {
+        return sendRequest(Collections.singletonList("stop"))!=null;
+    }
+    //===============================================================
+    //===============================================================
+    private static Boolean sendRequest(List<String> lines) {
+        Properties properties = readStateFile();
+        if (properties==null)
+            return null;
+        boolean ok = true;
+        boolean answered = false;
+        try (Socket socket = new Socket()) {
+            int port = Integer.parseInt(properties.getProperty("port", "0"));
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1000);
+            socket.setSoTimeout(ANSWER_TIMEOUT);
+            PrintWriter writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), charset), true);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), charset));
+            writer.println(PROTOCOL + " " + properties.getProperty("token"));
+            for (String line : lines)
+                writer.println(line);
+            writer.println();
+
+            //  Print the results
+            String line;
+            boolean ended = false;
+            while (!ended && (line=reader.readLine())!=null) {
+                //  "failed 0 bad request" is the answer of a POGO/1 daemon
+                if (line.startsWith("refused ") || (!answered && line.equals("failed 0 bad request"))) {
+                    System.out.println("Pogo generation daemon " + line + ", generating here");
+                    return null;
+                }
+                if (!answered) {
+                    //  Request accepted: wait for the generation
+                    answered = true;
+                    socket.setSoTimeout(getTimeout());
+                }
+                if (line.startsWith("failed ")) {
+                    System.err.println(line);
+                    ok = false;
+                }
+                else
+                    System.out.println(line);
+                ended = line.equals("end");
+            }
+            if (!ended)
+                return false;   //  Daemon stopped during generation
+        } catch (SocketTimeoutException e) {
+            System.err.println("Pogo generation daemon does not answer");
+            //  Generate here only if the request has not been accepted
+            return (answered)? Boolean.FALSE : null;
+        } catch (IOException | NumberFormatException e) {
+            //  Not running (state file left by a killed daemon ?)
+            return null;
+        }
+        return ok;
+    }
+    //===============================================================
+    //===============================================================
+}
@@ -0,0 +1,234 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  java source code to generate in background from the GUI.
+//
+// $Author: verdier $
+//
+// Copyright (C) :      2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package org.tango.pogo.pogo_gui;
+
+import fr.esrf.tango.pogo.generator.GenerationMonitor;
+import fr.esrf.tango.pogo.generator.ManifestFileSystemAccess;
+import org.tango.pogo.pogo_gui.tools.PogoException;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ *	This class runs a generation (xmi save, code generation and post processing)
+ *	on a background thread, and displays its progress file by file
+ *	in a dialog with a Cancel button.
+ *	The dialog is modal for its window only: the model cannot be modified
+ *	during generation, but the GUI is still refreshed and other windows usable.
+ *	Generations of the same project are serialized.
+ *
+ * @author verdier
+ */
+
+public class GenerationWorker implements GenerationMonitor {
+    private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Pogo generation");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private static final Map<String, Object> projectLocks = new HashMap<>();
+
+    private final JDialog dialog;
+    private final JLabel label = new JLabel();
+    private final JProgressBar progressBar = new JProgressBar();
+    private final JButton cancelButton = new JButton("Cancel");
+    private final String projectFile;
+    private volatile boolean canceled = false;
+    private int fileCount = 0;
+    //===============================================================
+    /**
+     * @param parent      the window of the model
+     * @param projectFile the xmi file of the class or project to be generated
+     */
+    //===============================================================
+    public GenerationWorker(Window parent, String projectFile) {
+        this.projectFile = projectFile;
+        dialog = new JDialog(parent, "Generate " + new File(projectFile).getName(),
+                Dialog.ModalityType.DOCUMENT_MODAL);
+        dialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        dialog.addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent event) {
+                cancel();
+            }
+        });
+        cancelButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent event) {
+                cancel();
+            }
+        });
+
+        //  Number of files unknown: use the previous generation if any
+        List<String> files = ManifestFileSystemAccess.getManifestFiles(new File(projectFile).getParent());
+        if (files==null || files.isEmpty())
+            progressBar.setIndeterminate(true);
+        else
+            progressBar.setMaximum(files.size());
+        progressBar.setStringPainted(false);
+        label.setText("Waiting for previous generation...");
+        label.setPreferredSize(new Dimension(400, label.getPreferredSize().height));
+
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(label, BorderLayout.NORTH);
+        panel.add(progressBar, BorderLayout.CENTER);
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(cancelButton);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+        dialog.getContentPane().add(panel);
+        dialog.pack();
+        dialog.setLocationRelativeTo(parent);
+    }
+    //===============================================================
+    //===============================================================
+    private static Object getProjectLock(String projectFile) {
+        String key;
+        try {
+            key = new File(projectFile).getCanonicalPath();
+        } catch (IOException e) {
+            key = new File(projectFile).getAbsolutePath();
+        }
+        synchronized (projectLocks) {
+            Object lock = projectLocks.get(key);
+            if (lock==null) {
+                lock = new Object();
+                projectLocks.put(key, lock);
+            }
+            return lock;
+        }
+    }
+    //===============================================================
+    /**
+     * Run the generation in background and display the progress dialog.
+     * Must be called by the event dispatch thread, returns when generation is done.
+     *
+     * @param generation the generation to be done
+     * @throws PogoException if generation failed or has been canceled
+     */
+    //===============================================================
+    public void execute(final Callable<Void> generation) throws PogoException {
+        Future<Void> future = executor.submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                try {
+                    synchronized (getProjectLock(projectFile)) {
+                        setMessage("Generating...");
+                        ManifestFileSystemAccess.setMonitor(GenerationWorker.this);
+                        try {
+                            return generation.call();
+                        } finally {
+                            ManifestFileSystemAccess.setMonitor(null);
+                        }
+                    }
+                } finally {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            dialog.dispose();
+                        }
+                    });
+                }
+            }
+        });
+        //  Modal: returns when disposed at end of generation
+        dialog.setVisible(true);
+
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            throw new PogoException("Generation interrupted");
+        } catch (ExecutionException e) {
+            if (canceled)
+                throw new PogoException("Generation canceled\n(files already generated have been kept)");
+            Throwable cause = e.getCause();
+            if (cause instanceof PogoException)
+                throw (PogoException) cause;
+            cause.printStackTrace();
+            throw new PogoException(cause.toString());
+        }
+    }
+    //===============================================================
+    //===============================================================
+    private void cancel() {
+        canceled = true;
+        cancelButton.setEnabled(false);
+        label.setText("Canceling...");
+    }
+    //===============================================================
+    //===============================================================
+    private void setMessage(final String message) {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                if (!canceled)
+                    label.setText(message);
+            }
+        });
+    }
+    //===============================================================
+    //===============================================================
+    public void fileGenerated(final String fileName, final String status) {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                fileCount++;
+                if (!progressBar.isIndeterminate())
+                    progressBar.setValue(Math.min(fileCount, progressBar.getMaximum()));
+                if (!canceled)
+                    label.setText(fileCount + ":  " + fileName + "  (" + status + ")");
+            }
+        });
+    }
+    //===============================================================
+    //===============================================================
+    public boolean isCanceled() {
+        return canceled;
+    }
+    //===============================================================
+    //===============================================================
+}
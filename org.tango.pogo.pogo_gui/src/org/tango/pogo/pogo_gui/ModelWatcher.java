@@ -0,0 +1,283 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description:  java source code to regenerate classes when their model changes.
+//
+// $Author: verdier $
+//
+// Copyright (C) :      2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package org.tango.pogo.pogo_gui;
+
+import fr.esrf.tango.pogo.generator.common.StringUtils;
+import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass;
+import org.tango.pogo.pogo_gui.tools.ModelLoader;
+import org.tango.pogo.pogo_gui.tools.OAWutils;
+import org.tango.pogo.pogo_gui.tools.PogoException;
+import org.tango.pogo.pogo_gui.tools.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ *	This class watches directories (started by pogo -watch) and regenerates
+ *	the classes and multi classes projects when their xmi file changes.
+ *	The classes inheriting from a changed class and the projects containing
+ *	a changed class are regenerated too.
+ *	Changes are collected until no file changed during a delay
+ *	(an editor or Pogo could write a file many times),
+ *	then they are generated by BatchGenerator in this process.
+ *	The delay could be set by POGO_WATCH_DELAY (ms, environment or property).
+ *
+ * @author verdier
+ */
+
+public class ModelWatcher {
+    private static final String DELAY_OPTION = "POGO_WATCH_DELAY";
+    private static final int DEFAULT_DELAY = 500;
+
+    private final List<Path> roots = new ArrayList<>();
+    private final long delay;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    //  Model file -> files it depends on (ancestors of a class, or classes of a project)
+    private final Map<String, Set<String>> dependencies = new HashMap<>();
+    //  Model file -> its date after last generation (xmi files are also written by generation)
+    private final Map<String, Long> generatedDates = new HashMap<>();
+
+    //===============================================================
+    //===============================================================
+    public ModelWatcher(List<String> inputs) throws PogoException {
+        if (inputs.isEmpty())
+            inputs = Collections.singletonList(".");
+        for (String input : inputs) {
+            Path root = Paths.get(input).toAbsolutePath().normalize();
+            if (!Files.isDirectory(root))
+                throw new PogoException(input + ": not a directory");
+            roots.add(root);
+        }
+        delay = getDelay();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for (Path root : roots)
+                register(root);
+        } catch (IOException e) {
+            throw new PogoException("Cannot watch " + inputs + ": " + e);
+        }
+    }
+    //===============================================================
+    //===============================================================
+    private static long getDelay() {
+        return StringUtils.getIntegerOption(DELAY_OPTION, DEFAULT_DELAY);
+    }
+    //===============================================================
+    //===============================================================
+    private static boolean isModelFile(Path path) {
+        return path.getFileName().toString().endsWith(".xmi");
+    }
+    //===============================================================
+    /**
+     * Watch a directory and its sub directories, and read the models found.
+     */
+    //===============================================================
+    private void register(Path root) throws IOException {
+        final List<String> models = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                //  Skip hidden directories (.git, .svn, ...)
+                if (dir.getFileName()!=null && dir.getFileName().toString().startsWith("."))
+                    return FileVisitResult.SKIP_SUBTREE;
+                directories.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+                return FileVisitResult.CONTINUE;
+            }
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (isModelFile(file))
+                    models.add(file.toString());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        for (String model : models)
+            readDependencies(model);
+    }
+    //===============================================================
+    /**
+     * Read the files a model depends on.
+     *
+     * @return false if the file is not a Pogo model
+     */
+    //===============================================================
+    private boolean readDependencies(String fileName) {
+        Set<String> files = new HashSet<>();
+        try {
+            if (fileName.endsWith(".multi.xmi"))
+                files.addAll(BatchGenerator.getClassFiles(fileName));
+            else {
+                PogoDeviceClass pogoClass = OAWutils.getInstance().loadDeviceClassModel(fileName);
+                for (String ancestor : ModelLoader.getAncestorFiles(pogoClass, Utils.getPath(fileName)))
+                    files.add(Paths.get(ancestor).toAbsolutePath().normalize().toString());
+            }
+        } catch (PogoException e) {
+            System.err.println(fileName + ": " + e.getMessage());
+            dependencies.remove(fileName);
+            return false;
+        }
+        dependencies.put(fileName, files);
+        return true;
+    }
+    //===============================================================
+    /**
+     * Returns specified files and the models depending on them.
+     */
+    //===============================================================
+    private Set<String> addDependants(Set<String> files) {
+        Set<String> result = new TreeSet<>(files);
+        boolean added = true;
+        while (added) {
+            added = false;
+            for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+                if (!result.contains(entry.getKey()) && !Collections.disjoint(entry.getValue(), result)) {
+                    result.add(entry.getKey());
+                    added = true;
+                }
+            }
+        }
+        return result;
+    }
+    //===============================================================
+    /**
+     * Watch until interrupted.
+     */
+    //===============================================================
+    public void run() {
+        System.out.println("Watching " + roots + "  (" + dependencies.size() + " models)");
+        Set<String> changedFiles = new TreeSet<>();
+        while (true) {
+            WatchKey key;
+            try {
+                if (changedFiles.isEmpty())
+                    key = watchService.take();
+                else
+                    key = watchService.poll(delay, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (key==null) {
+                //  Nothing changed during delay
+                regenerate(changedFiles);
+                changedFiles.clear();
+                continue;
+            }
+
+            Path dir = directories.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind()==OVERFLOW) {
+                    System.err.println("Too many changes, some could have been lost");
+                    continue;
+                }
+                Path path = dir.resolve((Path) event.context());
+                if (event.kind()==ENTRY_DELETE)
+                    dependencies.remove(path.toString());
+                else
+                if (event.kind()==ENTRY_CREATE && Files.isDirectory(path)) {
+                    try {
+                        register(path);
+                    } catch (IOException e) {
+                        System.err.println("Cannot watch " + path + ": " + e);
+                    }
+                }
+                else
+                if (isModelFile(path))
+                    changedFiles.add(path.toString());
+            }
+            if (!key.reset())
+                directories.remove(key);
+        }
+    }
+    //===============================================================
+    //===============================================================
+    private void regenerate(Set<String> changedFiles) {
+        Set<String> files = new TreeSet<>();
+        for (String fileName : changedFiles) {
+            //  Written by previous generation ?
+            Long date = generatedDates.get(fileName);
+            if (date!=null && date==new File(fileName).lastModified())
+                continue;
+            if (Files.exists(Paths.get(fileName)) && readDependencies(fileName))
+                files.add(fileName);
+        }
+        if (files.isEmpty())
+            return;
+
+        Set<String> affected = addDependants(files);
+        System.out.println("Changed: " + files);
+        Set<String> dependants = new TreeSet<>(affected);
+        dependants.removeAll(files);
+        if (!dependants.isEmpty())
+            System.out.println("Dependants: " + dependants);
+        try {
+            new BatchGenerator(new ArrayList<>(affected)).generate();
+        } catch (PogoException e) {
+            System.err.println(e.getMessage());
+        }
+
+        //  Do not generate again for files written by this generation
+        Set<String> written = new HashSet<>(affected);
+        for (String fileName : affected)
+            if (fileName.endsWith(".multi.xmi") && dependencies.containsKey(fileName))
+                written.addAll(dependencies.get(fileName));
+        for (String fileName : written)
+            generatedDates.put(fileName, new File(fileName).lastModified());
+    }
+    //===============================================================
+    //===============================================================
+}
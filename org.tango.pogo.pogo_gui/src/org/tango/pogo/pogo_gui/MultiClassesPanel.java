@@ -50,6 +50,7 @@ import java.awt.event.MouseEvent;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 //=======================================================
 /**
@@ -484,7 +485,16 @@ public class MultiClassesPanel extends JFrame {
                     oneClass.setSourcePath(classPath);
                 }
                 multiClasses.setFilestogenerate(dialog.getGenerated());
-                OAWutils.getInstance().generate(multiClasses);
+
+                //  Generate in background, with progress and cancel
+                final PogoMultiClasses generated = multiClasses;
+                new GenerationWorker(this, serverPath + "/" + multiClasses.getName() + ".multi.xmi")
+                        .execute(new Callable<Void>() {
+                            public Void call() throws Exception {
+                                OAWutils.getInstance().generate(generated);
+                                return null;
+                            }
+                        });
                 tree.setModified(false);
                 setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
 
@@ -622,10 +632,11 @@ public class MultiClassesPanel extends JFrame {
         }
         if (parent.isVisible())
             setVisible(false);
-        else if (tree == null)
-            System.exit(0);
-        else if (tree.allEditorsAreClosed())
+        else if (tree == null || tree.allEditorsAreClosed()) {
+            //  Wait for PDF renderings before exiting
+            PdfRenderer.waitForAll();
             System.exit(0);
+        }
         else
             setVisible(false);
     }
@@ -74,6 +74,8 @@ public class MultiClassesTree extends JTree {
         this.parent = parent;
 
         initComponents();
+        //  Start loading classes and ancestors while building tree
+        ModelLoader.prefetch(multiClasses);
         buildTree(new TangoServer(multiClasses));
         createClassNodes(root, multiClasses.getClasses());
         expandChildren(root);
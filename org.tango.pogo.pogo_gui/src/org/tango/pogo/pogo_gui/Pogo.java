@@ -37,6 +37,7 @@ package org.tango.pogo.pogo_gui;
 
 import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass;
 import org.tango.pogo.pogo_gui.tools.OAWutils;
+import org.tango.pogo.pogo_gui.tools.PdfRenderer;
 import org.tango.pogo.pogo_gui.tools.PogoException;
 import org.tango.pogo.pogo_gui.tools.PogoProperty;
 import org.tango.pogo.pogo_gui.tools.Utils;
@@ -44,6 +45,7 @@ import org.tango.pogo.pogo_gui.tools.Utils;
 import javax.swing.*;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.tango.pogo.pogo_gui.PogoConst.Python;
@@ -62,7 +64,10 @@ public class Pogo {
     private static final int GENE_SPHINX = 2;
     private static final int MULTI = 3;
     private static final int HELP = 4;
-    private static final String[] known_actions = {"-src", "-html", "-sphinx", "-multi", "-?"};
+    private static final int BATCH = 5;
+    private static final int DAEMON = 6;
+    private static final int WATCH = 7;
+    private static final String[] known_actions = {"-src", "-html", "-sphinx", "-multi", "-?", "-batch", "-daemon", "-watch"};
 
     private DeviceClass deviceClass = null;
     private PogoException pogoException = null;
@@ -110,9 +115,9 @@ public class Pogo {
     }
     //===============================================================
     //===============================================================
-    private String getPythonGeneratedFile(PogoDeviceClass pogoClass) {
+    private static String getPythonGeneratedFile(PogoDeviceClass pogoClass) {
         String filesToGenerate ="";
-        String generatedFile = deviceClass.getPogoDeviceClass().getDescription().getFilestogenerate();
+        String generatedFile = pogoClass.getDescription().getFilestogenerate();
         if (generatedFile.contains("Python Package"))
             filesToGenerate += ", Python Package";
         if (generatedFile.contains("Protected Regions"))
@@ -130,28 +135,13 @@ public class Pogo {
     public void generateSourceFiles() {
         try {
             for (String filename : sourceFiles) {
-                //	Read source files
-                File file = new File(filename);
-                filename = file.getAbsolutePath();
-                deviceClass = new DeviceClass(filename);
-                PogoDeviceClass pogoClass = deviceClass.getPogoDeviceClass();
-
-
-                //	Check is from old Pogo model (not generated with OAW)
-                if (deviceClass.isOldPogoModel()) {
-                    deviceClass.generateFromOldModel(filename, true);
-                } else {
-                    //	Set the file list to be generated and generate
-                    //"XMI   file,Code files,Python Package,Protected Regions"
-                    String filesToGenerate = "XMI   file,Code files";
-                    //  If python HL, add python HL specific options
-                    String language = pogoClass.getDescription().getLanguage();
-                    if (language.startsWith(strLang[Python])) {
-                        filesToGenerate += getPythonGeneratedFile(pogoClass);
-                    }
-                    deviceClass.getPogoDeviceClass().getDescription().setFilestogenerate(filesToGenerate);
-                    OAWutils.getInstance().generate(pogoClass);
+                if (filename.endsWith(".multi.xmi")) {
+                    //  Classes and project files generated concurrently
+                    if (new BatchGenerator(Collections.singletonList(filename)).generate()!=0)
+                        throw new PogoException(filename + ": generation failed");
                 }
+                else
+                    deviceClass = generateSourceFile(filename);
             }
         } catch (PogoException e) {
            System.err.println(e.getMessage());
@@ -162,6 +152,65 @@ public class Pogo {
         }
     }
     //===============================================================
+    /**
+     * Generate source files for specified inputs (pogo -src):
+     * by the generation daemon if it is running with same options,
+     * in this process otherwise.
+     */
+    //===============================================================
+    private void generateSourceFilesFromCommandLine() {
+        Boolean done = GenerationDaemon.generate(sourceFiles);
+        if (done==null)
+            generateSourceFiles();
+        else
+        if (!done)
+            pogoException = new PogoException("Generation failed");
+    }
+    //===============================================================
+    /**
+     * Generate source files for specified input.
+     *
+     * @param filename specified file to be read.
+     * @return the DeviceClass loaded object.
+     * @throws PogoException if read or generation failed.
+     */
+    //===============================================================
+    static DeviceClass generateSourceFile(String filename) throws PogoException {
+        //	Read source files
+        File file = new File(filename);
+        filename = file.getAbsolutePath();
+        DeviceClass deviceClass = new DeviceClass(filename);
+        PogoDeviceClass pogoClass = deviceClass.getPogoDeviceClass();
+
+
+        //	Check is from old Pogo model (not generated with OAW)
+        if (deviceClass.isOldPogoModel()) {
+            deviceClass.generateFromOldModel(filename, true);
+        } else {
+            //	Set the file list to be generated and generate
+            //"XMI   file,Code files,Python Package,Protected Regions"
+            String filesToGenerate = "XMI   file,Code files";
+            //  If python HL, add python HL specific options
+            String language = pogoClass.getDescription().getLanguage();
+            if (language.startsWith(strLang[Python])) {
+                filesToGenerate += getPythonGeneratedFile(pogoClass);
+            }
+            pogoClass.getDescription().setFilestogenerate(filesToGenerate);
+            OAWutils.getInstance().generate(pogoClass);
+        }
+        return deviceClass;
+    }
+    //===============================================================
+    /**
+     * Generate source files for many inputs in parallel.
+     *
+     * @return 0 if all generations succeed, -1 otherwise.
+     */
+    //===============================================================
+    public int generateBatch() throws PogoException {
+        return new BatchGenerator(sourceFiles).generate();
+    }
+    //===============================================================
     /**
      * Generate HTML files for specified inputs.
      */
@@ -245,6 +294,20 @@ public class Pogo {
         }
     }
 
+    //===============================================================
+    /**
+     * Start the generation daemon, or stop it if "stop" is specified.
+     */
+    //===============================================================
+    private void manageDaemon() throws PogoException {
+        if (sourceFiles.contains("stop")) {
+            if (!GenerationDaemon.stop())
+                System.out.println("Pogo generation daemon is not running");
+        }
+        else
+            new GenerationDaemon().run();
+    }
+
     //===============================================================
     //===============================================================
     private void startPogoGUI() {
@@ -321,9 +384,17 @@ public class Pogo {
         System.out.println();
         System.out.println("Actions:");
         System.out.println("	-src:	 will re-generate the device server source files.");
+        System.out.println("	         For a multi classes project (.multi.xmi), all its classes");
+        System.out.println("	         and the project files are generated in parallel.");
         System.out.println("	-multi:	 will start Pogo for multi class server.");
         System.out.println("	-html:	 will generate the device server html documentation.");
         System.out.println("	-sphinx: will generate the device server Sphinx documentation.");
+        System.out.println("	-batch:	 will re-generate source files for all xmi files found in");
+        System.out.println("	         specified files, directories or glob patterns, in parallel.");
+        System.out.println("	-daemon: will start a generation service used by next pogo -src calls");
+        System.out.println("	         (pogo -daemon stop to stop it).");
+        System.out.println("	-watch:	 will watch specified directories (or current one) and re-generate");
+        System.out.println("	         classes and their dependants when their xmi file changes.");
         System.out.println();
     }
 
@@ -337,11 +408,13 @@ public class Pogo {
             //	Check command line
             switch (pogo.manageArgs(args)) {
                 case GENE_SRC:
-                    pogo.generateSourceFiles();
+                    pogo.generateSourceFilesFromCommandLine();
+                    PdfRenderer.waitForAll();
                     System.exit(0);
                     break;
                 case GENE_HTML:
                     pogo.generateHtmlDocumentation();
+                    PdfRenderer.waitForAll();
                     System.exit(0);
                     break;
                 case GENE_SPHINX:
@@ -355,6 +428,21 @@ public class Pogo {
                     Pogo.displaySyntax();
                     System.exit(0);
                     break;
+                case BATCH:
+                    int status = pogo.generateBatch();
+                    PdfRenderer.waitForAll();
+                    System.exit(status);
+                    break;
+                case DAEMON:
+                    pogo.manageDaemon();
+                    PdfRenderer.waitForAll();
+                    System.exit(0);
+                    break;
+                case WATCH:
+                    new ModelWatcher(pogo.sourceFiles).run();
+                    PdfRenderer.waitForAll();
+                    System.exit(0);
+                    break;
 
                 default:
                     pogo.startPogoGUI();
@@ -51,6 +51,7 @@ import java.awt.event.MouseEvent;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 //=======================================================
 /**
@@ -772,7 +773,8 @@ public class PogoGUI extends JFrame {
             if (multiClassesPanel != null && multiClassesPanel.isVisible())
                 return JOptionPane.OK_OPTION;
 
-            //  No visible found.
+            //  No visible found: wait for PDF renderings before exiting
+            PdfRenderer.waitForAll();
             System.exit(0);
         }
         return JOptionPane.CANCEL_OPTION;
@@ -840,12 +842,16 @@ public class PogoGUI extends JFrame {
             setCursor(cursor);
             try {
                 deviceClass = generateDialog.getDevClass();
-                Utils.getInstance().startSplashRefresher(
-                        "Generate class: " + deviceClass.getPogoDeviceClass().getName());
 
-                deviceClass.generate(tree.getDeletedObjects(), tree.getRenamedObjects());
-
-                Utils.getInstance().stopSplashRefresher();
+                //  Generate in background, with progress and cancel
+                final DeviceClass generatedClass = deviceClass;
+                final ClassTree generatedTree = tree;
+                new GenerationWorker(this, deviceClass.getProjectFilename()).execute(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        generatedClass.generate(generatedTree.getDeletedObjects(), generatedTree.getRenamedObjects());
+                        return null;
+                    }
+                });
 
                 //	Update ClassTree object.
                 tree.setModified(false);
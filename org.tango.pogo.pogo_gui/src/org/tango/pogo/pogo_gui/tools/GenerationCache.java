@@ -0,0 +1,233 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description: java code to skip generation when nothing has changed.
+//
+// $Author: verdier $
+//
+// Copyright (C) :      2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package org.tango.pogo.pogo_gui.tools;
+
+import fr.esrf.tango.pogo.generator.common.StringUtils;
+import fr.esrf.tango.pogo.generator.ManifestFileSystemAccess;
+import fr.esrf.tango.pogo.generator.PogoGeneratorSession;
+import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass;
+import fr.esrf.tango.pogo.pogoDsl.PogoMultiClasses;
+import org.tango.pogo.pogo_gui.PogoConst;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ *	This class manages a fingerprint of a class (or multi classes project) generation.
+ *	The fingerprint is computed from the xmi file, the generated files
+ *	(with their protected regions) listed in generation manifest
+ *	(for a file changed by a post-processing, the hash of its generated content),
+ *	the generator build and the generator options changing the output
+ *	(see PogoGeneratorSession.getOutputOptions()).
+ *	If it has not changed since last generation, the generation can be skipped.
+ *	Nothing is stored by a POGO_OUTPUT_MODE=check run (files not written).
+ *	Could be disabled by POGO_GENERATION_CACHE=false (environment or property).
+ *
+ * @author verdier
+ */
+
+public class GenerationCache {
+    private static final String CACHE_OPTION = "POGO_GENERATION_CACHE";
+    private static final String CACHE_FILE = ".pogo_fingerprint";
+
+    //===============================================================
+    //===============================================================
+    public static boolean isEnabled() {
+        return !"false".equals(StringUtils.getOption(CACHE_OPTION));
+    }
+    //===============================================================
+    /**
+     * Compute the generation fingerprint for specified class.
+     *
+     * @param pogoClass   specified class
+     * @param xmiFileName the xmi file of the class
+     * @return the fingerprint or null if it cannot be computed
+     *          (no manifest, files never generated)
+     */
+    //===============================================================
+    public static String computeFingerprint(PogoDeviceClass pogoClass, String xmiFileName) {
+        return computeFingerprint(pogoClass.getDescription().getSourcePath(), xmiFileName,
+                pogoClass.getDescription().getLanguage(),
+                pogoClass.getDescription().getFilestogenerate());
+    }
+    //===============================================================
+    /**
+     * Compute the generation fingerprint for specified multi classes project.
+     *
+     * @param multiClasses specified project
+     * @param xmiFileName  the xmi file of the project
+     * @return the fingerprint or null if it cannot be computed
+     */
+    //===============================================================
+    public static String computeFingerprint(PogoMultiClasses multiClasses, String xmiFileName) {
+        return computeFingerprint(multiClasses.getSourcePath(), xmiFileName,
+                "MultiCpp", multiClasses.getFilestogenerate());
+    }
+    //===============================================================
+    //===============================================================
+    private static String computeFingerprint(String targetDir, String xmiFileName,
+                                             String language, String filesToGenerate) {
+        //  Hashes of generated content, a PDF link added or removed in the banner does not count
+        Map<String, String> generatedFiles = ManifestFileSystemAccess.getManifestHashes(targetDir);
+        if (generatedFiles==null || generatedFiles.isEmpty())
+            return null;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            update(digest, PogoConst.revNumber);
+            update(digest, PogoGeneratorSession.getBuildId());
+            update(digest, language);
+            update(digest, filesToGenerate);
+            for (Map.Entry<String, String> option : PogoGeneratorSession.getOutputOptions().entrySet()) {
+                update(digest, option.getKey());
+                update(digest, option.getValue());
+            }
+            digest.update(Files.readAllBytes(new File(xmiFileName).toPath()));
+            for (Map.Entry<String, String> file : generatedFiles.entrySet()) {
+                update(digest, file.getKey());
+                update(digest, (file.getValue()==null)? "-- missing --" : file.getValue());
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest())
+                sb.append(String.format("%02x", b & 0xff));
+            return sb.toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            System.err.println("Cannot compute fingerprint: " + e);
+            return null;
+        }
+    }
+    //===============================================================
+    //===============================================================
+    private static void update(MessageDigest digest, String str) {
+        digest.update(((str==null)? "" : str).getBytes(Charset.forName("UTF-8")));
+        digest.update((byte) 0);    //  separator
+    }
+    //===============================================================
+    /**
+     * Check if specified fingerprint is the one of the last generation
+     *
+     * @param pogoClass   specified class
+     * @param fingerprint specified fingerprint
+     * @return true if the generation can be skipped
+     */
+    //===============================================================
+    public static boolean isUpToDate(PogoDeviceClass pogoClass, String fingerprint) {
+        return isUpToDate(pogoClass.getDescription().getSourcePath(), pogoClass.getName(), fingerprint);
+    }
+    //===============================================================
+    /**
+     * Check if specified fingerprint is the one of the last generation
+     *
+     * @param multiClasses specified project
+     * @param fingerprint  specified fingerprint
+     * @return true if the generation can be skipped
+     */
+    //===============================================================
+    public static boolean isUpToDate(PogoMultiClasses multiClasses, String fingerprint) {
+        return isUpToDate(multiClasses.getSourcePath(), multiClasses.getName(), fingerprint);
+    }
+    //===============================================================
+    //===============================================================
+    private static boolean isUpToDate(String targetDir, String name, String fingerprint) {
+        if (fingerprint==null || !isEnabled())
+            return false;
+        Properties properties = readCache(targetDir);
+        return fingerprint.equals(properties.getProperty(name));
+    }
+    //===============================================================
+    /**
+     * Store fingerprint after generation
+     *
+     * @param pogoClass   specified class
+     * @param fingerprint specified fingerprint
+     */
+    //===============================================================
+    public static void store(PogoDeviceClass pogoClass, String fingerprint) {
+        store(pogoClass.getDescription().getSourcePath(), pogoClass.getName(), fingerprint);
+    }
+    //===============================================================
+    /**
+     * Store fingerprint after generation
+     *
+     * @param multiClasses specified project
+     * @param fingerprint  specified fingerprint
+     */
+    //===============================================================
+    public static void store(PogoMultiClasses multiClasses, String fingerprint) {
+        store(multiClasses.getSourcePath(), multiClasses.getName(), fingerprint);
+    }
+    //===============================================================
+    //===============================================================
+    private static void store(String targetDir, String name, String fingerprint) {
+        //  In check mode, files have not been written: they are still out of date
+        if (fingerprint==null || !isEnabled() || ManifestFileSystemAccess.isCheckMode())
+            return;
+        //  A class and a multi classes project could share the directory
+        synchronized (GenerationCache.class) {
+            Properties properties = readCache(targetDir);
+            properties.setProperty(name, fingerprint);
+            File file = new File(targetDir, CACHE_FILE);
+            try (FileOutputStream outputStream = new FileOutputStream(file)) {
+                properties.store(outputStream, "Generated by Pogo");
+            } catch (IOException e) {
+                System.err.println("Cannot write " + file + ": " + e.getMessage());
+            }
+        }
+    }
+    //===============================================================
+    //===============================================================
+    private static Properties readCache(String targetDir) {
+        Properties properties = new Properties();
+        File file = new File(targetDir, CACHE_FILE);
+        if (file.exists()) {
+            try (FileInputStream inputStream = new FileInputStream(file)) {
+                properties.load(inputStream);
+            } catch (IOException e) {
+                System.err.println("Cannot read " + file + ": " + e.getMessage());
+            }
+        }
+        return properties;
+    }
+    //===============================================================
+    //===============================================================
+}
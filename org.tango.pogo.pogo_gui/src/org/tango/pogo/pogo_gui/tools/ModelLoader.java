@@ -0,0 +1,196 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description: java code to load models concurrently.
+//
+// $Author: verdier $
+//
+// Copyright (C) :      2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package org.tango.pogo.pogo_gui.tools;
+
+import fr.esrf.tango.pogo.pogoDsl.Inheritance;
+import fr.esrf.tango.pogo.pogoDsl.OneClassSimpleDef;
+import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass;
+import fr.esrf.tango.pogo.pogoDsl.PogoMultiClasses;
+import org.tango.pogo.pogo_gui.DeviceClass;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ *	This class loads class models concurrently in ModelRepository.
+ *	A file being loaded is not loaded twice: a second request waits
+ *	for the first one, and then gets its copy from the repository.
+ *	It does not display anything, the file choosers and error messages
+ *	are managed by the caller (on its own thread).
+ *
+ * @author verdier
+ */
+
+public class ModelLoader {
+    private static final ExecutorService executor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Pogo model loader");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    //  Files being loaded (by canonical path)
+    private static final ConcurrentMap<String, Future<PogoDeviceClass>> loading =
+            new ConcurrentHashMap<>();
+
+    //===============================================================
+    /**
+     * Load specified files concurrently and wait for them.
+     * The models are then available in ModelRepository.
+     *
+     * @param xmiFileNames specified class files
+     * @throws PogoException if a file cannot be loaded
+     */
+    //===============================================================
+    public static void loadAll(List<String> xmiFileNames) throws PogoException {
+        List<Future<PogoDeviceClass>> futures = new ArrayList<>();
+        for (String xmiFileName : xmiFileNames)
+            futures.add(submit(xmiFileName, false));
+        for (Future<PogoDeviceClass> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PogoException(e.toString());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof PogoException)
+                    throw (PogoException) e.getCause();
+                throw new PogoException(e.getCause().toString());
+            }
+        }
+    }
+    //===============================================================
+    /**
+     * Start loading the classes of a multi classes project and their ancestors,
+     * without waiting. Files which are not found are ignored,
+     * they will be managed when the classes are opened.
+     *
+     * @param multiClasses specified project
+     */
+    //===============================================================
+    public static void prefetch(PogoMultiClasses multiClasses) {
+        for (OneClassSimpleDef simpleClass : multiClasses.getClasses()) {
+            if (Utils.isTrue(simpleClass.getPogo6()))
+                continue;
+            String xmiFileName = simpleClass.getSourcePath() + "/" + simpleClass.getClassname() + ".xmi";
+            if (!new File(xmiFileName).exists())
+                xmiFileName = Utils.getAbsolutePath(xmiFileName, multiClasses.getSourcePath());
+            if (new File(xmiFileName).exists())
+                submit(xmiFileName, true);
+        }
+    }
+    //===============================================================
+    //===============================================================
+    private static void prefetchAncestors(PogoDeviceClass pogoClass, String classPath) {
+        for (String xmiFileName : getAncestorFiles(pogoClass, classPath))
+            submit(xmiFileName, false);
+    }
+    //===============================================================
+    /**
+     * Returns the ancestor files of a class which are found
+     * (without file chooser nor INHERIT_HOME search).
+     *
+     * @param pogoClass specified class
+     * @param classPath the directory of the class file
+     * @return the ancestor files found
+     */
+    //===============================================================
+    public static List<String> getAncestorFiles(PogoDeviceClass pogoClass, String classPath) {
+        List<String> list = new ArrayList<>();
+        for (Inheritance inheritance : pogoClass.getDescription().getInheritances()) {
+            if (DeviceClass.isDefaultInheritance(inheritance))
+                continue;
+            String xmiFileName = inheritance.getSourcePath() + "/" + inheritance.getClassname() + ".xmi";
+            if (!new File(xmiFileName).exists())
+                xmiFileName = Utils.getAbsolutePath(xmiFileName, classPath);
+            if (new File(xmiFileName).exists())
+                list.add(xmiFileName);
+        }
+        return list;
+    }
+    //===============================================================
+    //===============================================================
+    private static Future<PogoDeviceClass> submit(final String xmiFileName, final boolean withAncestors) {
+        final String key = getKey(xmiFileName);
+        Future<PogoDeviceClass> future = loading.get(key);
+        if (future!=null)
+            return future;
+
+        FutureTask<PogoDeviceClass> task = new FutureTask<PogoDeviceClass>(new Callable<PogoDeviceClass>() {
+            public PogoDeviceClass call() throws PogoException {
+                PogoDeviceClass pogoClass = OAWutils.getInstance().loadDeviceClassModel(xmiFileName);
+                if (withAncestors)
+                    prefetchAncestors(pogoClass, Utils.getPath(xmiFileName));
+                return pogoClass;
+            }
+        }) {
+            @Override
+            protected void done() {
+                //  Now in repository
+                loading.remove(key, this);
+            }
+        };
+        future = loading.putIfAbsent(key, task);
+        if (future!=null)
+            return future;
+        executor.execute(task);
+        return task;
+    }
+    //===============================================================
+    //===============================================================
+    private static String getKey(String xmiFileName) {
+        File file = new File(xmiFileName);
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+    //===============================================================
+    //===============================================================
+}
@@ -0,0 +1,183 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description: java code to share the loaded models.
+//
+// $Author: verdier $
+//
+// Copyright (C) :      2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package org.tango.pogo.pogo_gui.tools;
+
+import fr.esrf.tango.pogo.generator.ParallelGenerator;
+import fr.esrf.tango.pogo.generator.common.StringUtils;
+import fr.esrf.tango.pogo.pogoDsl.PogoSystem;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ *	This class is a process wide repository of the loaded models.
+ *	Models are stored by canonical xmi file path with the date and size
+ *	of the file when it has been parsed, and are parsed again if it has changed.
+ *	The repository keeps its own copy, each call returns a new copy
+ *	which can be edited without side effect for other callers.
+ *	The least recently used models are removed when the repository is full.
+ *	Its size could be set by POGO_MODEL_CACHE_SIZE (environment or property),
+ *	0 to disable the cache.
+ *
+ * @author verdier
+ */
+
+public class ModelRepository {
+    private static final String SIZE_OPTION = "POGO_MODEL_CACHE_SIZE";
+    private static final int DEFAULT_SIZE = 64;
+
+    private static ModelRepository instance = null;
+    private final int maxSize;
+    private final Map<String, Model> models;
+    //===============================================================
+    //===============================================================
+    private ModelRepository() {
+        maxSize = getMaxSize();
+        //  Access ordered for LRU
+        models = new LinkedHashMap<String, Model>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Model> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+    //===============================================================
+    //===============================================================
+    public static synchronized ModelRepository getInstance() {
+        if (instance == null)
+            instance = new ModelRepository();
+        return instance;
+    }
+    //===============================================================
+    //===============================================================
+    private static int getMaxSize() {
+        return StringUtils.getIntegerOption(SIZE_OPTION, DEFAULT_SIZE);
+    }
+    //===============================================================
+    //===============================================================
+    private static String getKey(String xmiFileName) {
+        File file = new File(xmiFileName);
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+    //===============================================================
+    /**
+     * Get a copy of the model loaded from specified file.
+     *
+     * @param xmiFileName the xmi file name
+     * @return a copy of the model, or null if not loaded or file has changed
+     */
+    //===============================================================
+    public PogoSystem get(String xmiFileName) {
+        String key = getKey(xmiFileName);
+        File file = new File(key);
+        Model model;
+        synchronized (this) {
+            model = models.get(key);
+            if (model==null)
+                return null;
+            if (model.lastModified!=file.lastModified() || model.length!=file.length()) {
+                models.remove(key);
+                return null;
+            }
+        }
+        //  The stored copy is only read (lazy lists created by put()),
+        //  it can be copied outside lock
+        return EcoreUtil.copy(model.system);
+    }
+    //===============================================================
+    /**
+     * Store a model just parsed.
+     *
+     * @param xmiFileName  the xmi file name
+     * @param lastModified the file date before parsing
+     * @param length       the file size before parsing
+     * @param system       the parsed model
+     * @return the model to be used by the caller (the repository keeps a copy)
+     */
+    //===============================================================
+    public PogoSystem put(String xmiFileName, long lastModified, long length, PogoSystem system) {
+        if (maxSize==0)
+            return system;
+        //  The copy is not shared yet: create its lazy lists before
+        //  get() callers could copy it concurrently
+        PogoSystem copy = EcoreUtil.copy(system);
+        ParallelGenerator.prepareForConcurrentReads(copy);
+        Model model = new Model(copy, lastModified, length);
+        synchronized (this) {
+            models.put(getKey(xmiFileName), model);
+        }
+        return system;
+    }
+    //===============================================================
+    /**
+     * Remove the model of specified file (e.g. when the file is written,
+     * the date could be the same if done in the same second).
+     *
+     * @param xmiFileName the xmi file name
+     */
+    //===============================================================
+    public synchronized void invalidate(String xmiFileName) {
+        models.remove(getKey(xmiFileName));
+    }
+    //===============================================================
+    //===============================================================
+
+
+
+    //===============================================================
+    //===============================================================
+    private static class Model {
+        private final PogoSystem system;
+        private final long lastModified;
+        private final long length;
+        //===========================================================
+        private Model(PogoSystem system, long lastModified, long length) {
+            this.system = system;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+        //===========================================================
+    }
+    //===============================================================
+    //===============================================================
+}
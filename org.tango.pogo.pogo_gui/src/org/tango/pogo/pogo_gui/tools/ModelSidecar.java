@@ -0,0 +1,185 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description: java code to cache the model in EMF binary format.
+//
+// $Author: verdier $
+//
+// Copyright (C) :      2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package org.tango.pogo.pogo_gui.tools;
+
+import fr.esrf.tango.pogo.generator.common.StringUtils;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.tango.pogo.pogo_gui.PogoConst;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ *	This class manages a binary copy of an xmi file (ClassName.xmi.bin)
+ *	in EMF binary format, which is several times faster to load than xmi.
+ *	The sidecar header contains the Pogo release, the size and the date
+ *	of the xmi file it has been built from.
+ *	If they do not match the xmi file (xmi edited or replaced, Pogo updated),
+ *	the sidecar is stale and the xmi file is loaded and the sidecar rewritten.
+ *	Enabled by POGO_MODEL_SIDECAR=true (environment or property).
+ *
+ * @author verdier
+ */
+
+public class ModelSidecar {
+    private static final String SIDECAR_OPTION = "POGO_MODEL_SIDECAR";
+    private static final String EXTENSION = ".bin";
+    private static final String MAGIC = "PogoBinaryModel-1";
+    private static final Map<String, Object> BINARY_OPTIONS =
+            Collections.<String, Object>singletonMap(XMLResource.OPTION_BINARY, Boolean.TRUE);
+
+    //===============================================================
+    //===============================================================
+    public static boolean isEnabled() {
+        return "true".equals(StringUtils.getOption(SIDECAR_OPTION));
+    }
+    //===============================================================
+    //===============================================================
+    private static File getSidecar(File xmiFile) {
+        return new File(xmiFile.getPath() + EXTENSION);
+    }
+    //===============================================================
+    /**
+     * Check if the sidecar of specified xmi file can be used.
+     *
+     * @param xmiFileName the xmi file name
+     * @return true if the sidecar exists and has been built from the xmi file
+     */
+    //===============================================================
+    public static boolean isUpToDate(String xmiFileName) {
+        if (!isEnabled())
+            return false;
+        File xmiFile = new File(xmiFileName);
+        File sidecar = getSidecar(xmiFile);
+        if (!sidecar.exists())
+            return false;
+        try (DataInputStream inputStream = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(sidecar)))) {
+            return checkHeader(inputStream, xmiFile);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    //===============================================================
+    //===============================================================
+    private static boolean checkHeader(DataInputStream inputStream, File xmiFile) throws IOException {
+        return MAGIC.equals(inputStream.readUTF()) &&
+                PogoConst.revNumber.equals(inputStream.readUTF()) &&
+                inputStream.readLong()==xmiFile.length() &&
+                inputStream.readLong()==xmiFile.lastModified();
+    }
+    //===============================================================
+    /**
+     * Load the sidecar of specified xmi file in specified resource.
+     *
+     * @param resource    the resource created for the xmi file
+     * @param xmiFileName the xmi file name
+     * @return true if loaded, false if the xmi file must be loaded
+     *          (sidecar disabled, missing, stale or unreadable)
+     */
+    //===============================================================
+    public static boolean load(Resource resource, String xmiFileName) {
+        if (!isEnabled())
+            return false;
+        File xmiFile = new File(xmiFileName);
+        File sidecar = getSidecar(xmiFile);
+        if (!sidecar.exists())
+            return false;
+        try (DataInputStream inputStream = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(sidecar)))) {
+            if (!checkHeader(inputStream, xmiFile))
+                return false;
+            resource.load(inputStream, BINARY_OPTIONS);
+            System.out.println("Loading " + sidecar);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Cannot load " + sidecar + ": " + e);
+            resource.unload();
+            return false;
+        }
+    }
+    //===============================================================
+    /**
+     * Write the sidecar of specified xmi file.
+     * The date and size stored are the ones of the xmi file which has been parsed
+     * (or written) from the resource, taken before: if the file is modified meanwhile,
+     * the sidecar is not up to date and will not be used.
+     * Failures are only reported, the xmi file is still the reference.
+     *
+     * @param resource     the resource containing the model
+     * @param xmiFileName  the xmi file name
+     * @param lastModified the xmi file date before parsing (or after writing)
+     * @param length       the xmi file size before parsing (or after writing)
+     */
+    //===============================================================
+    public static void save(Resource resource, String xmiFileName, long lastModified, long length) {
+        if (!isEnabled())
+            return;
+        File xmiFile = new File(xmiFileName);
+        File sidecar = getSidecar(xmiFile);
+        //  Written in a temporary file and renamed, a reader never sees a partial file
+        File tmpFile = new File(sidecar.getPath() + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            DataOutputStream dataStream = new DataOutputStream(outputStream);
+            dataStream.writeUTF(MAGIC);
+            dataStream.writeUTF(PogoConst.revNumber);
+            dataStream.writeLong(length);
+            dataStream.writeLong(lastModified);
+            dataStream.flush();
+            resource.save(outputStream, BINARY_OPTIONS);
+
+            Files.write(tmpFile.toPath(), outputStream.toByteArray());
+            Files.move(tmpFile.toPath(), sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Cannot write " + sidecar + ": " + e);
+            //noinspection ResultOfMethodCallIgnored
+            tmpFile.delete();
+        }
+    }
+    //===============================================================
+    //===============================================================
+}
@@ -36,6 +36,9 @@
 package org.tango.pogo.pogo_gui.tools;
 
 import fr.esrf.TangoDs.TangoConst;
+import fr.esrf.tango.pogo.generator.GenerationContext;
+import fr.esrf.tango.pogo.generator.PogoGeneratorSession;
+import fr.esrf.tango.pogo.generator.PogoXmiResourceFactory;
 import fr.esrf.tango.pogo.pogoDsl.*;
 
 import org.eclipse.emf.common.util.EList;
@@ -43,16 +46,18 @@ import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
-import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
 import org.eclipse.emf.mwe2.language.Mwe2StandaloneSetup;
 import org.eclipse.emf.mwe2.launch.runtime.Mwe2Runner;
 
 import com.google.inject.Injector;
 import org.tango.pogo.pogo_gui.PropertyDialog;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Collections;
 import java.util.List;
@@ -60,8 +65,13 @@ import java.util.List;
 
 public class OAWutils {
     private static OAWutils instance = null;
-    private static String	backend =
+    private static final String	defaultBackend =
         	"/fr/esrf/tango/pogo/generator/PogoDslGeneratorMWE.mwe2";
+    private static String	backend = defaultBackend;
+    private static Mwe2Runner mwe2Runner = null;
+    //  Generator options are passed to specific MWE2 workflows through
+    //  system properties, then only one of them can run at a time.
+    private static final Object workflowLock = new Object();
 
 
     //  Do not remove, it seems to be more than a simple assignment
@@ -75,10 +85,13 @@ public class OAWutils {
         if (str!=null)
         	backend = str;
         System.out.println("backend=" + backend);
+        //  Registered once (the registry is not thread safe)
+        //  Old xmi keys are fixed by this factory while parsing
+        Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap().put("*", new PogoXmiResourceFactory());
     }
 
     //========================================================================
-    public static OAWutils getInstance() {
+    public static synchronized OAWutils getInstance() {
         if (instance == null)
             instance = new OAWutils();
         return instance;
@@ -95,10 +108,6 @@ public class OAWutils {
      */
     //========================================================================
     public PogoMultiClasses loadMultiClassesModel(String xmiFile) throws PogoException {
-        //  Before everything, update xmi file for compatibility.
-        //ParserTool.removeXmiKey("", xmiFile);
-
-        //  OK, Now can be loaded
         Object pogoObj = loadTheModel(xmiFile);
         if (!(pogoObj instanceof PogoMultiClasses))
             throw new PogoException("This is not a Pogo Multi Classes file !");
@@ -117,27 +126,16 @@ public class OAWutils {
         }
     }
     //========================================================================
-    //========================================================================
-    public PogoDeviceClass loadDeviceClassModel(String xmiFile) throws PogoException {
-            return loadDeviceClassModel(xmiFile, true);
-    }
-    //========================================================================
     /**
      * Read the xmi file and returns the PogoDeviceClass model found.
      *
      * @param xmiFile xmi file name.
-     * @param checkVersion  will check for version compatibility if true
      * @return the model loaded form xmi file.
      * @throws PogoException in case of I/O error or bad xmi file.
      */
     //========================================================================
-    PogoDeviceClass loadDeviceClassModel(String xmiFile, boolean checkVersion) throws PogoException {
-        //  Before everything, update xmi file for compatibility.
-        if (checkVersion) {
-        	ParserTool.renameXmiKey("<inheritance ", "<inheritances ", xmiFile);
-        }
-
-        //  OK, Now can be loaded
+    public PogoDeviceClass loadDeviceClassModel(String xmiFile) throws PogoException {
+        //  Old keys (e.g. <inheritance ...>) are fixed by PogoXmiResourceFactory
         Object pogoObj = loadTheModel(xmiFile);
         if (!(pogoObj instanceof PogoDeviceClass))
             throw new PogoException("This is not a Pogo Device Class file !");
@@ -153,22 +151,31 @@ public class OAWutils {
      */
     //========================================================================
     private Object loadTheModel(String xmiFileName) throws PogoException {
-
-        //  remove unused key(s)
-        ParserTool.removeXmiKey("htmlInheritance", xmiFileName);
-
-        System.out.println("Loading " + xmiFileName);
-        Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap().put("*", new XMIResourceFactoryImpl());
-        final URI fileURI = URI.createFileURI(new File(xmiFileName).getAbsolutePath());
-        final Resource resource = new ResourceSetImpl().createResource(fileURI);
-        try {
-            resource.load(null);
-        } catch (final IOException e) {
-            //e.printStackTrace();
-            throw new PogoException(e.toString());
+        //  Already loaded and not changed since ?
+        ModelRepository repository = ModelRepository.getInstance();
+        PogoSystem sys = repository.get(xmiFileName);
+        if (sys==null) {
+            File xmiFile = new File(xmiFileName);
+            long lastModified = xmiFile.lastModified();
+            long length = xmiFile.length();
+            final URI fileURI = URI.createFileURI(xmiFile.getAbsolutePath());
+            final Resource resource = new ResourceSetImpl().createResource(fileURI);
+
+            //  Use the binary sidecar if any and up to date
+            if (!ModelSidecar.load(resource, xmiFileName)) {
+                System.out.println("Loading " + xmiFileName);
+                try {
+                    resource.load(null);
+                } catch (final IOException e) {
+                    //e.printStackTrace();
+                    throw new PogoException(e.toString());
+                }
+                ModelSidecar.save(resource, xmiFileName, lastModified, length);
+            }
+            sys = repository.put(xmiFileName, lastModified, length,
+                    (PogoSystem) resource.getContents().get(0));
         }
 
-        PogoSystem sys = (PogoSystem) resource.getContents().get(0);
         if (sys.getMultiClasses().size() > 0)
             return sys.getMultiClasses().get(0);    //  A multi classes project
         else
@@ -194,18 +201,42 @@ public class OAWutils {
         if (!Utils.osIsUnix())
             xmiFileName = "//" + xmiFileName;
 
+        saveModel(sys, xmiFileName);
+        return xmiFileName;
+    }
+    //========================================================================
+    /**
+     * Save the model in xmi file, only if it has changed
+     * (file date is used by generation cache and make)
+     */
+    //========================================================================
+    private void saveModel(PogoSystem sys, String xmiFileName) throws PogoException {
         ResourceSet resourceSet = new ResourceSetImpl();
-        Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap().put("*", new XMIResourceFactoryImpl());
         URI fileURI = URI.createFileURI(new File(xmiFileName).getAbsolutePath());
         Resource resource = resourceSet.createResource(fileURI);
         resource.getContents().add(sys);
         try {
-            resource.save(Collections.EMPTY_MAP);
-            System.out.println(xmiFileName + " generated");
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            resource.save(outputStream, Collections.EMPTY_MAP);
+            byte[] xmiBytes = outputStream.toByteArray();
+            File xmiFile = new File(xmiFileName);
+            //  Date and size of the file compared with the model (before reading it)
+            long lastModified = xmiFile.lastModified();
+            long length = xmiFile.length();
+            if (xmiFile.exists() && Arrays.equals(xmiBytes, Files.readAllBytes(xmiFile.toPath()))) {
+                System.out.println(xmiFileName + " unchanged");
+                if (!ModelSidecar.isUpToDate(xmiFileName))
+                    ModelSidecar.save(resource, xmiFileName, lastModified, length);
+            }
+            else {
+                Files.write(xmiFile.toPath(), xmiBytes);
+                System.out.println(xmiFileName + " generated");
+                ModelRepository.getInstance().invalidate(xmiFileName);
+                ModelSidecar.save(resource, xmiFileName, xmiFile.lastModified(), xmiFile.length());
+            }
         } catch (IOException e) {
             throw new PogoException(e.toString());
         }
-        return xmiFileName;
     }
     //========================================================================
     /**
@@ -219,26 +250,33 @@ public class OAWutils {
         //  Generate XMI file to save model
         String xmiFileName = generateXmiFile(pogoClass);
 
+        //  Check if something has changed since last generation
+        String fingerprint = GenerationCache.computeFingerprint(pogoClass, xmiFileName);
+        if (GenerationCache.isUpToDate(pogoClass, fingerprint)) {
+            System.out.println(pogoClass.getName() + " is up to date: generation skipped");
+            return;
+        }
+
         //	Start the code generation
         HashMap<String, String> params = new HashMap<>();
         params.put("targetDir", pogoClass.getDescription().getSourcePath());
         params.put("targetLanguage", pogoClass.getDescription().getLanguage());
         params.put("modelPath", xmiFileName);
 
-        //  Put info to system properties to be used by:
-        // /fr.esrf.tango.generator.xtend/src/fr/esrf/tango/pogo/generator/PogoGeneratorModule.java
-        System.setProperty("targetDir", pogoClass.getDescription().getSourcePath());
-        System.setProperty("className", pogoClass.getName());
-        System.setProperty("targetLanguage", // do not parse code file if not generated !
-                (generateCodeFiles(pogoClass.getDescription()))? pogoClass.getDescription().getLanguage() : "");
-        System.setProperty("python package",
-                pogoClass.getDescription().getFilestogenerate().contains("Python Package") ? "true" : "false");
+        //  Generation parameters used by:
+        // /fr.esrf.tango.generator.xtend/src/fr/esrf/tango/pogo/generator/PogoGeneratorSession.java
+        GenerationContext context = new GenerationContext(
+                pogoClass.getDescription().getSourcePath(),
+                pogoClass.getName(),
+                // do not parse code file if not generated !
+                (generateCodeFiles(pogoClass.getDescription()))? pogoClass.getDescription().getLanguage() : "",
+                pogoClass.getDescription().getFilestogenerate().contains("Python Package"));
 
         Utils.manageHtmlDirectory(pogoClass, true);
         try {
             System.out.println("Running Workflow for " + pogoClass.getDescription().getFilestogenerate() +
                     "	from:\n" + xmiFileName);
-            runWorkflow(params);
+            runWorkflow(params, context);
         }
         catch(PogoException e) {
             Utils.manageHtmlDirectory(pogoClass, false);
@@ -250,6 +288,12 @@ public class OAWutils {
             ParserTool.manageWindowsProjects(pogoClass);
 
         doPostProcessing(pogoClass);
+
+        //  Generated files have changed, compute the new fingerprint
+        //  (with the directory lock: a PDF rendering could be updating the manifest)
+        synchronized (PogoGeneratorSession.getDirectoryLock(pogoClass.getDescription().getSourcePath())) {
+            GenerationCache.store(pogoClass, GenerationCache.computeFingerprint(pogoClass, xmiFileName));
+        }
     }
     //========================================================================
     //========================================================================
@@ -281,16 +325,13 @@ public class OAWutils {
         if (!Utils.osIsUnix())
             xmiFileName = "//" + xmiFileName;
 
-        ResourceSet resourceSet = new ResourceSetImpl();
-        Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap().put("*", new XMIResourceFactoryImpl());
-        URI fileURI = URI.createFileURI(new File(xmiFileName).getAbsolutePath());
-        Resource resource = resourceSet.createResource(fileURI);
-        resource.getContents().add(sys);
-        try {
-            resource.save(Collections.EMPTY_MAP);
-            System.out.println(xmiFileName + " generated");
-        } catch (IOException e) {
-            throw new PogoException(e.toString());
+        saveModel(sys, xmiFileName);
+
+        //  Check if something has changed since last generation
+        String fingerprint = GenerationCache.computeFingerprint(multiClasses, xmiFileName);
+        if (GenerationCache.isUpToDate(multiClasses, fingerprint)) {
+            System.out.println(multiClasses.getName() + " is up to date: generation skipped");
+            return;
         }
 
         //	Start the code generation
@@ -299,24 +340,46 @@ public class OAWutils {
         params.put("targetLanguage", "MultiCpp");
         params.put("modelPath", xmiFileName);
 
-        //  Put info to in system properties to be used by:
-        // /fr.esrf.tango.generator.xtend/src/fr/esrf/tango/pogo/generator/PogoGeneratorModule.java
-        System.setProperty("targetDir", multiClasses.getSourcePath());
-        System.setProperty("targetLanguage", "MultiCpp");
-
-        runWorkflow(params);
+        //  Generation parameters used by:
+        // /fr.esrf.tango.generator.xtend/src/fr/esrf/tango/pogo/generator/PogoGeneratorSession.java
+        runWorkflow(params, new GenerationContext(
+                multiClasses.getSourcePath(), multiClasses.getName(), "MultiCpp", false));
+        GenerationCache.store(multiClasses, GenerationCache.computeFingerprint(multiClasses, xmiFileName));
     }
     //========================================================================
     //========================================================================
-    private void runWorkflow(HashMap<String, String> params) throws PogoException {
+    private void runWorkflow(HashMap<String, String> params, GenerationContext context) throws PogoException {
         try {
-            java.net.URL	url = getClass().getResource(backend);
-            URI uri = URI.createURI(url.toString());
-
             long	t0 = System.currentTimeMillis();
-            Injector injector = new Mwe2StandaloneSetup().createInjectorAndDoEMFRegistration();
-            Mwe2Runner runner = injector.getInstance(Mwe2Runner.class);
-            runner.run(uri, params);
+            if (backend.equals(defaultBackend)) {
+                //  Default workflow: use the generator session (built once),
+                //  generations could run concurrently.
+                PogoGeneratorSession.getInstance().generate(params.get("modelPath"), context);
+            }
+            else {
+                //  Specific workflow: the MWE2 runner is built once too,
+                //  the context is read from system properties by PogoDslGeneratorComponent
+                java.net.URL	url = getClass().getResource(backend);
+                URI uri = URI.createURI(url.toString());
+                synchronized (workflowLock) {
+                    System.setProperty("targetDir", context.getTargetDir());
+                    System.setProperty("className", context.getClassName());
+                    System.setProperty("targetLanguage", context.getTargetLanguage());
+                    System.setProperty("python package", Boolean.toString(context.isPythonPackage()));
+                    //  Same directory lock as the session (manifest and generated files)
+                    try {
+                        synchronized (PogoGeneratorSession.getDirectoryLock(context.getTargetDir())) {
+                            getMwe2Runner().run(uri, params);
+                        }
+                    }
+                    finally {
+                        System.clearProperty("targetDir");
+                        System.clearProperty("className");
+                        System.clearProperty("targetLanguage");
+                        System.clearProperty("python package");
+                    }
+                }
+            }
             long	t1 = System.currentTimeMillis();
             System.out.println("elapsed time : " + (t1-t0) + " ms");
         }
@@ -326,6 +389,18 @@ public class OAWutils {
         }
 	}
     //========================================================================
+    //========================================================================
+    private static synchronized Mwe2Runner getMwe2Runner() {
+        if (mwe2Runner==null) {
+            long	t0 = System.currentTimeMillis();
+            Injector injector = new Mwe2StandaloneSetup().createInjectorAndDoEMFRegistration();
+            mwe2Runner = injector.getInstance(Mwe2Runner.class);
+            long	t1 = System.currentTimeMillis();
+            System.out.println("MWE2 runner built in " + (t1-t0) + " ms");
+        }
+        return mwe2Runner;
+    }
+    //========================================================================
     /**
      * Do a ppost-processing for additional info (e.g.: doc to pdf, ...)
      *
@@ -340,36 +415,12 @@ public class OAWutils {
             //  Move doc dir expected
             Utils.manageHtmlDirectory(pogoClass, false);
 
-            //  Only if unix like, try to generate a PDF file from FullDocument.html file
+            //  Only if unix like, render a PDF file from FullDocument.html file
+            //  (done in background, see PdfRenderer)
             if (Utils.osIsUnix()) {
-                String descriptionFile = pogoClass.getDescription().getSourcePath() + "/" +
-                        pogoClass.getPreferences().getDocHome() + "/FullDocument.html";
-                String pdfFile = pogoClass.getDescription().getSourcePath() + "/" +
-                        pogoClass.getPreferences().getDocHome() + "/" +
-                        pogoClass.getName() + ".pdf";
-                try {
-                    //  Execute wkhtmltopdf to generate a PDF file and a add a link on it
-                    Utils.executeShellCommand("wkhtmltopdf " + descriptionFile + "  " + pdfFile);
-                    if (new File(pdfFile).exists()) {
-                        System.out.println(pdfFile + " has been generated");
-                        //  OK it exists -> add a link
-                        String bannerFile = pogoClass.getDescription().getSourcePath() + "/" +
-                        		pogoClass.getPreferences().getDocHome() + "/TitleBanner.html";
-                        String code = ParserTool.readFile(bannerFile);
-                        int idx = code.indexOf("</table>");
-                        code = code.substring(0, idx) +
-                                "<td ALIGN=\"center\"> <a href=\"" +
-                        		pogoClass.getName() + ".pdf\" target=\"document\">PDF</a></td>\n\t\t" +
-                                code.substring(idx);
-                        ParserTool.writeFile(bannerFile, code);
-                        //System.out.println(bannerFile + " has been updated\n");
-                    }
-                    else
-                        System.err.println("Generation of " + pdfFile + " has failed !");
-                }catch (PogoException e) {
-                    //System.err.println(e.toString());
-                }
-    	    }
+                PdfRenderer.submit(pogoClass.getDescription().getSourcePath(),
+                        pogoClass.getPreferences().getDocHome(), pogoClass.getName());
+            }
         }
     }
     //========================================================================
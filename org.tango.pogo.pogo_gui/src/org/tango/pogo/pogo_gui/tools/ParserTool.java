@@ -185,7 +185,7 @@ public class ParserTool {
      * @throws PogoException if read x,i failed
      */
     //===============================================================
-    public static void removeXmiKey(String key, String fileName) throws PogoException {
+    public static synchronized void removeXmiKey(String key, String fileName) throws PogoException {
         //  Rea=d file and split lines
         boolean modified = false;
         key = " " + key + "=\"";
@@ -232,7 +232,7 @@ public class ParserTool {
      */
     //===============================================================
     @SuppressWarnings("UnusedDeclaration")
-    public static void renameXmiKey(String srcKey, String newKey, String fileName) throws PogoException {
+    public static synchronized void renameXmiKey(String srcKey, String newKey, String fileName) throws PogoException {
         //  Rea=d file and split lines
         boolean modified = false;
         boolean startingLine = srcKey.startsWith("<");
@@ -523,7 +523,7 @@ public class ParserTool {
             System.out.println("cleaning " + xmiFileName);
             removeXmiKey("pogoRevision", xmiFileName);
             if (cls==null)
-                cls = OAWutils.getInstance().loadDeviceClassModel(xmiFileName, false);
+                cls = OAWutils.getInstance().loadDeviceClassModel(xmiFileName);
 
             //  Update DevClass.cpp for protected regions
             String  fileName = path + "/" + className + "Class.cpp";
@@ -0,0 +1,334 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description: java code to render the html documentation to PDF.
+//
+// $Author: verdier $
+//
+// Copyright (C) :      2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+package org.tango.pogo.pogo_gui.tools;
+
+import fr.esrf.tango.pogo.generator.ManifestFileSystemAccess;
+import fr.esrf.tango.pogo.generator.PogoGeneratorSession;
+import fr.esrf.tango.pogo.generator.common.StringUtils;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ *	This class renders the html documentation of classes to PDF
+ *	(using wkhtmltopdf) in a bounded pool, so several classes are rendered
+ *	in parallel and the generation does not wait for them.
+ *	The rendering is skipped if FullDocument.html has not changed
+ *	since the PDF has been rendered (its SHA-1 is kept in .pogo_pdf).
+ *	The pool size could be set by POGO_PDF_THREADS (environment or property),
+ *	default is the number of processors.
+ *	The link added in TitleBanner.html is recorded in the generation manifest,
+ *	then the banner is not written again at next generation if it has not changed.
+ *	The banner is rewritten with the directory lock of the generation (PogoGeneratorSession).
+ *	If the rendering fails, the link is removed and the same FullDocument.html
+ *	is not rendered again by this process. Nothing is rendered if wkhtmltopdf is not found.
+ *
+ * @author verdier
+ */
+
+public class PdfRenderer {
+    private static final String THREADS_OPTION = "POGO_PDF_THREADS";
+    private static final String TOOL = "wkhtmltopdf";
+    private static final String DIGEST_FILE = ".pogo_pdf";
+    private static final String BANNER_FILE = "doc_html/TitleBanner.html";  //  As generated
+    private static final ExecutorService executor = Executors.newFixedThreadPool(
+            getThreads(), new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Pogo PDF renderer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    //  Renderings not done yet (by PDF canonical path)
+    private static final ConcurrentMap<String, Future<Void>> rendering =
+            new ConcurrentHashMap<>();
+    //  Digest of FullDocument.html when the rendering has failed (by PDF canonical path)
+    private static final ConcurrentMap<String, String> failures =
+            new ConcurrentHashMap<>();
+    private static final boolean toolFound = isToolFound();
+
+    //===============================================================
+    //===============================================================
+    private static int getThreads() {
+        return Math.max(1, StringUtils.getIntegerOption(THREADS_OPTION,
+                Runtime.getRuntime().availableProcessors()));
+    }
+    //===============================================================
+    //===============================================================
+    private static boolean isToolFound() {
+        String path = System.getenv("PATH");
+        if (path!=null) {
+            for (String dir : path.split(File.pathSeparator))
+                if (new File(dir, TOOL).canExecute())
+                    return true;
+        }
+        System.err.println(TOOL + " not found: PDF documentation will not be rendered");
+        return false;
+    }
+    //===============================================================
+    /**
+     * Render the PDF of a class documentation if FullDocument.html has changed,
+     * and add a link on it in the title banner.
+     * The link is added before returning (the banner has just been generated),
+     * and is removed if the rendering fails.
+     *
+     * @param outputDir the generation output directory
+     * @param docHome   the html documentation directory (relative to outputDir)
+     * @param className the class name (PDF file is className.pdf)
+     */
+    //===============================================================
+    public static void submit(final String outputDir, String docHome, final String className) {
+        File docDir = new File(outputDir, docHome);
+        final File htmlFile   = new File(docDir, "FullDocument.html");
+        final File pdfFile    = new File(docDir, className + ".pdf");
+        final File bannerFile = new File(docDir, "TitleBanner.html");
+        if (!toolFound || !htmlFile.exists())
+            return;
+        final String key = getKey(pdfFile);
+        final String digest = computeDigest(htmlFile);
+
+        //  Wait for a previous rendering of the same file
+        final Future<Void> previous = rendering.get(key);
+        if (previous==null && pdfFile.exists() && digest!=null &&
+                digest.equals(readDigests(docDir.toString()).getProperty(pdfFile.getName()))) {
+            System.out.println(pdfFile + " is up to date: rendering skipped");
+            addLink(outputDir, bannerFile, className);
+            return;
+        }
+        if (previous==null && digest!=null && digest.equals(failures.get(key))) {
+            System.err.println("Generation of " + pdfFile + " has already failed: not done again");
+            return;
+        }
+        addLink(outputDir, bannerFile, className);
+
+        FutureTask<Void> task = new FutureTask<Void>(new Runnable() {
+            public void run() {
+                if (previous!=null) {
+                    try {
+                        previous.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (ExecutionException e) {
+                        //  Already reported
+                    }
+                }
+                render(key, htmlFile, pdfFile, outputDir, bannerFile, className, digest);
+            }
+        }, null) {
+            @Override
+            protected void done() {
+                rendering.remove(key, this);
+            }
+        };
+        rendering.put(key, task);
+        executor.execute(task);
+    }
+    //===============================================================
+    /**
+     * Wait for the renderings which are not done yet
+     * (e.g. before exiting a command line generation).
+     */
+    //===============================================================
+    public static void waitForAll() {
+        waitFor(new ArrayList<>(rendering.values()));
+    }
+    //===============================================================
+    /**
+     * Wait for the renderings which are not done yet in an output directory
+     * (e.g. before answering a generation request).
+     *
+     * @param outputDir the generation output directory
+     */
+    //===============================================================
+    public static void waitFor(String outputDir) {
+        String prefix = getKey(new File(outputDir)) + File.separator;
+        List<Future<Void>> futures = new ArrayList<>();
+        for (Map.Entry<String, Future<Void>> entry : rendering.entrySet())
+            if (entry.getKey().startsWith(prefix))
+                futures.add(entry.getValue());
+        waitFor(futures);
+    }
+    //===============================================================
+    //===============================================================
+    private static void waitFor(List<Future<Void>> futures) {
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                System.err.println(e.getCause().toString());
+            }
+        }
+    }
+    //===============================================================
+    //===============================================================
+    private static void render(String key, File htmlFile, File pdfFile, String outputDir,
+                               File bannerFile, String className, String digest) {
+        try {
+            //  Execute wkhtmltopdf to generate a PDF file
+            if (pdfFile.exists() && !pdfFile.delete())
+                System.err.println("Cannot remove " + pdfFile);
+            Utils.executeShellCommand(TOOL + " " + htmlFile + "  " + pdfFile);
+        } catch (PogoException e) {
+            //System.err.println(e.toString());
+        }
+        if (pdfFile.exists()) {
+            System.out.println(pdfFile + " has been generated");
+            failures.remove(key);
+            if (digest!=null)
+                storeDigest(htmlFile.getParent(), pdfFile.getName(), digest);
+        }
+        else {
+            System.err.println("Generation of " + pdfFile + " has failed !");
+            if (digest!=null)
+                failures.put(key, digest);
+            removeLink(outputDir, bannerFile, className);
+        }
+    }
+    //===============================================================
+    //===============================================================
+    private static String getLink(String className) {
+        return "<td ALIGN=\"center\"> <a href=\"" +
+                className + ".pdf\" target=\"document\">PDF</a></td>\n\t\t";
+    }
+    //===============================================================
+    //===============================================================
+    private static void addLink(String outputDir, File bannerFile, String className) {
+        synchronized (PogoGeneratorSession.getDirectoryLock(outputDir)) {
+            try {
+                String code = ParserTool.readFile(bannerFile.toString());
+                int idx = code.indexOf("</table>");
+                if (idx<0 || code.contains(getLink(className)))
+                    return;
+                code = code.substring(0, idx) + getLink(className) + code.substring(idx);
+                ParserTool.writeFile(bannerFile.toString(), code);
+                ManifestFileSystemAccess.updateManifest(outputDir, BANNER_FILE, bannerFile);
+            } catch (PogoException e) {
+                System.err.println(e.getMessage());
+            }
+        }
+    }
+    //===============================================================
+    //===============================================================
+    private static void removeLink(String outputDir, File bannerFile, String className) {
+        synchronized (PogoGeneratorSession.getDirectoryLock(outputDir)) {
+            try {
+                String code = ParserTool.readFile(bannerFile.toString());
+                int idx = code.indexOf(getLink(className));
+                if (idx<0)
+                    return;
+                code = code.substring(0, idx) + code.substring(idx + getLink(className).length());
+                ParserTool.writeFile(bannerFile.toString(), code);
+                ManifestFileSystemAccess.updateManifest(outputDir, BANNER_FILE, bannerFile);
+            } catch (PogoException e) {
+                System.err.println(e.getMessage());
+            }
+        }
+    }
+    //===============================================================
+    //===============================================================
+    private static String computeDigest(File file) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(Files.readAllBytes(file.toPath()));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest())
+                sb.append(String.format("%02x", b & 0xff));
+            return sb.toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            System.err.println("Cannot compute digest of " + file + ": " + e);
+            return null;
+        }
+    }
+    //===============================================================
+    //===============================================================
+    private static synchronized Properties readDigests(String docDir) {
+        Properties properties = new Properties();
+        File file = new File(docDir, DIGEST_FILE);
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                System.err.println("Cannot read " + file + ": " + e.getMessage());
+            }
+        }
+        return properties;
+    }
+    //===============================================================
+    //===============================================================
+    private static synchronized void storeDigest(String docDir, String pdfName, String digest) {
+        Properties properties = readDigests(docDir);
+        properties.setProperty(pdfName, digest);
+        File file = new File(docDir, DIGEST_FILE);
+        try (OutputStream out = new FileOutputStream(file)) {
+            properties.store(out, "Pogo PDF rendering digests - do not edit");
+        } catch (IOException e) {
+            System.err.println("Cannot write " + file + ": " + e.getMessage());
+        }
+    }
+    //===============================================================
+    //===============================================================
+    private static String getKey(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+    //===============================================================
+    //===============================================================
+}
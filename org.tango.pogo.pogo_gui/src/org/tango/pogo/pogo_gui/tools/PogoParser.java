@@ -41,12 +41,16 @@ package org.tango.pogo.pogo_gui.tools;
  * @author verdier
  */
 
+import fr.esrf.tango.pogo.generator.pr.ProtectedRegionScanner;
+
 import java.util.StringTokenizer;
 
 
 public class PogoParser {
     private String fileCode;
     private String filename;
+    private String indexedCode = null;
+    private ProtectedRegionScanner.Document regionIndex = null;
 
     static final String start_protected = "PROTECTED REGION ID(";
     static final String start_protected_enabled = "ENABLED START";
@@ -276,9 +280,34 @@ public class PogoParser {
     //===============================================================
 
 
+    //===============================================================
+    //===============================================================
+    private ProtectedRegionScanner.Region getProtectedRegion(String this_protected) {
+        //  Index all protected regions in one pass, again only if code has been modified
+        if (indexedCode!=fileCode) {
+            indexedCode = fileCode;
+            try {
+                regionIndex = ProtectedRegionScanner.forFile(filename).scan(fileCode);
+            } catch (IllegalStateException e) {
+                regionIndex = null;     //  Not well formed, use text search
+            }
+        }
+        if (regionIndex==null)
+            return null;
+        String id = this_protected.substring(start_protected.length(),
+                this_protected.lastIndexOf(')')).trim();
+        ProtectedRegionScanner.Region region = regionIndex.getMarkedRegion(id);
+        if (region!=null && region.getMarker().equals(this_protected))
+            return region;
+        return null;
+    }
     //===============================================================
     //===============================================================
     private int[] indexesOfProtectedZone(String this_protected) {
+        ProtectedRegionScanner.Region region = getProtectedRegion(this_protected);
+        if (region!=null)
+            return new int[]{region.getContentStart(), region.getContentEnd()};
+
         //	Search protected zone begining
         int start = fileCode.indexOf(this_protected);
         if (start < 0) {
@@ -0,0 +1,203 @@
+//+======================================================================
+//
+// Project:   Tango
+//
+// Description: java code to test the generation fingerprint.
+//
+// $Author: verdier $
+//
+// Copyright (C) :      2004,2005,2006,2007,2008,2009,2009,2010,2011,2012,2013,2014
+//						European Synchrotron Radiation Facility
+//                      BP 220, Grenoble 38043
+//                      FRANCE
+//
+// This file is part of Tango.
+//
+// Tango is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+// 
+// Tango is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+// 
+// You should have received a copy of the GNU General Public License
+// along with Tango.  If not, see <http://www.gnu.org/licenses/>.
+//
+// $Revision: $
+// $Date:  $
+//
+// $HeadURL: $
+//
+//-======================================================================
+
+
+package org.tango.pogo.pogo_gui.tools;
+
+import fr.esrf.tango.pogo.generator.ManifestFileSystemAccess;
+import fr.esrf.tango.pogo.pogoDsl.ClassDescription;
+import fr.esrf.tango.pogo.pogoDsl.PogoDeviceClass;
+import fr.esrf.tango.pogo.pogoDsl.PogoDslFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ *	Check that a generation is skipped only if the model and the generated files
+ *	have not changed since the fingerprint has been stored,
+ *	and that a check mode run does not store it.
+ *
+ * @author verdier
+ */
+
+public class GenerationCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PogoDeviceClass pogoClass;
+    private File xmiFile;
+    private File generatedFile;
+
+    //===============================================================
+    //===============================================================
+    @Before
+    public void setUp() throws IOException {
+        //  Options read from the environment first, they must not be set
+        assumeTrue(System.getenv(ManifestFileSystemAccess.MODE_OPTION)==null);
+        assumeTrue(System.getenv("POGO_GENERATION_CACHE")==null);
+
+        File targetDir = folder.getRoot();
+        ClassDescription description = PogoDslFactory.eINSTANCE.createClassDescription();
+        description.setSourcePath(targetDir.getPath());
+        description.setLanguage("Cpp");
+        description.setFilestogenerate("XMI   file,Code files");
+        pogoClass = PogoDslFactory.eINSTANCE.createPogoDeviceClass();
+        pogoClass.setName("Dev");
+        pogoClass.setDescription(description);
+
+        xmiFile = new File(targetDir, "Dev.xmi");
+        write(xmiFile, "<model/>");
+        generatedFile = new File(targetDir, "Dev.cpp");
+        write(generatedFile, "int main() {}\n");
+        write(new File(targetDir, ManifestFileSystemAccess.MANIFEST_FILE),
+                "# Generated by Pogo: file\thash\tsize\tdate\n" +
+                "Dev.cpp\t0\t0\t0\n");
+    }
+    //===============================================================
+    //===============================================================
+    @After
+    public void tearDown() {
+        System.clearProperty(ManifestFileSystemAccess.MODE_OPTION);
+    }
+    //===============================================================
+    //===============================================================
+    @Test
+    public void hitWhenNothingChanged() {
+        String fingerprint = fingerprint();
+        assertNotNull(fingerprint);
+        assertFalse(GenerationCache.isUpToDate(pogoClass, fingerprint));
+
+        GenerationCache.store(pogoClass, fingerprint);
+        assertEquals(fingerprint, fingerprint());
+        assertTrue(GenerationCache.isUpToDate(pogoClass, fingerprint()));
+    }
+    //===============================================================
+    //===============================================================
+    @Test
+    public void missWhenGeneratedFileChanged() throws IOException {
+        GenerationCache.store(pogoClass, fingerprint());
+        write(generatedFile, "int main() { return 0; }\n");
+        assertFalse(GenerationCache.isUpToDate(pogoClass, fingerprint()));
+
+        //  Removed file
+        GenerationCache.store(pogoClass, fingerprint());
+        assertTrue(generatedFile.delete());
+        assertFalse(GenerationCache.isUpToDate(pogoClass, fingerprint()));
+    }
+    //===============================================================
+    //===============================================================
+    @Test
+    public void missWhenModelChanged() throws IOException {
+        String fingerprint = fingerprint();
+        GenerationCache.store(pogoClass, fingerprint);
+        write(xmiFile, "<model changed=\"true\"/>");
+        assertNotEquals(fingerprint, fingerprint());
+        assertFalse(GenerationCache.isUpToDate(pogoClass, fingerprint()));
+
+        //  Generation parameters
+        GenerationCache.store(pogoClass, fingerprint());
+        pogoClass.getDescription().setFilestogenerate("XMI   file,Code files,html pages");
+        assertFalse(GenerationCache.isUpToDate(pogoClass, fingerprint()));
+    }
+    //===============================================================
+    /**
+     * A file changed by a post-processing (e.g. PDF link in the banner)
+     * and recorded in manifest is still a hit
+     */
+    //===============================================================
+    @Test
+    public void hitWhenPostProcessed() throws IOException {
+        String targetDir = folder.getRoot().getPath();
+        ManifestFileSystemAccess.updateManifest(targetDir, "Dev.cpp", generatedFile);
+        GenerationCache.store(pogoClass, fingerprint());
+
+        write(generatedFile, "int main() {}\n// post-processed\n");
+        ManifestFileSystemAccess.updateManifest(targetDir, "Dev.cpp", generatedFile);
+        assertTrue(GenerationCache.isUpToDate(pogoClass, fingerprint()));
+    }
+    //===============================================================
+    //===============================================================
+    @Test
+    public void noFingerprintWithoutManifest() {
+        assertTrue(new File(folder.getRoot(), ManifestFileSystemAccess.MANIFEST_FILE).delete());
+        assertNull(fingerprint());
+        GenerationCache.store(pogoClass, null);
+        assertFalse(GenerationCache.isUpToDate(pogoClass, null));
+    }
+    //===============================================================
+    //===============================================================
+    @Test
+    public void notStoredInCheckMode() throws IOException {
+        System.setProperty(ManifestFileSystemAccess.MODE_OPTION, "check");
+        GenerationCache.store(pogoClass, fingerprint());
+        assertFalse(GenerationCache.isUpToDate(pogoClass, fingerprint()));
+
+        //  A check run after a change does not make it up to date
+        System.clearProperty(ManifestFileSystemAccess.MODE_OPTION);
+        GenerationCache.store(pogoClass, fingerprint());
+        System.setProperty(ManifestFileSystemAccess.MODE_OPTION, "check");
+        write(generatedFile, "modified");
+        GenerationCache.store(pogoClass, fingerprint());
+        System.clearProperty(ManifestFileSystemAccess.MODE_OPTION);
+        assertFalse(GenerationCache.isUpToDate(pogoClass, fingerprint()));
+    }
+    //===============================================================
+    //===============================================================
+    private String fingerprint() {
+        return GenerationCache.computeFingerprint(pogoClass, xmiFile.getPath());
+    }
+    //===============================================================
+    //===============================================================
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(Charset.forName("UTF-8")));
+    }
+    //===============================================================
+    //===============================================================
+}